@@ -119,7 +119,12 @@ public class BusinessObjectAuditEventsStepDefinitions {
                                                     asOffset.apply("startTime"),
                                                     asOffset.apply("endTime"),
                                                     asInt.apply("pageNumber"),
-                                                    asInt.apply("pageSize")));
+                                                    asInt.apply("pageSize"),
+                                                    queryParams.get("paging"),
+                                                    queryParams.get("cursor"),
+                                                    queryParams.get("count"),
+                                                    queryParams.get("fields"),
+                                                    queryParams.get("If-None-Match")));
                             Assertions.assertNotNull(apiClientContext.getLastResponseBody());
                             results = apiClientContext.getLastResponseBody(AuditEventsPage.class);
                             Assertions.assertEquals(
@@ -153,7 +158,12 @@ public class BusinessObjectAuditEventsStepDefinitions {
                                 asOffset.apply("startTime"),
                                 asOffset.apply("endTime"),
                                 asInt.apply("pageNumber"),
-                                asInt.apply("pageSize")));
+                                asInt.apply("pageSize"),
+                                queryParams.get("paging"),
+                                queryParams.get("cursor"),
+                                queryParams.get("count"),
+                                queryParams.get("fields"),
+                                queryParams.get("If-None-Match")));
 
         Assertions.assertEquals(expected, apiClientContext.getLastResponseStatus());
     }
@@ -0,0 +1,95 @@
+package io.nuvalence.platform.audit.service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.nuvalence.auth.access.AccessResource;
+import io.nuvalence.auth.access.AuthorizationHandler;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Caches the decisions of another AuthorizationHandler on resource kinds, keyed by the principal's
+ * role set, the resource kind and the action, so they are not requested on every call.
+ *
+ * <p>Decisions on resource instances depend on the instance, and are never cached. Neither are
+ * decisions for requests without an authenticated principal.</p>
+ */
+public class CachingAuthorizationHandler implements AuthorizationHandler {
+    static final String CACHE_NAME = "authorization-decisions";
+
+    private final AuthorizationHandler delegate;
+    private final Cache<Key, Boolean> decisions;
+
+    /**
+     * Wraps an AuthorizationHandler.
+     *
+     * @param delegate      handler making the decisions
+     * @param meterRegistry registry of the cache's hit, miss, eviction and size metrics
+     * @param ttl           time a decision is cached for
+     * @param maximumSize   maximum number of cached decisions
+     */
+    public CachingAuthorizationHandler(
+            AuthorizationHandler delegate,
+            MeterRegistry meterRegistry,
+            Duration ttl,
+            long maximumSize) {
+        this.delegate = delegate;
+        this.decisions =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, decisions, CACHE_NAME);
+    }
+
+    /**
+     * Returns the kind of resource of a class, as named by its AccessResource annotation.
+     *
+     * @param resourceClass class of resource
+     * @return kind of resource
+     */
+    static String resourceKind(Class<?> resourceClass) {
+        AccessResource accessResource = resourceClass.getAnnotation(AccessResource.class);
+        return accessResource == null ? resourceClass.getName() : accessResource.value();
+    }
+
+    @Override
+    public boolean isAllowed(String action, Class<?> resourceClass) {
+        return decide(
+                resourceKind(resourceClass),
+                action,
+                () -> delegate.isAllowed(action, resourceClass));
+    }
+
+    @Override
+    public boolean isAllowed(String action, String resourceType) {
+        return decide(resourceType, action, () -> delegate.isAllowed(action, resourceType));
+    }
+
+    @Override
+    public boolean isAllowedForInstance(String action, Object resource) {
+        return delegate.isAllowedForInstance(action, resource);
+    }
+
+    private boolean decide(String kind, String action, Decision decision) {
+        Authentication authentication = PrincipalRoles.authentication();
+        if (authentication == null) {
+            return decision.isAllowed();
+        }
+
+        Set<String> roles = PrincipalRoles.of(authentication);
+        return decisions.get(new Key(roles, kind, action), key -> decision.isAllowed());
+    }
+
+    @FunctionalInterface
+    private interface Decision {
+        boolean isAllowed();
+    }
+
+    private record Key(Set<String> roles, String kind, String action) {}
+}
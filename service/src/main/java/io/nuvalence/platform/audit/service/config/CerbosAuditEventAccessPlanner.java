@@ -0,0 +1,119 @@
+package io.nuvalence.platform.audit.service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.cerbos.sdk.CerbosBlockingClient;
+import dev.cerbos.sdk.PlanResourcesResult;
+import dev.cerbos.sdk.builders.AttributeValue;
+import dev.cerbos.sdk.builders.Principal;
+import dev.cerbos.sdk.builders.Resource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Plans access to audit events with Cerbos query planning (PlanResources), translating the plan
+ * into an {@link AuditEventAccessFilter}.
+ *
+ * <p>Plans may depend on the principal as well as its roles, so the principal's attributes, such
+ * as its tenant, are sent with its roles and plans are cached per principal. Plans which cannot
+ * be translated deny access, rather than being ignored.</p>
+ */
+@Slf4j
+public class CerbosAuditEventAccessPlanner implements AuditEventAccessPlanner {
+    static final String CACHE_NAME = "authorization-plans";
+
+    private final CerbosBlockingClient client;
+    private final String resourceKind;
+    private final Cache<Key, AuditEventAccessFilter> plans;
+
+    /**
+     * Creates a planner.
+     *
+     * @param client        Cerbos client
+     * @param meterRegistry registry of the cache's hit, miss, eviction and size metrics
+     * @param ttl           time a plan is cached for
+     * @param maximumSize   maximum number of cached plans
+     */
+    public CerbosAuditEventAccessPlanner(
+            CerbosBlockingClient client,
+            MeterRegistry meterRegistry,
+            Duration ttl,
+            long maximumSize) {
+        this.client = client;
+        this.resourceKind = CachingAuthorizationHandler.resourceKind(AuditEventEntity.class);
+        this.plans =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, plans, CACHE_NAME);
+    }
+
+    @Override
+    public AuditEventAccessFilter plan(String action) {
+        Authentication authentication = PrincipalRoles.authentication();
+        if (authentication == null) {
+            return AuditEventAccessFilter.DENY_ALL;
+        }
+
+        Key key =
+                new Key(
+                        authentication.getName(),
+                        PrincipalRoles.of(authentication),
+                        PrincipalRoles.attributes(authentication),
+                        action);
+        return plans.get(key, this::requestPlan);
+    }
+
+    @Override
+    public Optional<UUID> tenantId() {
+        Authentication authentication = PrincipalRoles.authentication();
+        return authentication == null
+                ? Optional.empty()
+                : PrincipalRoles.tenantId(authentication);
+    }
+
+    private AuditEventAccessFilter requestPlan(Key key) {
+        Principal principal =
+                Principal.newInstance(key.principal(), key.roles().toArray(String[]::new));
+        key.attributes()
+                .forEach(
+                        (name, value) ->
+                                principal.withAttribute(name, AttributeValue.stringValue(value)));
+        String action = key.action();
+        PlanResourcesResult result =
+                client.plan(principal, Resource.newInstance(resourceKind), action);
+        if (result.isAlwaysAllowed()) {
+            return AuditEventAccessFilter.ALLOW_ALL;
+        }
+        if (result.isAlwaysDenied()) {
+            return AuditEventAccessFilter.DENY_ALL;
+        }
+
+        try {
+            return AuditEventAccessFilter.of(result.getCondition());
+        } catch (IllegalArgumentException e) {
+            log.error(
+                    "Denied {} on {}, as its access plan cannot be applied",
+                    action,
+                    resourceKind,
+                    e);
+            return AuditEventAccessFilter.DENY_ALL;
+        }
+    }
+
+    private record Key(
+            String principal, Set<String> roles, Map<String, String> attributes, String action) {}
+}
@@ -2,18 +2,26 @@ package io.nuvalence.platform.audit.service.config;
 
 import dev.cerbos.sdk.CerbosBlockingClient;
 import dev.cerbos.sdk.CerbosClientBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.nuvalence.auth.access.AuthorizationHandler;
 import io.nuvalence.auth.access.cerbos.CerbosAuthorizationHandler;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
 import io.nuvalence.platform.audit.service.utils.JacocoIgnoreInGeneratedReport;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.context.annotation.Scope;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
 /**
- * Configures CerbosAuthorizationHandler.
+ * Configures CerbosAuthorizationHandler, behind a cache of its decisions, and Cerbos query planning
+ * of access to audit events. Optionally, the Cerbos policy is evaluated in process where possible.
  */
 @Configuration
 @RequiredArgsConstructor
@@ -22,23 +30,100 @@ import org.springframework.context.annotation.Scope;
         reason =
                 "Initialization has side effects making unit tests difficult. Tested in acceptance tests.")
 public class CerbosConfig {
+    private final MeterRegistry meterRegistry;
 
     @Value("${cerbos.uri}")
     private String cerbosUri;
 
+    @Value("${cerbos.decision-cache.enabled:true}")
+    private boolean decisionCacheEnabled;
+
+    @Value("${cerbos.decision-cache.ttl-seconds:30}")
+    private long decisionCacheTtlSeconds;
+
+    @Value("${cerbos.decision-cache.max-size:10000}")
+    private long decisionCacheMaxSize;
+
+    @Value("${cerbos.local-policy.path:}")
+    private String localPolicyPath;
+
     /**
-     * Initializes a CerbosAuthorizationHandler as a singleton bean.
+     * Initializes the Cerbos client as a singleton bean.
      *
-     * @return AuthorizationHandler
+     * @return CerbosBlockingClient
      * @throws CerbosClientBuilder.InvalidClientConfigurationException if cerbos URI is invalid
      */
     @Bean
     @Scope("singleton")
-    public AuthorizationHandler getAuthorizationHandler()
+    public CerbosBlockingClient getCerbosClient()
             throws CerbosClientBuilder.InvalidClientConfigurationException {
-        final CerbosBlockingClient cerbosClient =
-                new CerbosClientBuilder(cerbosUri).withPlaintext().buildBlockingClient();
+        return new CerbosClientBuilder(cerbosUri).withPlaintext().buildBlockingClient();
+    }
+
+    /**
+     * Initializes the in-process evaluator of the Cerbos policy as a singleton bean, if enabled.
+     *
+     * @return LocalCerbosPolicy
+     */
+    @Bean
+    @Scope("singleton")
+    @ConditionalOnProperty(name = "cerbos.local-policy.enabled", havingValue = "true")
+    public LocalCerbosPolicy getLocalCerbosPolicy() {
+        return new LocalCerbosPolicy(Path.of(localPolicyPath));
+    }
+
+    /**
+     * Initializes a CerbosAuthorizationHandler as a singleton bean, wrapped in a
+     * CachingAuthorizationHandler unless the decision cache is disabled, and in a
+     * LocalPolicyAuthorizationHandler if the policy is evaluated in process.
+     *
+     * @param cerbosClient Cerbos client
+     * @param localPolicy  policy evaluated in process, if enabled
+     * @return AuthorizationHandler
+     */
+    @Bean
+    @Scope("singleton")
+    public AuthorizationHandler getAuthorizationHandler(
+            CerbosBlockingClient cerbosClient, Optional<LocalCerbosPolicy> localPolicy) {
+        final AuthorizationHandler cerbosHandler = new CerbosAuthorizationHandler(cerbosClient);
+        final AuthorizationHandler remoteHandler =
+                decisionCacheEnabled
+                        ? new CachingAuthorizationHandler(
+                                cerbosHandler,
+                                meterRegistry,
+                                Duration.ofSeconds(decisionCacheTtlSeconds),
+                                decisionCacheMaxSize)
+                        : cerbosHandler;
+
+        return localPolicy
+                .<AuthorizationHandler>map(
+                        policy -> new LocalPolicyAuthorizationHandler(policy, remoteHandler))
+                .orElse(remoteHandler);
+    }
+
+    /**
+     * Initializes the planner of access to audit events as a singleton bean. Its plans are cached
+     * with the same TTL and size bound as decisions, unless the policy is evaluated in process and
+     * can decide them.
+     *
+     * @param cerbosClient Cerbos client
+     * @param localPolicy  policy evaluated in process, if enabled
+     * @return AuditEventAccessPlanner
+     */
+    @Bean
+    @Scope("singleton")
+    public AuditEventAccessPlanner getAuditEventAccessPlanner(
+            CerbosBlockingClient cerbosClient, Optional<LocalCerbosPolicy> localPolicy) {
+        final AuditEventAccessPlanner remotePlanner =
+                new CerbosAuditEventAccessPlanner(
+                        cerbosClient,
+                        meterRegistry,
+                        Duration.ofSeconds(decisionCacheTtlSeconds),
+                        decisionCacheMaxSize);
 
-        return new CerbosAuthorizationHandler(cerbosClient);
+        return localPolicy
+                .<AuditEventAccessPlanner>map(
+                        policy -> new LocalPolicyAccessPlanner(policy, remotePlanner))
+                .orElse(remotePlanner);
     }
 }
@@ -0,0 +1,194 @@
+package io.nuvalence.platform.audit.service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates a Cerbos resource policy in process, so decisions it can make do not need a round
+ * trip to Cerbos. The policy file is loaded at startup and reloaded when it changes.
+ *
+ * <p>Only rules mapping roles to actions are evaluated. A decision is left to Cerbos when it
+ * involves a rule with a condition or derived roles, a resource the policy is not for, or a
+ * policy using any other feature, such as scopes or versions. As in Cerbos, deny rules take
+ * precedence and actions no rule allows are denied.</p>
+ *
+ * <p>Roles of this service are matched without its namespace prefix, so
+ * <code>as:event-reader</code> matches the policy role <code>event-reader</code>. Roles of other
+ * namespaces keep their prefix, so <code>other-app:event-reader</code> does not.</p>
+ */
+@Slf4j
+public class LocalCerbosPolicy {
+    private static final Set<String> POLICY_KEYS = Set.of("apiVersion", "resourcePolicy");
+    private static final Set<String> RESOURCE_POLICY_KEYS = Set.of("version", "resource", "rules");
+    private static final Set<String> RULE_KEYS = Set.of("name", "actions", "roles", "effect");
+    private static final String WILDCARD = "*";
+    private static final String ROLE_PREFIX = WebSecurityConfig.NAMESPACE + ":";
+
+    private final Path path;
+    private volatile Policy policy;
+    private FileTime loaded;
+
+    /**
+     * Loads a policy file.
+     *
+     * @param path resource policy YAML file
+     */
+    public LocalCerbosPolicy(Path path) {
+        this.path = path;
+        reloadIfChanged();
+    }
+
+    /**
+     * Reloads the policy file if it has changed since it was last loaded. If it cannot be loaded,
+     * every decision is left to Cerbos until it can.
+     */
+    @Scheduled(fixedDelayString = "${cerbos.local-policy.reload-interval-millis:5000}")
+    public synchronized void reloadIfChanged() {
+        try {
+            // follows the symbolic links which config maps are updated through
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(loaded)) {
+                return;
+            }
+
+            try (InputStream in = Files.newInputStream(path)) {
+                policy = parse(new Yaml(new SafeConstructor(new LoaderOptions())).load(in));
+            }
+            loaded = modified;
+            log.info("Loaded Cerbos policy {} for local evaluation", path);
+        } catch (IOException | RuntimeException e) {
+            policy = null;
+            loaded = null;
+            log.error("Cerbos policy {} could not be loaded, deferring to Cerbos", path, e);
+        }
+    }
+
+    /**
+     * Decides whether principals with some roles may perform an action on a kind of resource.
+     *
+     * @param resourceKind kind of resource
+     * @param action       action on the resource
+     * @param roles        roles of the principal
+     * @return the decision, or empty if it must be left to Cerbos
+     */
+    public Optional<Boolean> isAllowed(String resourceKind, String action, Set<String> roles) {
+        Policy current = policy;
+        if (current == null || !current.resource().equals(resourceKind)) {
+            return Optional.empty();
+        }
+
+        boolean allowed = false;
+        for (Rule rule : current.rules()) {
+            if (!rule.actions().contains(action) && !rule.actions().contains(WILDCARD)) {
+                continue;
+            }
+            boolean applies =
+                    rule.roles().contains(WILDCARD)
+                            || roles.stream()
+                                    .map(LocalCerbosPolicy::policyRole)
+                                    .anyMatch(rule.roles()::contains);
+            if (!rule.local() && (applies || rule.roles().isEmpty())) {
+                return Optional.empty();
+            }
+            if (applies && !rule.allow()) {
+                return Optional.of(false);
+            }
+            allowed |= applies;
+        }
+        return Optional.of(allowed);
+    }
+
+    private static String policyRole(String role) {
+        return role.startsWith(ROLE_PREFIX) ? role.substring(ROLE_PREFIX.length()) : role;
+    }
+
+    private static Policy parse(Object document) {
+        Map<?, ?> root = map(document);
+        checkKeys(root, POLICY_KEYS);
+        Map<?, ?> resourcePolicy = map(root.get("resourcePolicy"));
+        checkKeys(resourcePolicy, RESOURCE_POLICY_KEYS);
+        if (!"default".equals(resourcePolicy.get("version"))) {
+            throw new IllegalArgumentException("Only the default policy version is supported");
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (Object element : list(resourcePolicy.get("rules"))) {
+            Map<?, ?> rule = map(element);
+            Object effect = rule.get("effect");
+            if (!"EFFECT_ALLOW".equals(effect) && !"EFFECT_DENY".equals(effect)) {
+                throw new IllegalArgumentException("Unknown effect: " + effect);
+            }
+            Set<String> actions = strings(rule.get("actions"));
+            rules.add(
+                    new Rule(
+                            actions,
+                            strings(rule.get("roles")),
+                            "EFFECT_ALLOW".equals(effect),
+                            isLocal(rule, actions)));
+        }
+        if (!(resourcePolicy.get("resource") instanceof String resource)) {
+            throw new IllegalArgumentException("The policy has no resource");
+        }
+        return new Policy(resource, rules);
+    }
+
+    /**
+     * Whether a rule only maps roles to actions, without conditions, derived roles or action
+     * patterns other than the wildcard.
+     */
+    private static boolean isLocal(Map<?, ?> rule, Set<String> actions) {
+        return RULE_KEYS.containsAll(rule.keySet())
+                && actions.stream()
+                        .allMatch(action -> WILDCARD.equals(action) || !action.contains(WILDCARD));
+    }
+
+    private static void checkKeys(Map<?, ?> map, Set<String> supported) {
+        if (!supported.containsAll(map.keySet())) {
+            throw new IllegalArgumentException("Unsupported policy properties: " + map.keySet());
+        }
+    }
+
+    private static Map<?, ?> map(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return map;
+        }
+        throw new IllegalArgumentException("Expected a mapping: " + value);
+    }
+
+    private static Collection<?> list(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection;
+        }
+        throw new IllegalArgumentException("Expected a list: " + value);
+    }
+
+    private static Set<String> strings(Object value) {
+        return list(value).stream().map(String::valueOf).collect(Collectors.toSet());
+    }
+
+    private record Policy(String resource, List<Rule> rules) {}
+
+    /**
+     * A rule of the policy; rules which are not local need Cerbos to evaluate them.
+     */
+    private record Rule(Set<String> actions, Set<String> roles, boolean allow, boolean local) {}
+}
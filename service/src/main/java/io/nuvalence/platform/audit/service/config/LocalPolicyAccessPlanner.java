@@ -0,0 +1,54 @@
+package io.nuvalence.platform.audit.service.config;
+
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import org.springframework.security.core.Authentication;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Plans access to audit events in process when a {@link LocalCerbosPolicy} can decide it, which
+ * for its role-to-action rules means access to all or none. Other plans are left to another
+ * planner, which requests them from Cerbos.
+ */
+public class LocalPolicyAccessPlanner implements AuditEventAccessPlanner {
+    private static final String RESOURCE_KIND =
+            CachingAuthorizationHandler.resourceKind(AuditEventEntity.class);
+
+    private final LocalCerbosPolicy policy;
+    private final AuditEventAccessPlanner delegate;
+
+    /**
+     * Wraps an AuditEventAccessPlanner.
+     *
+     * @param policy   policy evaluated in process
+     * @param delegate planner making the plans the policy cannot make
+     */
+    public LocalPolicyAccessPlanner(LocalCerbosPolicy policy, AuditEventAccessPlanner delegate) {
+        this.policy = policy;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public AuditEventAccessFilter plan(String action) {
+        Authentication authentication = PrincipalRoles.authentication();
+        if (authentication == null) {
+            return delegate.plan(action);
+        }
+
+        return policy.isAllowed(RESOURCE_KIND, action, PrincipalRoles.of(authentication))
+                .map(
+                        allowed ->
+                                allowed
+                                        ? AuditEventAccessFilter.ALLOW_ALL
+                                        : AuditEventAccessFilter.DENY_ALL)
+                .orElseGet(() -> delegate.plan(action));
+    }
+
+    @Override
+    public Optional<UUID> tenantId() {
+        return delegate.tenantId();
+    }
+}
@@ -0,0 +1,62 @@
+package io.nuvalence.platform.audit.service.config;
+
+import io.nuvalence.auth.access.AuthorizationHandler;
+import org.springframework.security.core.Authentication;
+
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Makes the decisions a {@link LocalCerbosPolicy} can make in process, and leaves the others to
+ * another AuthorizationHandler, which requests them from Cerbos.
+ */
+public class LocalPolicyAuthorizationHandler implements AuthorizationHandler {
+    private final LocalCerbosPolicy policy;
+    private final AuthorizationHandler delegate;
+
+    /**
+     * Wraps an AuthorizationHandler.
+     *
+     * @param policy   policy evaluated in process
+     * @param delegate handler making the decisions the policy cannot make
+     */
+    public LocalPolicyAuthorizationHandler(
+            LocalCerbosPolicy policy, AuthorizationHandler delegate) {
+        this.policy = policy;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isAllowed(String action, Class<?> resourceClass) {
+        return decide(
+                CachingAuthorizationHandler.resourceKind(resourceClass),
+                action,
+                () -> delegate.isAllowed(action, resourceClass));
+    }
+
+    @Override
+    public boolean isAllowed(String action, String resourceType) {
+        return decide(resourceType, action, () -> delegate.isAllowed(action, resourceType));
+    }
+
+    /**
+     * Rules evaluated in process have no conditions, so their decisions are the same for every
+     * instance of a kind of resource.
+     */
+    @Override
+    public boolean isAllowedForInstance(String action, Object resource) {
+        return decide(
+                CachingAuthorizationHandler.resourceKind(resource.getClass()),
+                action,
+                () -> delegate.isAllowedForInstance(action, resource));
+    }
+
+    private boolean decide(String kind, String action, BooleanSupplier remote) {
+        Authentication authentication = PrincipalRoles.authentication();
+        Optional<Boolean> decision =
+                authentication == null
+                        ? Optional.empty()
+                        : policy.isAllowed(kind, action, PrincipalRoles.of(authentication));
+        return decision.orElseGet(remote::getAsBoolean);
+    }
+}
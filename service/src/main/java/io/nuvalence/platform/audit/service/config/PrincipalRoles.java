@@ -0,0 +1,92 @@
+package io.nuvalence.platform.audit.service.config;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Roles and attributes of the current principal, as authorization decisions are made on them.
+ */
+final class PrincipalRoles {
+    private static final String TENANT_ID = "tenantId";
+
+    /**
+     * Properties of the authentication token which are passed to Cerbos as principal attributes,
+     * as the token filter's user tokens carry them.
+     */
+    static final List<String> ATTRIBUTES =
+            List.of(TENANT_ID, "userType", "applicationUserId", "providerUserId");
+
+    private PrincipalRoles() {}
+
+    /**
+     * Returns the current authentication, if it is authenticated.
+     *
+     * @return authentication, or null
+     */
+    static Authentication authentication() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication;
+    }
+
+    /**
+     * Returns the roles of an authentication, in a sorted set which is equal for equal roles.
+     *
+     * @param authentication authentication
+     * @return immutable set of roles
+     */
+    static Set<String> of(Authentication authentication) {
+        Set<String> roles = new TreeSet<>();
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            roles.add(authority.getAuthority());
+        }
+        return Collections.unmodifiableSet(roles);
+    }
+
+    /**
+     * Returns the principal attributes of an authentication: those of {@link #ATTRIBUTES} it has
+     * a value for, in a sorted map which is equal for equal attributes.
+     *
+     * @param authentication authentication
+     * @return immutable map of attribute names to values
+     */
+    static Map<String, String> attributes(Authentication authentication) {
+        BeanWrapper token = PropertyAccessorFactory.forBeanPropertyAccess(authentication);
+        Map<String, String> attributes = new TreeMap<>();
+        for (String attribute : ATTRIBUTES) {
+            if (token.isReadableProperty(attribute)) {
+                Object value = token.getPropertyValue(attribute);
+                if (value != null) {
+                    attributes.put(attribute, value.toString());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Returns the tenant of an authentication, from its <code>tenantId</code> attribute.
+     *
+     * @param authentication authentication
+     * @return ID of the tenant, or empty if it has none or it is not a UUID
+     */
+    static Optional<UUID> tenantId(Authentication authentication) {
+        String tenantId = attributes(authentication).get(TENANT_ID);
+        try {
+            return Optional.ofNullable(tenantId).map(UUID::fromString);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
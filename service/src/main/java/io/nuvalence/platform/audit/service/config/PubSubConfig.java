@@ -6,11 +6,14 @@ import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAd
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
 import io.nuvalence.platform.audit.service.service.PubSubService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.annotation.Gateway;
+import org.springframework.integration.annotation.GatewayHeader;
 import org.springframework.integration.annotation.MessagingGateway;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
@@ -26,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 /**
  * Configures PubSub IO.
  */
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class PubSubConfig {
@@ -37,6 +41,15 @@ public class PubSubConfig {
     @Value("${spring.cloud.gcp.pubsub.subscriber.fully-qualified-name}")
     private String subscription;
 
+    @Value("${ingest.batch.enabled:false}")
+    private boolean batchIngestEnabled;
+
+    @Value("${ingest.lanes.count:0}")
+    private int consumerLaneCount;
+
+    @Value("${publish.async:false}")
+    private boolean publishAsync;
+
     /**
      * Creates messaging channel for messages retrieved from PubSub.
      *
@@ -49,6 +62,8 @@ public class PubSubConfig {
 
     /**
      * Creates an adapter that listens for PubSub messages and sends them to a spring channel.
+     * Messages are acked manually when batched ingest or consumer lanes are enabled, since they
+     * may only be acked once they are committed rather than when the handler returns.
      *
      * @param inputChannel   Channel for listener to write to
      * @param pubSubTemplate PubSub Message Template
@@ -66,7 +81,8 @@ public class PubSubConfig {
         PubSubInboundChannelAdapter adapter =
                 new PubSubInboundChannelAdapter(pubSubTemplate, subscription);
         adapter.setOutputChannel(inputChannel);
-        adapter.setAckMode(AckMode.AUTO_ACK);
+        adapter.setAckMode(
+                batchIngestEnabled || consumerLaneCount > 0 ? AckMode.MANUAL : AckMode.AUTO_ACK);
         return adapter;
     }
 
@@ -82,7 +98,10 @@ public class PubSubConfig {
     }
 
     /**
-     * Creates an outbound adapter to push messages to PubSub.
+     * Creates an outbound adapter to push messages to PubSub. In async mode the gateway returns
+     * as soon as the message is queued by the (batching) publisher, and publish failures are
+     * handed to {@link PubSubService#handlePublishFailure} by callback; otherwise the gateway
+     * blocks until the publish is confirmed and failures are thrown to the caller.
      *
      * @param pubSubTemplate PubSub Message Template.
      * @return Message Handler
@@ -93,8 +112,16 @@ public class PubSubConfig {
             havingValue = "true",
             matchIfMissing = true)
     @ServiceActivator(inputChannel = "pubSubOutputChannel")
-    public MessageHandler messageSender(PubSubTemplate pubSubTemplate) {
-        return new PubSubMessageHandler(pubSubTemplate, topic);
+    public PubSubMessageHandler messageSender(PubSubTemplate pubSubTemplate) {
+        PubSubMessageHandler handler = new PubSubMessageHandler(pubSubTemplate, topic);
+        handler.setSync(!publishAsync);
+        if (publishAsync) {
+            handler.setSuccessCallback(
+                    (ackId, message) -> log.debug("PubSub message published - {}", ackId));
+            handler.setFailureCallback(
+                    (cause, message) -> pubSubService.handlePublishFailure(message, cause));
+        }
+        return handler;
     }
 
     /**
@@ -112,10 +139,12 @@ public class PubSubConfig {
         return new MessageHandler() {
             @Override
             public void handleMessage(Message<?> message) throws MessagingException {
-                String payload = (String) message.getPayload();
+                byte[] payload =
+                        message.getPayload() instanceof byte[] bytes
+                                ? bytes
+                                : ((String) message.getPayload()).getBytes(StandardCharsets.UTF_8);
                 Message<byte[]> serializedMessage =
-                        MessageBuilder.createMessage(
-                                payload.getBytes(StandardCharsets.UTF_8), message.getHeaders());
+                        MessageBuilder.createMessage(payload, message.getHeaders());
                 inputChannel.send(serializedMessage);
             }
         };
@@ -126,6 +155,30 @@ public class PubSubConfig {
      */
     @MessagingGateway(defaultRequestChannel = "pubSubOutputChannel")
     public interface PubSubOutboundGateway {
+        /**
+         * Header (PubSub attribute) marking a message whose payload is an array of audit events.
+         */
+        String BATCH_HEADER = "audit-batch";
+
+        /**
+         * Header (PubSub attribute) carrying the payload format; JSON is assumed when absent.
+         */
+        String CONTENT_TYPE_HEADER = "audit-content-type";
+
+        /**
+         * Content type of payloads encoded by {@link
+         * io.nuvalence.platform.audit.service.mapper.AuditEventProtobufCodec}.
+         */
+        String PROTOBUF_CONTENT_TYPE = "application/x-protobuf";
+
         void sendToPubSub(String data) throws IOException;
+
+        @Gateway(headers = @GatewayHeader(name = BATCH_HEADER, value = "true"))
+        void sendBatchToPubSub(String data) throws IOException;
+
+        @Gateway(
+                headers =
+                        @GatewayHeader(name = CONTENT_TYPE_HEADER, value = PROTOBUF_CONTENT_TYPE))
+        void sendProtobufToPubSub(byte[] data) throws IOException;
     }
 }
@@ -56,7 +56,8 @@ public class WebSecurityConfig {
     @Value("${auth.token-filter.self-signed.public-key}")
     private String selfSignPublicKey;
 
-    private final String namespace = "as";
+    /** Namespace of this service's application roles. */
+    static final String NAMESPACE = "as";
 
     /**
      * Allows unauthenticated access to API docs.
@@ -90,11 +91,11 @@ public class WebSecurityConfig {
                 .addFilterAfter(new LoggingContextFilter(), BasicAuthenticationFilter.class)
                 .addFilterAfter(
                         new TokenFilter(
-                                new FirebaseAuthenticationProvider(gcpProjectId, namespace),
+                                new FirebaseAuthenticationProvider(gcpProjectId, NAMESPACE),
                                 new SelfSignedTokenAuthenticationProvider(
                                         selfSignIssuer,
                                         RsaKeyUtility.getPublicKeyFromString(selfSignPublicKey),
-                                        namespace)),
+                                        NAMESPACE)),
                         LoggingContextFilter.class)
                 .build();
 
@@ -1,23 +1,45 @@
 package io.nuvalence.platform.audit.service.controllers;
 
 import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.error.ApiException;
 import io.nuvalence.platform.audit.service.generated.controllers.AuditEventsApiDelegate;
+import io.nuvalence.platform.audit.service.generated.models.AuditEvent;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventBatchItem;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventBatchRequest;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventBatchResponse;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventBatchResult;
 import io.nuvalence.platform.audit.service.generated.models.AuditEventId;
 import io.nuvalence.platform.audit.service.generated.models.AuditEventRequest;
 import io.nuvalence.platform.audit.service.generated.models.AuditEventsPage;
+import io.nuvalence.platform.audit.service.generated.models.PagingMetadata;
 import io.nuvalence.platform.audit.service.mapper.AuditEventMapper;
 import io.nuvalence.platform.audit.service.mapper.PagingMetadataMapper;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import io.nuvalence.platform.audit.service.service.AuditEventCursor;
+import io.nuvalence.platform.audit.service.service.AuditEventFields;
+import io.nuvalence.platform.audit.service.service.AuditEventQueryCache;
 import io.nuvalence.platform.audit.service.service.AuditEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Controller layer for audit service.
@@ -27,12 +49,20 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class AuditEventApiDelegateImpl implements AuditEventsApiDelegate {
     private final AuditEventService auditEventService;
+    private final AuditEventQueryCache queryCache;
 
     private final AuthorizationHandler authorizationHandler;
+    private final AuditEventAccessPlanner accessPlanner;
 
     private final PagingMetadataMapper pagingMetadataMapper;
     private final AuditEventMapper auditEventMapper;
 
+    @Value("${publish.async:false}")
+    private boolean publishAsync;
+
+    @Value("${publish.max-message-bytes:9000000}")
+    private int maxMessageBytes;
+
     @Override
     public ResponseEntity<AuditEventsPage> getEvents(
             String businessObjectType,
@@ -42,23 +72,352 @@ public class AuditEventApiDelegateImpl implements AuditEventsApiDelegate {
             OffsetDateTime startTime,
             OffsetDateTime endTime,
             Integer pageNumber,
-            Integer pageSize) {
-        if (!authorizationHandler.isAllowed("view", AuditEventEntity.class)) {
+            Integer pageSize,
+            String paging,
+            String cursor,
+            String count,
+            String fields,
+            String ifNoneMatch) {
+        // events the principal may not view are left out by the queries themselves
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
             throw new AccessDeniedException("You do not have permission to view this resource.");
         }
 
-        var events =
-                auditEventService.findAuditEvents(
+        // unrequested properties are left out of the response, see SparseFieldsetAdvice
+        var eventFields = AuditEventFields.parse(fields);
+
+        // read before the page, so an event added meanwhile changes the next ETag at the latest
+        var version =
+                queryCache.get(
                         businessObjectType,
                         businessObjectId,
+                        query("version"),
+                        () ->
+                                auditEventService.findAuditEventsVersion(
+                                        businessObjectType, businessObjectId));
+        var eTag =
+                AuditEventsETag.of(
+                        version,
+                        query(
+                                paging,
+                                cursor,
+                                count,
+                                startTime,
+                                endTime,
+                                pageNumber,
+                                pageSize,
+                                sortOrder,
+                                sortBy,
+                                eventFields,
+                                access));
+        if (AuditEventsETag.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        if (cursor != null || "cursor".equals(paging)) {
+            var slice =
+                    queryCache.get(
+                            businessObjectType,
+                            businessObjectId,
+                            query(
+                                    "cursor",
+                                    startTime,
+                                    endTime,
+                                    cursor,
+                                    pageSize,
+                                    sortOrder,
+                                    sortBy,
+                                    eventFields,
+                                    access),
+                            () ->
+                                    auditEventService.findAuditEventsAfter(
+                                            businessObjectType,
+                                            businessObjectId,
+                                            startTime,
+                                            endTime,
+                                            cursor,
+                                            pageSize,
+                                            sortOrder,
+                                            sortBy,
+                                            eventFields,
+                                            access));
+            var totalCount =
+                    totalCount(
+                            count,
+                            businessObjectType,
+                            businessObjectId,
+                            startTime,
+                            endTime,
+                            access);
+            // the sort order has been validated by the query
+            var direction = Sort.Direction.fromString(sortOrder);
+            var query =
+                    AuditEventCursor.businessObjectQuery(
+                            businessObjectType, businessObjectId, startTime, endTime);
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .body(
+                            new AuditEventsPage()
+                                    .events(auditEventMapper.fromEntities(slice.getContent()))
+                                    .pagingMetadata(
+                                            pagingMetadataMapper.toPagingMetadata(
+                                                    slice,
+                                                    totalCount,
+                                                    event ->
+                                                            AuditEventCursor.of(
+                                                                            event,
+                                                                            direction,
+                                                                            query)
+                                                                    .encode())));
+        }
+
+        // offset pages keep their exact totalCount unless another count mode is asked for
+        if (count == null || "exact".equals(count)) {
+            var events =
+                    queryCache.get(
+                            businessObjectType,
+                            businessObjectId,
+                            query(
+                                    "page",
+                                    startTime,
+                                    endTime,
+                                    pageNumber,
+                                    pageSize,
+                                    sortOrder,
+                                    sortBy,
+                                    eventFields,
+                                    access),
+                            () ->
+                                    auditEventService.findAuditEvents(
+                                            businessObjectType,
+                                            businessObjectId,
+                                            startTime,
+                                            endTime,
+                                            pageNumber,
+                                            pageSize,
+                                            sortOrder,
+                                            sortBy,
+                                            eventFields,
+                                            access));
+
+            return ResponseEntity.ok().eTag(eTag).body(this.createAuditEventsPage(events));
+        }
+
+        var slice =
+                queryCache.get(
+                        businessObjectType,
+                        businessObjectId,
+                        query(
+                                "slice",
+                                startTime,
+                                endTime,
+                                pageNumber,
+                                pageSize,
+                                sortOrder,
+                                sortBy,
+                                eventFields,
+                                access),
+                        () ->
+                                auditEventService.findAuditEventSlice(
+                                        businessObjectType,
+                                        businessObjectId,
+                                        startTime,
+                                        endTime,
+                                        pageNumber,
+                                        pageSize,
+                                        sortOrder,
+                                        sortBy,
+                                        eventFields,
+                                        access));
+        var totalCount =
+                totalCount(
+                        count, businessObjectType, businessObjectId, startTime, endTime, access);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(
+                        new AuditEventsPage()
+                                .events(auditEventMapper.fromEntities(slice.getContent()))
+                                .pagingMetadata(
+                                        pagingMetadataMapper.toPagingMetadata(slice, totalCount)));
+    }
+
+    @Override
+    public ResponseEntity<AuditEvent> getEvent(
+            String businessObjectType, UUID businessObjectId, UUID eventId) {
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
+            throw new AccessDeniedException("You do not have permission to view this resource.");
+        }
+
+        var event =
+                auditEventService.findAuditEvent(
+                        businessObjectType, businessObjectId, eventId, access);
+        return ResponseEntity.ok(auditEventMapper.fromEntity(event));
+    }
+
+    @Override
+    public ResponseEntity<AuditEventsPage> getRelatedEvents(
+            String businessObject,
+            String sortOrder,
+            String sortBy,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Integer pageNumber,
+            Integer pageSize,
+            String fields) {
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
+            throw new AccessDeniedException("You do not have permission to view this resource.");
+        }
+
+        // spans business objects, so it is not cached per business object like getEvents
+        var slice =
+                auditEventService.findRelatedAuditEvents(
+                        businessObject,
                         startTime,
                         endTime,
                         pageNumber,
                         pageSize,
                         sortOrder,
-                        sortBy);
+                        sortBy,
+                        AuditEventFields.parse(fields),
+                        access);
+        return ResponseEntity.ok(
+                new AuditEventsPage()
+                        .events(auditEventMapper.fromEntities(slice.getContent()))
+                        .pagingMetadata(pagingMetadataMapper.toPagingMetadata(slice, null)));
+    }
+
+    @Override
+    public ResponseEntity<AuditEventsPage> getEventsByRequestContext(
+            UUID userId,
+            UUID tenantId,
+            UUID requestId,
+            UUID traceId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String sortOrder,
+            Integer pageSize,
+            String cursor,
+            String fields) {
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
+            throw new AccessDeniedException("You do not have permission to view this resource.");
+        }
 
-        return ResponseEntity.ok(this.createAuditEventsPage(events));
+        var slice =
+                auditEventService.findAuditEventsByRequestContext(
+                        userId,
+                        tenantId,
+                        requestId,
+                        traceId,
+                        startTime,
+                        endTime,
+                        cursor,
+                        pageSize,
+                        sortOrder,
+                        AuditEventFields.parse(fields),
+                        access);
+        // the sort order has been validated by the query
+        var direction = Sort.Direction.fromString(sortOrder);
+        var query =
+                AuditEventCursor.requestContextQuery(
+                        userId, tenantId, requestId, traceId, startTime, endTime);
+        return ResponseEntity.ok(
+                new AuditEventsPage()
+                        .events(auditEventMapper.fromEntities(slice.getContent()))
+                        .pagingMetadata(
+                                pagingMetadataMapper.toPagingMetadata(
+                                        slice,
+                                        null,
+                                        event ->
+                                                AuditEventCursor.of(event, direction, query)
+                                                        .encode())));
+    }
+
+    @Override
+    public ResponseEntity<AuditEventsPage> searchEvents(
+            String q,
+            UUID tenantId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String sortBy,
+            Integer limit,
+            String fields) {
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
+            throw new AccessDeniedException("You do not have permission to view this resource.");
+        }
+        // searches are scoped to the tenant of the principal, whatever tenant is asked for
+        UUID principalTenantId =
+                accessPlanner
+                        .tenantId()
+                        .orElseThrow(
+                                () ->
+                                        new AccessDeniedException(
+                                                "Only users of a tenant can search audit events."));
+        if (tenantId != null && !tenantId.equals(principalTenantId)) {
+            throw new AccessDeniedException(
+                    "You do not have permission to search the events of another tenant.");
+        }
+
+        var events =
+                auditEventService.searchAuditEvents(
+                        q,
+                        principalTenantId,
+                        startTime,
+                        endTime,
+                        sortBy,
+                        limit,
+                        AuditEventFields.parse(fields),
+                        access);
+        return ResponseEntity.ok(
+                new AuditEventsPage()
+                        .events(auditEventMapper.fromEntities(events))
+                        .pagingMetadata(new PagingMetadata().pageNumber(0).pageSize(limit)));
+    }
+
+    private Long totalCount(
+            String count,
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            AuditEventAccessFilter access) {
+        // statistics cannot tell how many of the events the principal may view
+        if ("exact".equals(count) || "estimate".equals(count) && access.isConditional()) {
+            return queryCache.get(
+                    businessObjectType,
+                    businessObjectId,
+                    query("count", startTime, endTime, access),
+                    () ->
+                            auditEventService.countAuditEvents(
+                                    businessObjectType,
+                                    businessObjectId,
+                                    startTime,
+                                    endTime,
+                                    access));
+        }
+        if ("estimate".equals(count)) {
+            return auditEventService.estimateAuditEvents(
+                    businessObjectType, businessObjectId, startTime, endTime);
+        }
+        return null;
+    }
+
+    /**
+     * Normalizes query parameters into a cache key; equal instants given with different offsets
+     * are the same query.
+     */
+    private static List<Object> query(Object... parameters) {
+        return Arrays.stream(parameters)
+                .map(
+                        parameter ->
+                                parameter instanceof OffsetDateTime time
+                                        ? time.toInstant()
+                                        : parameter)
+                .toList();
     }
 
     @Override
@@ -74,10 +433,92 @@ public class AuditEventApiDelegateImpl implements AuditEventsApiDelegate {
                 businessObjectId);
 
         var eventBody = auditEventMapper.toEntity(businessObjectId, businessObjectType, body);
+        checkSize(eventBody);
         var event = auditEventService.addAuditEvent(eventBody);
         var eventId = new AuditEventId().eventId(event.getEventId());
 
-        return ResponseEntity.status(201).body(eventId);
+        return ResponseEntity.status(createdStatus()).body(eventId);
+    }
+
+    @Override
+    public ResponseEntity<AuditEventBatchResponse> postEvents(AuditEventBatchRequest body) {
+        if (!authorizationHandler.isAllowed("create", AuditEventEntity.class)) {
+            throw new AccessDeniedException("You do not have permission to create this resource.");
+        }
+
+        log.debug("Received bulk audit event request with {} events", body.getEvents().size());
+
+        List<AuditEventBatchResult> results = new ArrayList<>();
+        List<AuditEventEntity> entities = new ArrayList<>();
+        List<AuditEventBatchResult> accepted = new ArrayList<>();
+        for (int index = 0; index < body.getEvents().size(); index++) {
+            var result = new AuditEventBatchResult().index(index);
+            results.add(result);
+            try {
+                entities.add(toEntity(body.getEvents().get(index)));
+                accepted.add(result);
+            } catch (ApiException | IllegalArgumentException e) {
+                result.setErrorMessage(e.getMessage());
+            }
+        }
+
+        if (!entities.isEmpty()) {
+            var events = auditEventService.addAuditEvents(entities);
+            for (int i = 0; i < events.size(); i++) {
+                accepted.get(i).setEventId(events.get(i).getEventId());
+            }
+        }
+
+        // each result tells whether its item was created, so rejected items do not fail the rest
+        var status =
+                accepted.size() == results.size() ? createdStatus() : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(new AuditEventBatchResponse().results(results));
+    }
+
+    /**
+     * With async publishing, events are only queued for publication when the request completes.
+     */
+    private HttpStatus createdStatus() {
+        return publishAsync ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+    }
+
+    private AuditEventEntity toEntity(AuditEventBatchItem item) {
+        var entity =
+                auditEventMapper.toEntity(
+                        item.getBusinessObject().getId(),
+                        item.getBusinessObject().getType(),
+                        item.getEvent());
+        if (entity == null) {
+            throw ApiException.Builder.badRequest("The eventData type is required.");
+        }
+        checkSize(entity);
+        return entity;
+    }
+
+    /**
+     * Rejects an event which could not be published, since PubSub limits the size of a message.
+     * Payloads are measured before compression.
+     */
+    private void checkSize(AuditEventEntity entity) {
+        long size =
+                Stream.of(entity.getSummary(), entity.getSystemOfRecord())
+                        .mapToLong(AuditEventApiDelegateImpl::utf8Length)
+                        .sum();
+        if (entity instanceof ActivityEventEntity activity) {
+            size += utf8Length(activity.getData());
+        } else if (entity instanceof StateChangeEventEntity stateChange) {
+            size += utf8Length(stateChange.getNewState()) + utf8Length(stateChange.getOldState());
+        }
+
+        if (size > maxMessageBytes) {
+            throw ApiException.Builder.badRequest(
+                    String.format(
+                            "The event exceeds the maximum size of %d bytes.", maxMessageBytes));
+        }
+    }
+
+    private static long utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
     }
 
     private AuditEventsPage createAuditEventsPage(Page<AuditEventEntity> page) {
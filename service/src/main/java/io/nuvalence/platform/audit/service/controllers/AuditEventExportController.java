@@ -0,0 +1,110 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.mapper.AuditEventMapper;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import io.nuvalence.platform.audit.service.service.AuditEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Streams the audit history of a business object as newline delimited JSON, one audit event per
+ * line. Events are written as they are read from the database, so exports of any size use a
+ * constant amount of memory. Not part of the generated API, since the generated interface can
+ * only return fully materialized bodies.
+ */
+@Slf4j
+@RestController
+@RequestMapping("${openapi.nuvalenceAuditService.base-path:/api/v1}")
+@RequiredArgsConstructor
+public class AuditEventExportController {
+    private final AuditEventService auditEventService;
+    private final AuditEventAccessPlanner accessPlanner;
+    private final AuditEventMapper auditEventMapper;
+    private final ObjectMapper mapper;
+
+    /**
+     * Exports the audit events of a business object in chronological order.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Start time (inclusive), or null.
+     * @param endTime            End time (exclusive), or null.
+     * @return streamed NDJSON response
+     */
+    @GetMapping(
+            value = "/audit-events/{businessObjectType}/{id}/export",
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEvents(
+            @PathVariable("businessObjectType") String businessObjectType,
+            @PathVariable("id") UUID businessObjectId,
+            @RequestParam(value = "startTime", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime startTime,
+            @RequestParam(value = "endTime", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime endTime) {
+        var access = accessPlanner.plan("view");
+        if (access.isDenied()) {
+            throw new AccessDeniedException("You do not have permission to view this resource.");
+        }
+        // once streaming starts the status can no longer change, so validate up front
+        AuditEventService.checkTimeRange(startTime, endTime);
+
+        StreamingResponseBody body =
+                outputStream -> {
+                    var out = new BufferedOutputStream(outputStream);
+                    try {
+                        auditEventService.exportAuditEvents(
+                                businessObjectType,
+                                businessObjectId,
+                                startTime,
+                                endTime,
+                                access,
+                                event -> writeLine(out, event));
+                    } catch (UncheckedIOException e) {
+                        log.warn("Audit event export aborted", e);
+                        throw e.getCause();
+                    }
+                    out.flush();
+                };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment()
+                                .filename(businessObjectType + "-" + businessObjectId + ".ndjson")
+                                .build()
+                                .toString())
+                .body(body);
+    }
+
+    private void writeLine(BufferedOutputStream out, AuditEventEntity event) {
+        try {
+            out.write(mapper.writeValueAsBytes(auditEventMapper.fromEntity(event)));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
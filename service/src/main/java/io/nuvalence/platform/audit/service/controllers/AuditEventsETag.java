@@ -0,0 +1,57 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import io.nuvalence.platform.audit.service.repository.AuditEventsVersion;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong ETags of pages of audit events, derived from the version of the business object's events
+ * and the query, so a page's ETag is known without querying or serializing the page.
+ */
+final class AuditEventsETag {
+    private AuditEventsETag() {}
+
+    /**
+     * Creates the ETag of a page.
+     *
+     * @param version version of the business object's events
+     * @param query   normalized query parameters of the page
+     * @return quoted ETag
+     */
+    static String of(AuditEventsVersion version, List<?> query) {
+        String validator =
+                version.count()
+                        + ":"
+                        + (version.latest() == null ? "" : version.latest().toInstant())
+                        + ":"
+                        + query;
+        return '"' + DigestUtils.md5DigestAsHex(validator.getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    /**
+     * Whether an If-None-Match header matches an ETag, using the weak comparison RFC 9110
+     * requires for If-None-Match.
+     *
+     * @param ifNoneMatch header value, or null
+     * @param eTag        quoted ETag
+     * @return true if the resource is unchanged
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventsPage;
+import io.nuvalence.platform.audit.service.service.AuditEventFields;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Leaves the properties of audit events which were not requested through the fields query
+ * parameter out of a page of events, rather than rendering them as null.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SparseFieldsetAdvice implements ResponseBodyAdvice<Object> {
+    static final String FIELDS_PARAMETER = "fields";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(
+            MethodParameter returnType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return MappingJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+            Object body,
+            MethodParameter returnType,
+            MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (!(body instanceof AuditEventsPage)
+                || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+
+        String fields = servletRequest.getServletRequest().getParameter(FIELDS_PARAMETER);
+        AuditEventFields eventFields = AuditEventFields.parse(fields);
+        if (eventFields.isAll()) {
+            return body;
+        }
+
+        ObjectNode page = objectMapper.valueToTree(body);
+        for (JsonNode event : page.path("events")) {
+            retain((ObjectNode) event, eventFields);
+        }
+        return page;
+    }
+
+    static void retain(ObjectNode event, AuditEventFields fields) {
+        JsonNode eventData = event.get(AuditEventFields.EVENT_DATA);
+        event.retain(fields.names());
+        if (!fields.includesPayload()
+                && fields.includes(AuditEventFields.ACTIVITY_TYPE)
+                && eventData instanceof ObjectNode data) {
+            // activityType is rendered as the event data without its payload
+            data.remove(AuditEventFields.PAYLOAD_PROPERTIES);
+            event.set(AuditEventFields.EVENT_DATA, data);
+        }
+    }
+}
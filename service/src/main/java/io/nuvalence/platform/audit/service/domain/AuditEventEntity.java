@@ -18,8 +18,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
+import org.hibernate.annotations.SQLInsert;
 
 import java.time.OffsetDateTime;
 import java.util.Set;
@@ -37,20 +36,17 @@ import java.util.UUID;
 @AccessResource("audit-event")
 public class AuditEventEntity {
     @Id
-    @Column(name = "id", length = 36, insertable = false, updatable = false, nullable = false)
+    @Column(name = "id", insertable = false, updatable = false, nullable = false)
     @GeneratedValue(strategy = GenerationType.UUID)
-    @JdbcTypeCode(SqlTypes.VARCHAR)
     private UUID eventId;
 
     @Column private String schema;
 
-    @Column(length = 32, nullable = false)
+    @Column(nullable = false)
     @Convert(converter = TypeEnumConverter.class)
     private TypeEnum type;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID businessObjectId;
+    @Column private UUID businessObjectId;
 
     @Column(length = 64)
     private String businessObjectType;
@@ -62,11 +58,20 @@ public class AuditEventEntity {
 
     @Column private String systemOfRecord;
 
+    // the partition key event_timestamp is copied from the event, see AuditEventPartitionManager
     @ElementCollection(targetClass = String.class)
     @CollectionTable(
             name = "audit_events_related_business_objects",
             joinColumns = @JoinColumn(name = "audit_event_id"))
     @Column(name = "related_business_object", nullable = false)
+    @SQLInsert(
+            sql =
+                    "INSERT INTO audit_events_related_business_objects"
+                            + " (audit_event_id, related_business_object, event_timestamp)"
+                            + " SELECT e.id, r.related_business_object, e.timestamp"
+                            + " FROM (SELECT CAST(? AS UUID) AS audit_event_id,"
+                            + " CAST(? AS VARCHAR(1024)) AS related_business_object) r"
+                            + " JOIN audit_events e ON e.id = r.audit_event_id")
     private Set<String> relatedBusinessObjects;
 
     @Embedded private RequestContext requestContext;
@@ -4,8 +4,6 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
 import java.util.UUID;
 
@@ -16,27 +14,15 @@ import java.util.UUID;
 @Getter
 @Setter
 public class RequestContext {
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID userId;
+    @Column private UUID userId;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID tenantId;
+    @Column private UUID tenantId;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID originatorId;
+    @Column private UUID originatorId;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID requestId;
+    @Column private UUID requestId;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID traceId;
+    @Column private UUID traceId;
 
-    @Column
-    @JdbcTypeCode(SqlTypes.VARCHAR)
-    private UUID spanId;
+    @Column private UUID spanId;
 }
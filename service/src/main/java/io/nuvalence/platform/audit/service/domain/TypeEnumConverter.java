@@ -5,24 +5,24 @@ import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 
 /**
- * Audit event entity.
+ * Maps audit event types to their compact database code.
  */
 @Converter(autoApply = true)
-public class TypeEnumConverter implements AttributeConverter<TypeEnum, String> {
+public class TypeEnumConverter implements AttributeConverter<TypeEnum, Short> {
 
     @Override
-    public String convertToDatabaseColumn(TypeEnum attribute) {
+    public Short convertToDatabaseColumn(TypeEnum attribute) {
         if (attribute == null) {
             return null;
         }
-        return attribute.getValue();
+        return attribute.getCode();
     }
 
     @Override
-    public TypeEnum convertToEntityAttribute(String dbData) {
+    public TypeEnum convertToEntityAttribute(Short dbData) {
         if (dbData == null) {
             return null;
         }
-        return TypeEnum.fromValue(dbData);
+        return TypeEnum.fromCode(dbData);
     }
 }
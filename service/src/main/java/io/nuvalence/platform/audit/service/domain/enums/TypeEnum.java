@@ -7,14 +7,16 @@ import com.fasterxml.jackson.annotation.JsonValue;
  * Event data types.
  */
 public enum TypeEnum {
-    STATE_CHANGE_EVENT_DATA("StateChangeEventData"),
+    STATE_CHANGE_EVENT_DATA("StateChangeEventData", (short) 1),
 
-    ACTIVITY_EVENT_DATA("ActivityEventData");
+    ACTIVITY_EVENT_DATA("ActivityEventData", (short) 2);
 
     private final String value;
+    private final short code;
 
-    TypeEnum(String value) {
+    TypeEnum(String value, short code) {
         this.value = value;
+        this.code = code;
     }
 
     @JsonValue
@@ -22,6 +24,15 @@ public enum TypeEnum {
         return value;
     }
 
+    /**
+     * Compact code stored in the database; codes must never be reused or renumbered.
+     *
+     * @return type code
+     */
+    public short getCode() {
+        return code;
+    }
+
     @Override
     public String toString() {
         return String.valueOf(value);
@@ -41,4 +52,18 @@ public enum TypeEnum {
         }
         throw new IllegalArgumentException("Unexpected value '" + value + "'");
     }
+
+    /**
+     * Returns the TypeEnum stored as the given code.
+     * @param code the type code to be converted to an enum value
+     * @return an element from the enum
+     */
+    public static TypeEnum fromCode(short code) {
+        for (TypeEnum typeEnum : TypeEnum.values()) {
+            if (typeEnum.code == code) {
+                return typeEnum;
+            }
+        }
+        throw new IllegalArgumentException("Unexpected code '" + code + "'");
+    }
 }
@@ -9,6 +9,7 @@ import io.nuvalence.platform.audit.service.generated.models.ActivityEventData;
 import io.nuvalence.platform.audit.service.generated.models.AuditEvent;
 import io.nuvalence.platform.audit.service.generated.models.AuditEventRequest;
 import io.nuvalence.platform.audit.service.generated.models.StateChangeEventData;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -128,7 +129,7 @@ public interface AuditEventMapper {
         activityEventData.setSchema(model.getEventData().getSchema());
         activityEventData.setType(model.getEventData().getType());
         activityEventData.setActivityType(entity.getActivityType());
-        activityEventData.setData(entity.getData());
+        activityEventData.setData(PayloadCompressor.decompress(entity.getData()));
         model.setEventData(activityEventData);
     }
 
@@ -155,8 +156,8 @@ public interface AuditEventMapper {
         stateChangeEventData.setSchema(model.getEventData().getSchema());
         stateChangeEventData.setType(model.getEventData().getType());
         stateChangeEventData.setActivityType(entity.getActivityType());
-        stateChangeEventData.setOldState(entity.getOldState());
-        stateChangeEventData.setNewState(entity.getNewState());
+        stateChangeEventData.setOldState(PayloadCompressor.decompress(entity.getOldState()));
+        stateChangeEventData.setNewState(PayloadCompressor.decompress(entity.getNewState()));
         model.setEventData(stateChangeEventData);
     }
 
@@ -0,0 +1,311 @@
+package io.nuvalence.platform.audit.service.mapper;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes audit events to and from a versioned protobuf envelope, the compact alternative to the
+ * JSON PubSub payload. The wire format is equivalent to the following schema; fields may only be
+ * added, never renumbered, and unknown fields are skipped when decoding.
+ *
+ * <pre>
+ * message AuditEventEnvelope {
+ *   uint32 version = 1;
+ *   repeated AuditEvent events = 2;
+ * }
+ *
+ * message AuditEvent {
+ *   Kind kind = 1;                     // 1 = activity, 2 = state change
+ *   bytes event_id = 2;                // 16 byte UUID
+ *   string schema = 3;
+ *   string type = 4;
+ *   bytes business_object_id = 5;      // 16 byte UUID
+ *   string business_object_type = 6;
+ *   int64 timestamp_seconds = 7;
+ *   int32 timestamp_nanos = 8;
+ *   sint32 timestamp_offset_seconds = 9;
+ *   string summary = 10;
+ *   string system_of_record = 11;
+ *   repeated string related_business_objects = 12;
+ *   string activity_type = 13;
+ *   string data = 14;
+ *   string new_state = 15;
+ *   string old_state = 16;
+ *   RequestContext request_context = 17;
+ *   bytes data_gzip = 18;              // set instead of data, new_state or old_state when
+ *   bytes new_state_gzip = 19;         // the payload was compressed by PayloadCompressor
+ *   bytes old_state_gzip = 20;
+ * }
+ *
+ * message RequestContext {             // all 16 byte UUIDs
+ *   bytes user_id = 1;
+ *   bytes tenant_id = 2;
+ *   bytes originator_id = 3;
+ *   bytes request_id = 4;
+ *   bytes trace_id = 5;
+ *   bytes span_id = 6;
+ * }
+ * </pre>
+ */
+@Component
+public class AuditEventProtobufCodec {
+    /**
+     * Version written to, and accepted in, the envelope.
+     */
+    public static final int VERSION = 1;
+
+    private static final int KIND_ACTIVITY = 1;
+    private static final int KIND_STATE_CHANGE = 2;
+
+    /**
+     * Encodes events into a single envelope.
+     *
+     * @param entities audit events
+     * @return serialized envelope
+     * @throws IOException if the envelope could not be written
+     */
+    public byte[] encode(List<AuditEventEntity> entities) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeUInt32(1, VERSION);
+        for (AuditEventEntity entity : entities) {
+            output.writeByteArray(2, encodeEvent(entity));
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the events of an envelope.
+     *
+     * @param payload serialized envelope
+     * @return audit events
+     * @throws IOException if the envelope is malformed, of an unsupported version, or holds an
+     *     event of a missing or unknown kind
+     */
+    public List<AuditEventEntity> decode(byte[] payload) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(payload);
+        int version = 0;
+        List<AuditEventEntity> entities = new ArrayList<>();
+
+        try {
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> version = input.readUInt32();
+                    case 2 -> entities.add(decodeEvent(input.readBytes()));
+                    default -> input.skipField(tag);
+                }
+            }
+        } catch (ClassCastException | IllegalArgumentException ex) {
+            // event data fields which do not match the event kind, or an unknown event type
+            throw new IOException("Malformed audit event envelope", ex);
+        }
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported audit event envelope version: " + version);
+        }
+        return entities;
+    }
+
+    private static byte[] encodeEvent(AuditEventEntity entity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+
+        if (entity instanceof ActivityEventEntity activity) {
+            output.writeEnum(1, KIND_ACTIVITY);
+            writePayload(output, 14, 18, activity.getData());
+        } else if (entity instanceof StateChangeEventEntity stateChange) {
+            output.writeEnum(1, KIND_STATE_CHANGE);
+            writePayload(output, 15, 19, stateChange.getNewState());
+            writePayload(output, 16, 20, stateChange.getOldState());
+        }
+        writeUuid(output, 2, entity.getEventId());
+        writeString(output, 3, entity.getSchema());
+        if (entity.getType() != null) {
+            output.writeString(4, entity.getType().getValue());
+        }
+        writeUuid(output, 5, entity.getBusinessObjectId());
+        writeString(output, 6, entity.getBusinessObjectType());
+        if (entity.getTimestamp() != null) {
+            Instant instant = entity.getTimestamp().toInstant();
+            output.writeInt64(7, instant.getEpochSecond());
+            output.writeInt32(8, instant.getNano());
+            output.writeSInt32(9, entity.getTimestamp().getOffset().getTotalSeconds());
+        }
+        writeString(output, 10, entity.getSummary());
+        writeString(output, 11, entity.getSystemOfRecord());
+        if (entity.getRelatedBusinessObjects() != null) {
+            for (String related : entity.getRelatedBusinessObjects()) {
+                output.writeString(12, related);
+            }
+        }
+        writeString(output, 13, entity.getActivityType());
+        if (entity.getRequestContext() != null) {
+            output.writeByteArray(17, encodeRequestContext(entity.getRequestContext()));
+        }
+
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static AuditEventEntity decodeEvent(ByteString bytes) throws IOException {
+        CodedInputStream input = bytes.newCodedInput();
+        int kind = peekKind(bytes);
+        AuditEventEntity entity =
+                switch (kind) {
+                    case KIND_ACTIVITY -> new ActivityEventEntity();
+                    case KIND_STATE_CHANGE -> new StateChangeEventEntity();
+                    // an event of neither kind has no entity to be stored as
+                    default -> throw new IOException("Unknown audit event kind: " + kind);
+                };
+
+        long seconds = 0;
+        int nanos = 0;
+        int offsetSeconds = 0;
+        boolean hasTimestamp = false;
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 2 -> entity.setEventId(readUuid(input));
+                case 3 -> entity.setSchema(input.readString());
+                case 4 -> entity.setType(TypeEnum.fromValue(input.readString()));
+                case 5 -> entity.setBusinessObjectId(readUuid(input));
+                case 6 -> entity.setBusinessObjectType(input.readString());
+                case 7 -> {
+                    seconds = input.readInt64();
+                    hasTimestamp = true;
+                }
+                case 8 -> nanos = input.readInt32();
+                case 9 -> offsetSeconds = input.readSInt32();
+                case 10 -> entity.setSummary(input.readString());
+                case 11 -> entity.setSystemOfRecord(input.readString());
+                case 12 -> {
+                    if (entity.getRelatedBusinessObjects() == null) {
+                        entity.setRelatedBusinessObjects(new HashSet<>());
+                    }
+                    entity.getRelatedBusinessObjects().add(input.readString());
+                }
+                case 13 -> entity.setActivityType(input.readString());
+                case 14 -> ((ActivityEventEntity) entity).setData(input.readString());
+                case 15 -> ((StateChangeEventEntity) entity).setNewState(input.readString());
+                case 16 -> ((StateChangeEventEntity) entity).setOldState(input.readString());
+                case 17 -> entity.setRequestContext(decodeRequestContext(input.readBytes()));
+                case 18 -> ((ActivityEventEntity) entity).setData(readCompressed(input));
+                case 19 -> ((StateChangeEventEntity) entity).setNewState(readCompressed(input));
+                case 20 -> ((StateChangeEventEntity) entity).setOldState(readCompressed(input));
+                default -> input.skipField(tag);
+            }
+        }
+
+        if (hasTimestamp) {
+            entity.setTimestamp(
+                    OffsetDateTime.ofInstant(
+                            Instant.ofEpochSecond(seconds, nanos),
+                            ZoneOffset.ofTotalSeconds(offsetSeconds)));
+        }
+        return entity;
+    }
+
+    private static int peekKind(ByteString bytes) throws IOException {
+        CodedInputStream input = bytes.newCodedInput();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (WireFormat.getTagFieldNumber(tag) == 1) {
+                return input.readEnum();
+            }
+            input.skipField(tag);
+        }
+        return 0;
+    }
+
+    private static byte[] encodeRequestContext(RequestContext requestContext)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        writeUuid(output, 1, requestContext.getUserId());
+        writeUuid(output, 2, requestContext.getTenantId());
+        writeUuid(output, 3, requestContext.getOriginatorId());
+        writeUuid(output, 4, requestContext.getRequestId());
+        writeUuid(output, 5, requestContext.getTraceId());
+        writeUuid(output, 6, requestContext.getSpanId());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RequestContext decodeRequestContext(ByteString bytes) throws IOException {
+        CodedInputStream input = bytes.newCodedInput();
+        RequestContext requestContext = new RequestContext();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> requestContext.setUserId(readUuid(input));
+                case 2 -> requestContext.setTenantId(readUuid(input));
+                case 3 -> requestContext.setOriginatorId(readUuid(input));
+                case 4 -> requestContext.setRequestId(readUuid(input));
+                case 5 -> requestContext.setTraceId(readUuid(input));
+                case 6 -> requestContext.setSpanId(readUuid(input));
+                default -> input.skipField(tag);
+            }
+        }
+        return requestContext;
+    }
+
+    private static void writeString(CodedOutputStream output, int field, String value)
+            throws IOException {
+        if (value != null) {
+            output.writeString(field, value);
+        }
+    }
+
+    private static void writePayload(
+            CodedOutputStream output, int field, int compressedField, String value)
+            throws IOException {
+        if (PayloadCompressor.isCompressed(value)) {
+            // raw gzip bytes, saving the base64 overhead of the stored form
+            output.writeByteArray(compressedField, PayloadCompressor.toCompressedBytes(value));
+        } else {
+            writeString(output, field, value);
+        }
+    }
+
+    private static String readCompressed(CodedInputStream input) throws IOException {
+        return PayloadCompressor.fromCompressedBytes(input.readByteArray());
+    }
+
+    private static void writeUuid(CodedOutputStream output, int field, UUID value)
+            throws IOException {
+        if (value != null) {
+            output.writeByteArray(
+                    field,
+                    ByteBuffer.allocate(16)
+                            .putLong(value.getMostSignificantBits())
+                            .putLong(value.getLeastSignificantBits())
+                            .array());
+        }
+    }
+
+    private static UUID readUuid(CodedInputStream input) throws IOException {
+        ByteBuffer buffer = input.readByteBuffer();
+        if (buffer.remaining() != 16) {
+            throw new IOException("Invalid UUID length: " + buffer.remaining());
+        }
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -6,6 +6,7 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 import org.springframework.util.MultiValueMapAdapter;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -16,6 +17,8 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -46,12 +49,54 @@ public class PagingMetadataMapper {
      * @return paging metadata
      */
     public <T> PagingMetadata toPagingMetadata(Page<T> page) {
-        var nextPageUri = buildNextPageUri(page.nextPageable());
+        return toPagingMetadata(page, page.getTotalElements());
+    }
+
+    /**
+     * Converts a slice from the repository, which was fetched without a count, to api paging
+     * metadata.
+     *
+     * @param slice      slice object
+     * @param totalCount total number of items across all pages, possibly estimated, or null
+     * @param <T>        slice item type
+     * @return paging metadata
+     */
+    public <T> PagingMetadata toPagingMetadata(Slice<T> slice, Long totalCount) {
+        var nextPageUri = buildNextPageUri(slice.nextPageable());
         var nextPage = nextPageUri == null ? null : nextPageUri.toString();
         return new PagingMetadata()
-                .pageNumber(page.getNumber())
-                .pageSize(page.getSize())
-                .totalCount(page.getTotalElements())
+                .pageNumber(slice.getNumber())
+                .pageSize(slice.getSize())
+                .totalCount(totalCount)
+                .nextPage(nextPage);
+    }
+
+    /**
+     * Converts a slice fetched by cursor to api paging metadata. The next page link carries the
+     * cursor of the last item in place of a page number.
+     *
+     * @param slice      slice object
+     * @param totalCount total number of items across all pages, possibly estimated, or null
+     * @param cursorOf   encodes the cursor positioned at an item
+     * @param <T>        slice item type
+     * @return paging metadata
+     */
+    public <T> PagingMetadata toPagingMetadata(
+            Slice<T> slice, Long totalCount, Function<T, String> cursorOf) {
+        String nextPage = null;
+        if (slice.hasNext()) {
+            var cursor = cursorOf.apply(slice.getContent().get(slice.getNumberOfElements() - 1));
+            nextPage =
+                    buildUri(
+                                    builder ->
+                                            builder.replaceQueryParam("pageNumber")
+                                                    .replaceQueryParam("cursor", cursor))
+                            .toString();
+        }
+        return new PagingMetadata()
+                .pageNumber(slice.getNumber())
+                .pageSize(slice.getSize())
+                .totalCount(totalCount)
                 .nextPage(nextPage);
     }
 
@@ -63,23 +108,34 @@ public class PagingMetadataMapper {
      */
     private URI buildNextPageUri(Pageable nextPage) {
         if (nextPage.isPaged()) {
-            var request = requestSupplier.get();
-
-            var queryParams =
-                    request.getParameterMap().entrySet().stream()
-                            .collect(
-                                    Collectors.toMap(
-                                            Map.Entry::getKey, e -> Arrays.asList(e.getValue())));
-
-            return UriComponentsBuilder.fromUriString(request.getRequestURI())
-                    .host(request.getServerName())
-                    .scheme(request.getScheme())
-                    .queryParams(new MultiValueMapAdapter<>(queryParams))
-                    .replaceQueryParam("pageNumber", nextPage.getPageNumber())
-                    .build()
-                    .toUri();
+            return buildUri(
+                    builder -> builder.replaceQueryParam("pageNumber", nextPage.getPageNumber()));
         } else {
             return null;
         }
     }
+
+    /**
+     * Builds a uri for the current request, with adjusted paging parameters.
+     *
+     * @param pageParams adjusts the paging query parameters
+     * @return URI for the current request
+     */
+    private URI buildUri(Consumer<UriComponentsBuilder> pageParams) {
+        var request = requestSupplier.get();
+
+        var queryParams =
+                request.getParameterMap().entrySet().stream()
+                        .collect(
+                                Collectors.toMap(
+                                        Map.Entry::getKey, e -> Arrays.asList(e.getValue())));
+
+        var builder =
+                UriComponentsBuilder.fromUriString(request.getRequestURI())
+                        .host(request.getServerName())
+                        .scheme(request.getScheme())
+                        .queryParams(new MultiValueMapAdapter<>(queryParams));
+        pageParams.accept(builder);
+        return builder.build().toUri();
+    }
 }
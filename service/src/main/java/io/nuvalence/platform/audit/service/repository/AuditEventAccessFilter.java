@@ -0,0 +1,220 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import com.google.protobuf.Value;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression.Operand;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity_;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.RequestContext_;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Restricts queries to the audit events a principal may access, as planned by Cerbos for the
+ * <code>audit-event</code> resource, so authorization costs one predicate rather than a check of
+ * every event read.
+ *
+ * <p>The condition of a plan is translated into a JPA Specification when the filter is created.
+ * Filters are equal when their conditions are, so they can be part of cache keys.</p>
+ */
+public final class AuditEventAccessFilter implements Specification<AuditEventEntity> {
+    /** Filter of a principal who may access every event. */
+    public static final AuditEventAccessFilter ALLOW_ALL = new AuditEventAccessFilter(false, null);
+
+    /** Filter of a principal who may access no event. */
+    public static final AuditEventAccessFilter DENY_ALL = new AuditEventAccessFilter(true, null);
+
+    private static final long serialVersionUID = 1L;
+    private static final String RESOURCE_ATTRIBUTE = "request.resource.attr.";
+    private static final Map<String, Attribute> ATTRIBUTES =
+            Map.of(
+                    "businessObjectType",
+                    new Attribute(
+                            String.class, root -> root.get(AuditEventEntity_.businessObjectType)),
+                    "businessObjectId",
+                    new Attribute(UUID.class, root -> root.get(AuditEventEntity_.businessObjectId)),
+                    "systemOfRecord",
+                    new Attribute(String.class, root -> root.get(AuditEventEntity_.systemOfRecord)),
+                    "userId",
+                    new Attribute(
+                            UUID.class, root -> requestContext(root).get(RequestContext_.userId)),
+                    "tenantId",
+                    new Attribute(
+                            UUID.class, root -> requestContext(root).get(RequestContext_.tenantId)),
+                    "originatorId",
+                    new Attribute(
+                            UUID.class,
+                            root -> requestContext(root).get(RequestContext_.originatorId)));
+
+    private final boolean denied;
+    private final transient Operand condition;
+    private final transient Specification<AuditEventEntity> specification;
+
+    private AuditEventAccessFilter(boolean denied, Operand condition) {
+        this.denied = denied;
+        this.condition = condition;
+        this.specification = condition == null ? null : translate(condition);
+    }
+
+    /**
+     * Creates the filter of a conditional plan.
+     *
+     * @param condition condition of the plan
+     * @return filter matching the events satisfying the condition
+     * @throws IllegalArgumentException if the condition uses an operator or attribute which cannot
+     *                                  be translated
+     */
+    public static AuditEventAccessFilter of(Operand condition) {
+        return new AuditEventAccessFilter(false, Objects.requireNonNull(condition));
+    }
+
+    public boolean isDenied() {
+        return denied;
+    }
+
+    /**
+     * Whether the filter restricts which events match, so estimates of the number of events of a
+     * business object do not apply.
+     *
+     * @return true if some events may be left out
+     */
+    public boolean isConditional() {
+        return specification != null;
+    }
+
+    @Override
+    public Predicate toPredicate(
+            Root<AuditEventEntity> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        if (denied) {
+            return builder.disjunction();
+        }
+        return specification == null ? null : specification.toPredicate(root, query, builder);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AuditEventAccessFilter filter
+                && denied == filter.denied
+                && Objects.equals(condition, filter.condition);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(denied, condition);
+    }
+
+    @Override
+    public String toString() {
+        if (condition == null) {
+            return denied ? "DENY_ALL" : "ALLOW_ALL";
+        }
+        return condition.toString();
+    }
+
+    private static Path<RequestContext> requestContext(Root<AuditEventEntity> root) {
+        return root.get(AuditEventEntity_.requestContext);
+    }
+
+    private static Specification<AuditEventEntity> translate(Operand operand) {
+        if (operand.getNodeCase() != Operand.NodeCase.EXPRESSION) {
+            throw new IllegalArgumentException("Unsupported access condition: " + operand);
+        }
+
+        String operator = operand.getExpression().getOperator();
+        List<Operand> operands = operand.getExpression().getOperandsList();
+        switch (operator) {
+            case "and":
+            case "or":
+                List<Specification<AuditEventEntity>> specifications = new ArrayList<>();
+                for (Operand child : operands) {
+                    specifications.add(translate(child));
+                }
+                return "and".equals(operator)
+                        ? Specification.allOf(specifications)
+                        : Specification.anyOf(specifications);
+            case "not":
+                return Specification.not(translate(single(operands)));
+            case "eq":
+            case "ne":
+            case "in":
+                return comparison(operator, operands);
+            default:
+                throw new IllegalArgumentException("Unsupported access operator: " + operator);
+        }
+    }
+
+    private static Specification<AuditEventEntity> comparison(
+            String operator, List<Operand> operands) {
+        if (operands.size() != 2) {
+            throw new IllegalArgumentException("Unsupported access condition: " + operands);
+        }
+        // Cerbos may put the attribute on either side
+        boolean variableFirst = operands.get(0).getNodeCase() == Operand.NodeCase.VARIABLE;
+        Operand variable = operands.get(variableFirst ? 0 : 1);
+        Operand value = operands.get(variableFirst ? 1 : 0);
+        if (variable.getNodeCase() != Operand.NodeCase.VARIABLE
+                || value.getNodeCase() != Operand.NodeCase.VALUE) {
+            throw new IllegalArgumentException("Unsupported access condition: " + operands);
+        }
+
+        Attribute attribute = attribute(variable.getVariable());
+        Value literal = value.getValue();
+        if ("in".equals(operator)) {
+            List<Object> values = new ArrayList<>();
+            for (Value element : literal.getListValue().getValuesList()) {
+                values.add(convert(element, attribute.javaType()));
+            }
+            return (root, query, builder) ->
+                    values.isEmpty()
+                            ? builder.disjunction()
+                            : attribute.path().apply(root).in(values);
+        }
+
+        Object converted = convert(literal, attribute.javaType());
+        return (root, query, builder) ->
+                "eq".equals(operator)
+                        ? builder.equal(attribute.path().apply(root), converted)
+                        : builder.notEqual(attribute.path().apply(root), converted);
+    }
+
+    private static Operand single(List<Operand> operands) {
+        if (operands.size() != 1) {
+            throw new IllegalArgumentException("Unsupported access condition: " + operands);
+        }
+        return operands.get(0);
+    }
+
+    private static Attribute attribute(String variable) {
+        Attribute attribute =
+                variable.startsWith(RESOURCE_ATTRIBUTE)
+                        ? ATTRIBUTES.get(variable.substring(RESOURCE_ATTRIBUTE.length()))
+                        : null;
+        if (attribute == null) {
+            throw new IllegalArgumentException("Unsupported access attribute: " + variable);
+        }
+        return attribute;
+    }
+
+    private static Object convert(Value value, Class<?> javaType) {
+        // a malformed UUID fails here, when the plan is translated, rather than in the query
+        if (value.getKindCase() != Value.KindCase.STRING_VALUE) {
+            throw new IllegalArgumentException("Unsupported access value: " + value);
+        }
+        return UUID.class.equals(javaType)
+                ? UUID.fromString(value.getStringValue())
+                : value.getStringValue();
+    }
+
+    private record Attribute(Class<?> javaType, Function<Root<AuditEventEntity>, Path<?>> path) {}
+}
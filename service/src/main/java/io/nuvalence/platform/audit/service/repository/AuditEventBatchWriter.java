@@ -0,0 +1,220 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.TypeEnumConverter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Writes audit events with JDBC batch inserts, bypassing the JPA persistence context.
+ *
+ * <p>Audit events are immutable, so this is the insert-only write path for all new events: there
+ * is no SELECT before the INSERT (as with {@code CrudRepository.save} on an entity with an ID) and
+ * an event which already exists, e.g. a redelivered PubSub message, is skipped rather than failing
+ * the transaction.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditEventBatchWriter {
+    private static final String INSERT_EVENT_COLUMNS_FORMAT =
+            "INSERT INTO audit_events (id, dtype, schema, type, business_object_id,"
+                    + " business_object_type, timestamp, summary, system_of_record, new_state,"
+                    + " old_state, activity_type, data, user_id, tenant_id, originator_id,"
+                    + " request_id, trace_id, span_id%s) VALUES ";
+
+    private static final String EVENT_VALUES =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INDEXED_EVENT_VALUES =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, to_tsvector('"
+                    + AuditEventSearch.TEXT_SEARCH_CONFIG
+                    + "', ?))";
+
+    // the primary key is the only unique constraint, so this only skips events which were
+    // already written; no conflict target keeps this H2 compatible
+    private static final String ON_CONFLICT = " ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_EVENT_SQL =
+            String.format(INSERT_EVENT_COLUMNS_FORMAT, "") + EVENT_VALUES + ON_CONFLICT;
+
+    private static final int EVENT_PARAMETERS = 19;
+
+    private static final int INDEXED_EVENT_PARAMETERS = EVENT_PARAMETERS + 1;
+
+    // keeps a statement well below PostgreSQL's limit of 65535 bind parameters
+    private static final int EVENTS_PER_INDEXED_INSERT = 1000;
+
+    private static final String INSERT_RELATED_SQL =
+            "INSERT INTO audit_events_related_business_objects"
+                    + " (audit_event_id, related_business_object, event_timestamp)"
+                    + " VALUES (?, ?, ?)";
+
+    private static final TypeEnumConverter TYPE_CONVERTER = new TypeEnumConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private Boolean fullTextSearchSupported;
+
+    /**
+     * Inserts all events, along with their related business objects, in a single transaction.
+     * Events which already exist are skipped. An {@link AuditEventsInsertedEvent} is published if
+     * any event was inserted.
+     *
+     * @param events audit events to insert; each must already have an event ID assigned
+     * @return number of events inserted
+     */
+    @Transactional
+    public int insertAll(List<AuditEventEntity> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<AuditEventEntity> inserted =
+                isFullTextSearchSupported() ? insertIndexed(events) : insertBatched(events);
+
+        // related business objects have no unique constraint, so skipped events must not add any
+        List<Map.Entry<AuditEventEntity, String>> relatedBusinessObjects =
+                inserted.stream()
+                        .filter(event -> event.getRelatedBusinessObjects() != null)
+                        .flatMap(
+                                event ->
+                                        event.getRelatedBusinessObjects().stream()
+                                                .map(related -> Map.entry(event, related)))
+                        .collect(Collectors.toList());
+
+        if (!relatedBusinessObjects.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    INSERT_RELATED_SQL,
+                    relatedBusinessObjects,
+                    relatedBusinessObjects.size(),
+                    (ps, related) -> {
+                        ps.setObject(1, related.getKey().getEventId());
+                        ps.setString(2, related.getValue());
+                        // partition key, see AuditEventPartitionManager
+                        ps.setObject(3, related.getKey().getTimestamp());
+                    });
+        }
+
+        if (!inserted.isEmpty()) {
+            eventPublisher.publishEvent(new AuditEventsInsertedEvent(inserted));
+        }
+        return inserted.size();
+    }
+
+    /**
+     * Inserts events with a JDBC batch, relying on the update counts to tell which were inserted.
+     */
+    private List<AuditEventEntity> insertBatched(List<AuditEventEntity> events) {
+        int[][] updateCounts =
+                jdbcTemplate.batchUpdate(
+                        INSERT_EVENT_SQL,
+                        events,
+                        events.size(),
+                        (ps, event) -> bindEvent(ps, 0, event));
+        List<AuditEventEntity> inserted = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (updateCounts[0][i] > 0) {
+                inserted.add(events.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Inserts events, with their search vectors, as multi-row statements on PostgreSQL. Batched
+     * statements may not report update counts (SUCCESS_NO_INFO, e.g. with reWriteBatchedInserts),
+     * so the IDs of the inserted rows are returned by the statement itself.
+     */
+    private List<AuditEventEntity> insertIndexed(List<AuditEventEntity> events) {
+        List<AuditEventEntity> inserted = new ArrayList<>();
+        for (int from = 0; from < events.size(); from += EVENTS_PER_INDEXED_INSERT) {
+            var chunk =
+                    events.subList(
+                            from, Math.min(from + EVENTS_PER_INDEXED_INSERT, events.size()));
+            String sql =
+                    String.format(INSERT_EVENT_COLUMNS_FORMAT, ", search_vector")
+                            + String.join(
+                                    ", ", Collections.nCopies(chunk.size(), INDEXED_EVENT_VALUES))
+                            + ON_CONFLICT
+                            + " RETURNING id";
+            Set<UUID> insertedIds =
+                    new HashSet<>(
+                            jdbcTemplate.query(
+                                    sql,
+                                    ps -> {
+                                        int offset = 0;
+                                        for (AuditEventEntity event : chunk) {
+                                            bindEvent(ps, offset, event);
+                                            // the search vector is built from the uncompressed
+                                            // payloads as events are written
+                                            ps.setString(
+                                                    offset + INDEXED_EVENT_PARAMETERS,
+                                                    AuditEventSearch.document(event));
+                                            offset += INDEXED_EVENT_PARAMETERS;
+                                        }
+                                    },
+                                    (rs, rowNum) -> rs.getObject(1, UUID.class)));
+
+            // an event given twice is inserted once
+            chunk.stream()
+                    .filter(event -> insertedIds.remove(event.getEventId()))
+                    .forEach(inserted::add);
+        }
+        return inserted;
+    }
+
+    private boolean isFullTextSearchSupported() {
+        if (fullTextSearchSupported == null) {
+            fullTextSearchSupported = AuditEventSearch.isSupported(jdbcTemplate);
+        }
+        return fullTextSearchSupported;
+    }
+
+    private static void bindEvent(PreparedStatement ps, int offset, AuditEventEntity event)
+            throws SQLException {
+        var requestContext = Optional.ofNullable(event.getRequestContext());
+        var activityEvent =
+                event instanceof ActivityEventEntity ? (ActivityEventEntity) event : null;
+        var stateChangeEvent =
+                event instanceof StateChangeEventEntity ? (StateChangeEventEntity) event : null;
+
+        ps.setObject(offset + 1, event.getEventId());
+        // Hibernate's default discriminator value for single table inheritance is the entity name
+        ps.setString(offset + 2, event.getClass().getSimpleName());
+        ps.setString(offset + 3, event.getSchema());
+        ps.setObject(offset + 4, TYPE_CONVERTER.convertToDatabaseColumn(event.getType()));
+        ps.setObject(offset + 5, event.getBusinessObjectId());
+        ps.setString(offset + 6, event.getBusinessObjectType());
+        ps.setObject(offset + 7, event.getTimestamp());
+        ps.setString(offset + 8, event.getSummary());
+        ps.setString(offset + 9, event.getSystemOfRecord());
+        ps.setString(offset + 10, stateChangeEvent == null ? null : stateChangeEvent.getNewState());
+        ps.setString(offset + 11, stateChangeEvent == null ? null : stateChangeEvent.getOldState());
+        ps.setString(offset + 12, event.getActivityType());
+        ps.setString(offset + 13, activityEvent == null ? null : activityEvent.getData());
+        ps.setObject(offset + 14, requestContext.map(RequestContext::getUserId).orElse(null));
+        ps.setObject(offset + 15, requestContext.map(RequestContext::getTenantId).orElse(null));
+        ps.setObject(offset + 16, requestContext.map(RequestContext::getOriginatorId).orElse(null));
+        ps.setObject(offset + 17, requestContext.map(RequestContext::getRequestId).orElse(null));
+        ps.setObject(offset + 18, requestContext.map(RequestContext::getTraceId).orElse(null));
+        ps.setObject(offset + 19, requestContext.map(RequestContext::getSpanId).orElse(null));
+    }
+}
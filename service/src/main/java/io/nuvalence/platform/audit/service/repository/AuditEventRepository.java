@@ -2,21 +2,32 @@ package io.nuvalence.platform.audit.service.repository;
 
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity_;
+import io.nuvalence.platform.audit.service.domain.RequestContext_;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.support.PageableExecutionUtils;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Repository for audit events.
  */
 public interface AuditEventRepository
-        extends CrudRepository<AuditEventEntity, UUID>, JpaSpecificationExecutor<AuditEventEntity> {
+        extends CrudRepository<AuditEventEntity, UUID>,
+                JpaSpecificationExecutor<AuditEventEntity>,
+                AuditEventRepositoryCustom {
 
     /**
      * JPA Specification for querying audit events in <code>findAll()</code> method.
@@ -55,6 +66,89 @@ public interface AuditEventRepository
         };
     }
 
+    /**
+     * JPA Specification for querying the audit events of an entity which a principal may access.
+     *
+     * @param entityId   Unique identifier for an entity of the requested type.
+     * @param entityType Type of entity.
+     * @param startTime  Start time (inclusive), or null.
+     * @param endTime    End time (exclusive), or null.
+     * @param access     events the principal may access, see {@link AuditEventAccessFilter}.
+     * @return Specification to be used to query audit events.
+     */
+    default Specification<AuditEventEntity> findAllSpec(
+            UUID entityId,
+            String entityType,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Specification<AuditEventEntity> access) {
+        return findAllSpec(entityId, entityType, startTime, endTime).and(access);
+    }
+
+    /**
+     * JPA Specification for querying the audit events which name a business object among their
+     * related business objects, with the same time range semantics as <code>findAllSpec()</code>.
+     *
+     * @param relatedBusinessObject Related business object, as recorded in the events' links.
+     * @param startTime             Start time (inclusive), or null.
+     * @param endTime               End time (exclusive), or null.
+     * @param access                events the principal may access.
+     * @return Specification to be used to query audit events.
+     */
+    default Specification<AuditEventEntity> findRelatedSpec(
+            String relatedBusinessObject,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Specification<AuditEventEntity> access) {
+        Specification<AuditEventEntity> related =
+                (root, query, builder) -> {
+                    Predicate predicate =
+                            builder.equal(
+                                    root.join(AuditEventEntity_.relatedBusinessObjects),
+                                    relatedBusinessObject);
+
+                    if (startTime != null) {
+                        predicate =
+                                builder.and(
+                                        predicate,
+                                        builder.greaterThanOrEqualTo(
+                                                root.get(AuditEventEntity_.timestamp), startTime));
+                    }
+                    if (endTime != null) {
+                        predicate =
+                                builder.and(
+                                        predicate,
+                                        builder.lessThan(
+                                                root.get(AuditEventEntity_.timestamp), endTime));
+                    }
+                    return predicate;
+                };
+        return related.and(access);
+    }
+
+    /**
+     * Queries a slice of the audit events relating to a business object, without counting all
+     * of them.
+     *
+     * @param relatedBusinessObject Related business object, as recorded in the events' links.
+     * @param start                 Start time (inclusive), or null.
+     * @param end                   End time (exclusive), or null.
+     * @param pageable              page to fetch.
+     * @param payloads              whether to read the payload columns.
+     * @param access                events the principal may access.
+     * @return slice of events
+     */
+    default Slice<AuditEventEntity> findRelatedSlice(
+            String relatedBusinessObject,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            Pageable pageable,
+            boolean payloads,
+            Specification<AuditEventEntity> access) {
+        return findSlice(
+                findRelatedSpec(relatedBusinessObject, start, end, access), pageable, payloads);
+    }
+
     default Page<AuditEventEntity> findAll(
             String entityType,
             UUID entityId,
@@ -64,5 +158,237 @@ public interface AuditEventRepository
         return findAll(findAllSpec(entityId, entityType, start, end), pageable);
     }
 
+    /**
+     * Queries a page of audit events, optionally leaving out the payload columns.
+     *
+     * @param entityType Type of entity.
+     * @param entityId   Unique identifier for an entity of the requested type.
+     * @param start      Start time (inclusive), or null.
+     * @param end        End time (exclusive), or null.
+     * @param pageable   page to fetch.
+     * @param payloads   whether to read the payload columns.
+     * @param access     events the principal may access.
+     * @return page of events
+     */
+    default Page<AuditEventEntity> findAll(
+            String entityType,
+            UUID entityId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            Pageable pageable,
+            boolean payloads,
+            Specification<AuditEventEntity> access) {
+        Specification<AuditEventEntity> spec =
+                findAllSpec(entityId, entityType, start, end, access);
+        if (payloads) {
+            return findAll(spec, pageable);
+        }
+
+        return PageableExecutionUtils.getPage(
+                findSlice(spec, pageable, false).getContent(), pageable, () -> count(spec));
+    }
+
+    /**
+     * JPA Specification for resuming after a position in timestamp order, with the event ID
+     * breaking ties.
+     *
+     * @param timestamp timestamp of the last event seen
+     * @param eventId   ID of the last event seen
+     * @param direction sort direction
+     * @return Specification matching the events after the position
+     */
+    default Specification<AuditEventEntity> afterSpec(
+            OffsetDateTime timestamp, UUID eventId, Sort.Direction direction) {
+        return (root, query, builder) -> {
+            var timestampPath = root.get(AuditEventEntity_.timestamp);
+            var eventIdPath = root.get(AuditEventEntity_.eventId);
+            // the bound on the timestamp alone lets the index seek straight to the position
+            return direction.isAscending()
+                    ? builder.and(
+                            builder.greaterThanOrEqualTo(timestampPath, timestamp),
+                            builder.or(
+                                    builder.greaterThan(timestampPath, timestamp),
+                                    builder.greaterThan(eventIdPath, eventId)))
+                    : builder.and(
+                            builder.lessThanOrEqualTo(timestampPath, timestamp),
+                            builder.or(
+                                    builder.lessThan(timestampPath, timestamp),
+                                    builder.lessThan(eventIdPath, eventId)));
+        };
+    }
+
+    /**
+     * Queries a page of audit events in timestamp order, seeking past the last event of the
+     * previous page rather than skipping an offset. No count query is issued.
+     *
+     * @param entityType     Type of entity.
+     * @param entityId       Unique identifier for an entity of the requested type.
+     * @param start          Start time (inclusive), or null.
+     * @param end            End time (exclusive), or null.
+     * @param afterTimestamp timestamp of the last event of the previous page; null on the first
+     * @param afterEventId   ID of the last event of the previous page; null on the first
+     * @param direction      sort direction
+     * @param pageSize       page size
+     * @param payloads       whether to read the payload columns
+     * @param access         events the principal may access
+     * @return slice of events, which knows whether more events follow
+     */
+    default Slice<AuditEventEntity> findAllAfter(
+            String entityType,
+            UUID entityId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            OffsetDateTime afterTimestamp,
+            UUID afterEventId,
+            Sort.Direction direction,
+            int pageSize,
+            boolean payloads,
+            Specification<AuditEventEntity> access) {
+        Specification<AuditEventEntity> spec =
+                findAllSpec(entityId, entityType, start, end, access);
+        if (afterTimestamp != null) {
+            spec = spec.and(afterSpec(afterTimestamp, afterEventId, direction));
+        }
+
+        // always the first page past the position, so no rows are skipped
+        Sort sort = Sort.by(direction, AuditEventEntity_.TIMESTAMP, AuditEventEntity_.EVENT_ID);
+        return findSlice(spec, PageRequest.of(0, pageSize, sort), payloads);
+    }
+
+    /**
+     * JPA Specification for querying audit events across business objects by the context of the
+     * requests which triggered them. Null fields match any value; at least one should be given,
+     * so an index bounds the query.
+     *
+     * @param userId    ID of the user, or null.
+     * @param tenantId  ID of the tenant, or null.
+     * @param requestId ID of the request, or null.
+     * @param traceId   ID of the trace, or null.
+     * @param startTime Start time (inclusive), or null.
+     * @param endTime   End time (exclusive), or null.
+     * @return Specification to be used to query audit events.
+     */
+    default Specification<AuditEventEntity> requestContextSpec(
+            UUID userId,
+            UUID tenantId,
+            UUID requestId,
+            UUID traceId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime) {
+        return (root, query, builder) -> {
+            var context = root.get(AuditEventEntity_.requestContext);
+            List<Predicate> predicates = new ArrayList<>();
+            if (userId != null) {
+                predicates.add(builder.equal(context.get(RequestContext_.userId), userId));
+            }
+            if (tenantId != null) {
+                predicates.add(builder.equal(context.get(RequestContext_.tenantId), tenantId));
+            }
+            if (requestId != null) {
+                predicates.add(builder.equal(context.get(RequestContext_.requestId), requestId));
+            }
+            if (traceId != null) {
+                predicates.add(builder.equal(context.get(RequestContext_.traceId), traceId));
+            }
+            if (startTime != null) {
+                predicates.add(
+                        builder.greaterThanOrEqualTo(
+                                root.get(AuditEventEntity_.timestamp), startTime));
+            }
+            if (endTime != null) {
+                predicates.add(builder.lessThan(root.get(AuditEventEntity_.timestamp), endTime));
+            }
+            return builder.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Queries a page of audit events by request context in timestamp order, seeking past the
+     * last event of the previous page. No count query is issued.
+     *
+     * @param userId         ID of the user, or null.
+     * @param tenantId       ID of the tenant, or null.
+     * @param requestId      ID of the request, or null.
+     * @param traceId        ID of the trace, or null.
+     * @param start          Start time (inclusive), or null.
+     * @param end            End time (exclusive), or null.
+     * @param afterTimestamp timestamp of the last event of the previous page; null on the first
+     * @param afterEventId   ID of the last event of the previous page; null on the first
+     * @param direction      sort direction
+     * @param pageSize       page size
+     * @param payloads       whether to read the payload columns
+     * @param access         events the principal may access
+     * @return slice of events, which knows whether more events follow
+     */
+    default Slice<AuditEventEntity> findByRequestContextAfter(
+            UUID userId,
+            UUID tenantId,
+            UUID requestId,
+            UUID traceId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            OffsetDateTime afterTimestamp,
+            UUID afterEventId,
+            Sort.Direction direction,
+            int pageSize,
+            boolean payloads,
+            Specification<AuditEventEntity> access) {
+        Specification<AuditEventEntity> spec =
+                requestContextSpec(userId, tenantId, requestId, traceId, start, end).and(access);
+        if (afterTimestamp != null) {
+            spec = spec.and(afterSpec(afterTimestamp, afterEventId, direction));
+        }
+
+        Sort sort = Sort.by(direction, AuditEventEntity_.TIMESTAMP, AuditEventEntity_.EVENT_ID);
+        return findSlice(spec, PageRequest.of(0, pageSize, sort), payloads);
+    }
+
+    default Slice<AuditEventEntity> findSlice(
+            String entityType,
+            UUID entityId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            Pageable pageable,
+            boolean payloads,
+            Specification<AuditEventEntity> access) {
+        return findSlice(
+                findAllSpec(entityId, entityType, start, end, access), pageable, payloads);
+    }
+
+    /**
+     * Queries a single audit event of an entity, if the principal may access it.
+     *
+     * @param entityType Type of entity.
+     * @param entityId   Unique identifier for an entity of the requested type.
+     * @param eventId    Unique identifier of the event.
+     * @param access     events the principal may access.
+     * @return the event, or empty
+     */
+    default Optional<AuditEventEntity> findOne(
+            String entityType,
+            UUID entityId,
+            UUID eventId,
+            Specification<AuditEventEntity> access) {
+        Specification<AuditEventEntity> byEventId =
+                (root, query, builder) ->
+                        builder.equal(root.get(AuditEventEntity_.eventId), eventId);
+        return findOne(findAllSpec(entityId, entityType, null, null, access).and(byEventId));
+    }
+
+    default void forEach(
+            String entityType,
+            UUID entityId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            int fetchSize,
+            Specification<AuditEventEntity> access,
+            Consumer<AuditEventEntity> action) {
+        forEach(
+                findAllSpec(entityId, entityType, start, end, access),
+                Sort.by(AuditEventEntity_.TIMESTAMP, AuditEventEntity_.EVENT_ID),
+                fetchSize,
+                action);
+    }
+
     Page<AuditEventEntity> findAll(Specification<AuditEventEntity> spec, Pageable pageable);
 }
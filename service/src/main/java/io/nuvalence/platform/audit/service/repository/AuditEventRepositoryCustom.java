@@ -0,0 +1,134 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Queries of {@link AuditEventRepository} which avoid counting every matching audit event.
+ */
+public interface AuditEventRepositoryCustom {
+
+    /**
+     * Queries a page of audit events without a count query. One extra event is fetched to tell
+     * whether there is a next page.
+     *
+     * @param spec     Specification to filter audit events by.
+     * @param pageable page to fetch.
+     * @return slice of events, which knows whether more events follow
+     */
+    default Slice<AuditEventEntity> findSlice(
+            Specification<AuditEventEntity> spec, Pageable pageable) {
+        return findSlice(spec, pageable, true);
+    }
+
+    /**
+     * Queries a page of audit events without a count query, optionally leaving out the payload
+     * columns (activity data, old and new state). Without payloads, the events are built from
+     * the remaining columns only; they are detached and their payloads are null.
+     *
+     * @param spec     Specification to filter audit events by.
+     * @param pageable page to fetch.
+     * @param payloads whether to read the payload columns.
+     * @return slice of events, which knows whether more events follow
+     */
+    Slice<AuditEventEntity> findSlice(
+            Specification<AuditEventEntity> spec, Pageable pageable, boolean payloads);
+
+    /**
+     * Estimates the number of audit events of an entity from the query planner's statistics,
+     * without counting them. Databases without row estimates count exactly.
+     *
+     * @param entityType Type of entity.
+     * @param entityId   Unique identifier for an entity of the requested type.
+     * @param start      Start time (inclusive), or null.
+     * @param end        End time (exclusive), or null.
+     * @return estimated number of events
+     */
+    long estimateCount(String entityType, UUID entityId, OffsetDateTime start, OffsetDateTime end);
+
+    /**
+     * Reads the version of the audit events of an entity, from the business object index alone.
+     *
+     * @param entityType Type of entity.
+     * @param entityId   Unique identifier for an entity of the requested type.
+     * @return number of events and timestamp of the latest
+     */
+    AuditEventsVersion findVersion(String entityType, UUID entityId);
+
+    /**
+     * Reads matching audit events through a database cursor, and passes each to an action. Events
+     * are handed on, detached and with their related business objects loaded, in chunks of one
+     * fetch, so memory use does not grow with the number of events. Must be called within a
+     * transaction.
+     *
+     * @param spec      Specification to filter audit events by.
+     * @param sort      order of the events.
+     * @param fetchSize number of rows the cursor fetches per round trip.
+     * @param action    action to apply to each event.
+     */
+    void forEach(
+            Specification<AuditEventEntity> spec,
+            Sort sort,
+            int fetchSize,
+            Consumer<AuditEventEntity> action);
+
+    /**
+     * Loads the related business objects of audit events with a single query, instead of one
+     * query per event when their lazy collections are first accessed. The events are detached,
+     * so they can be mapped after the transaction ends.
+     *
+     * @param events audit events loaded by this repository
+     */
+    void loadRelatedBusinessObjects(List<AuditEventEntity> events);
+
+    /**
+     * Detaches audit events without loading their related business objects, which are left
+     * null, so they can be mapped after the transaction ends.
+     *
+     * @param events audit events loaded by this repository
+     */
+    void detachWithoutRelatedBusinessObjects(List<AuditEventEntity> events);
+
+    /**
+     * Searches the summaries and payloads of the audit events of a tenant for words, through the
+     * full-text search index. The access filter is part of the search query, so up to limit
+     * events the principal may access are returned. Databases without the index, such as H2,
+     * match each word as a case-insensitive substring of the summary and uncompressed payloads
+     * instead, and cannot order by relevance.
+     *
+     * @param text        words to search for, in web search syntax.
+     * @param tenantId    ID of the tenant the events belong to.
+     * @param start       Start time (inclusive), or null.
+     * @param end         End time (exclusive), or null.
+     * @param byRelevance whether to order by relevance rather than by timestamp, latest first.
+     * @param limit       maximum number of events.
+     * @param access      events the principal may access.
+     * @return matching events, in order
+     */
+    List<AuditEventEntity> search(
+            String text,
+            UUID tenantId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            boolean byRelevance,
+            int limit,
+            Specification<AuditEventEntity> access);
+
+    /**
+     * Indexes a batch of the audit events which have no search vector, such as events written
+     * before the full-text search index was added. Events locked by a concurrent backfill are
+     * skipped. Does nothing on databases without the index.
+     *
+     * @param batchSize maximum number of events to index.
+     * @return number of events indexed, 0 once every event is
+     */
+    int indexUnindexedEvents(int batchSize);
+}
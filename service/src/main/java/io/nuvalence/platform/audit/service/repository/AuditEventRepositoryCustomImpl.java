@@ -0,0 +1,405 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity_;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity_;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.RequestContext_;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity_;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implements {@link AuditEventRepositoryCustom}.
+ */
+public class AuditEventRepositoryCustomImpl implements AuditEventRepositoryCustom {
+    private static final String WHERE_BUSINESS_OBJECT =
+            " WHERE business_object_type = ? AND business_object_id = ?";
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+    private static final String RELATED_BUSINESS_OBJECTS_JPQL =
+            "SELECT e.eventId, related FROM AuditEventEntity e"
+                    + " JOIN e.relatedBusinessObjects related WHERE e.eventId IN :eventIds";
+    private static final String VERSION_JPQL =
+            "SELECT new io.nuvalence.platform.audit.service.repository.AuditEventsVersion("
+                    + "COUNT(e), MAX(e.timestamp)) FROM AuditEventEntity e"
+                    + " WHERE e.businessObjectType = :type AND e.businessObjectId = :id";
+
+    private static final String UNINDEXED_SQL =
+            "SELECT id, timestamp, summary, data, new_state FROM audit_events"
+                    + " WHERE search_vector IS NULL LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String INDEX_SQL =
+            "UPDATE audit_events SET search_vector = to_tsvector('"
+                    + AuditEventSearch.TEXT_SEARCH_CONFIG
+                    + "', ?) WHERE id = ? AND timestamp = ?";
+
+    @PersistenceContext private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private Boolean estimatesSupported;
+    private Boolean fullTextSearchSupported;
+
+    public AuditEventRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Slice<AuditEventEntity> findSlice(
+            Specification<AuditEventEntity> spec, Pageable pageable, boolean payloads) {
+        List<AuditEventEntity> events =
+                payloads ? findEvents(spec, pageable) : findEventsWithoutPayloads(spec, pageable);
+        boolean hasNext = events.size() > pageable.getPageSize();
+        return new SliceImpl<>(
+                hasNext ? events.subList(0, pageable.getPageSize()) : events, pageable, hasNext);
+    }
+
+    private List<AuditEventEntity> findEvents(
+            Specification<AuditEventEntity> spec, Pageable pageable) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(AuditEventEntity.class);
+        var root = query.from(AuditEventEntity.class);
+        query.select(root)
+                .where(spec.toPredicate(root, query, builder))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        return entityManager
+                .createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+    }
+
+    private List<AuditEventEntity> findEventsWithoutPayloads(
+            Specification<AuditEventEntity> spec, Pageable pageable) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createTupleQuery();
+        var root = query.from(AuditEventEntity.class);
+        query.multiselect(
+                        root.get(AuditEventEntity_.eventId),
+                        root.get(AuditEventEntity_.type),
+                        root.get(AuditEventEntity_.schema),
+                        root.get(AuditEventEntity_.businessObjectId),
+                        root.get(AuditEventEntity_.businessObjectType),
+                        root.get(AuditEventEntity_.timestamp),
+                        root.get(AuditEventEntity_.summary),
+                        root.get(AuditEventEntity_.systemOfRecord),
+                        root.get(AuditEventEntity_.requestContext),
+                        root.get(AuditEventEntity_.activityType))
+                .where(spec.toPredicate(root, query, builder))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        return entityManager
+                .createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList()
+                .stream()
+                .map(AuditEventRepositoryCustomImpl::toEventWithoutPayload)
+                .toList();
+    }
+
+    private static AuditEventEntity toEventWithoutPayload(Tuple row) {
+        // the type column determines the entity subclass, as the mapper dispatches on it
+        TypeEnum type = row.get(1, TypeEnum.class);
+        AuditEventEntity event =
+                type == TypeEnum.ACTIVITY_EVENT_DATA
+                        ? new ActivityEventEntity()
+                        : new StateChangeEventEntity();
+        event.setEventId(row.get(0, UUID.class));
+        event.setType(type);
+        event.setSchema(row.get(2, String.class));
+        event.setBusinessObjectId(row.get(3, UUID.class));
+        event.setBusinessObjectType(row.get(4, String.class));
+        event.setTimestamp(row.get(5, OffsetDateTime.class));
+        event.setSummary(row.get(6, String.class));
+        event.setSystemOfRecord(row.get(7, String.class));
+        event.setRequestContext(row.get(8, RequestContext.class));
+        event.setActivityType(row.get(9, String.class));
+        return event;
+    }
+
+    @Override
+    public void forEach(
+            Specification<AuditEventEntity> spec,
+            Sort sort,
+            int fetchSize,
+            Consumer<AuditEventEntity> action) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(AuditEventEntity.class);
+        var root = query.from(AuditEventEntity.class);
+        query.select(root)
+                .where(spec.toPredicate(root, query, builder))
+                .orderBy(QueryUtils.toOrders(sort, root, builder));
+
+        // a fetch size within a transaction makes the PostgreSQL driver use a server side cursor;
+        // events are handed on in chunks of one fetch, so related objects load once per chunk
+        List<AuditEventEntity> chunk = new ArrayList<>(fetchSize);
+        try (var events =
+                entityManager
+                        .createQuery(query)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+            events.forEach(
+                    event -> {
+                        chunk.add(event);
+                        if (chunk.size() >= fetchSize) {
+                            loadRelatedBusinessObjects(chunk);
+                            chunk.forEach(action);
+                            chunk.clear();
+                        }
+                    });
+        }
+        loadRelatedBusinessObjects(chunk);
+        chunk.forEach(action);
+    }
+
+    @Override
+    public void loadRelatedBusinessObjects(List<AuditEventEntity> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<UUID> eventIds = events.stream().map(AuditEventEntity::getEventId).toList();
+        Map<UUID, Set<String>> relatedBusinessObjects = new HashMap<>();
+        entityManager
+                .createQuery(RELATED_BUSINESS_OBJECTS_JPQL, Object[].class)
+                .setParameter("eventIds", eventIds)
+                .getResultList()
+                .forEach(
+                        row ->
+                                relatedBusinessObjects
+                                        .computeIfAbsent((UUID) row[0], id -> new HashSet<>())
+                                        .add((String) row[1]));
+
+        // detached first, so replacing the lazy collection is not a change to persist
+        for (AuditEventEntity event : events) {
+            entityManager.detach(event);
+            event.setRelatedBusinessObjects(
+                    relatedBusinessObjects.getOrDefault(event.getEventId(), new HashSet<>()));
+        }
+    }
+
+    @Override
+    public void detachWithoutRelatedBusinessObjects(List<AuditEventEntity> events) {
+        for (AuditEventEntity event : events) {
+            if (entityManager.contains(event)) {
+                entityManager.detach(event);
+                event.setRelatedBusinessObjects(null);
+            }
+        }
+    }
+
+    @Override
+    public AuditEventsVersion findVersion(String entityType, UUID entityId) {
+        return entityManager
+                .createQuery(VERSION_JPQL, AuditEventsVersion.class)
+                .setParameter("type", entityType)
+                .setParameter("id", entityId)
+                .getSingleResult();
+    }
+
+    @Override
+    public long estimateCount(
+            String entityType, UUID entityId, OffsetDateTime start, OffsetDateTime end) {
+        StringBuilder where = new StringBuilder(WHERE_BUSINESS_OBJECT);
+        List<Object> args = new ArrayList<>(List.of(entityType, entityId));
+        if (start != null) {
+            where.append(" AND timestamp >= ?");
+            args.add(start);
+        }
+        if (end != null) {
+            where.append(" AND timestamp < ?");
+            args.add(end);
+        }
+
+        if (!isEstimatesSupported()) {
+            return jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM audit_events" + where, Long.class, args.toArray());
+        }
+
+        // the estimate of the top plan node; not aggregated, so it is the number of matching rows
+        String plan =
+                jdbcTemplate.queryForObject(
+                        "EXPLAIN (FORMAT JSON) SELECT 1 FROM audit_events" + where,
+                        String.class,
+                        args.toArray());
+        Matcher matcher = PLAN_ROWS.matcher(plan);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    @Override
+    public List<AuditEventEntity> search(
+            String text,
+            UUID tenantId,
+            OffsetDateTime start,
+            OffsetDateTime end,
+            boolean byRelevance,
+            int limit,
+            Specification<AuditEventEntity> access) {
+        boolean indexed = isFullTextSearchSupported();
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(AuditEventEntity.class);
+        var root = query.from(AuditEventEntity.class);
+        var eventId = root.get(AuditEventEntity_.eventId);
+        // bound, as a literal function argument would be rendered into the SQL
+        var words = builder.parameter(String.class, "text");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(
+                builder.equal(
+                        root.get(AuditEventEntity_.requestContext).get(RequestContext_.tenantId),
+                        tenantId));
+        if (indexed) {
+            predicates.add(
+                    builder.isTrue(
+                            builder.function(
+                                    AuditEventSearchFunctions.MATCH,
+                                    Boolean.class,
+                                    eventId,
+                                    words)));
+        } else {
+            predicates.addAll(wordPredicates(text, root, builder));
+        }
+        if (start != null) {
+            predicates.add(
+                    builder.greaterThanOrEqualTo(root.get(AuditEventEntity_.timestamp), start));
+        }
+        if (end != null) {
+            predicates.add(builder.lessThan(root.get(AuditEventEntity_.timestamp), end));
+        }
+        Predicate allowed = access.toPredicate(root, query, builder);
+        if (allowed != null) {
+            predicates.add(allowed);
+        }
+
+        List<Order> orders = new ArrayList<>();
+        if (byRelevance && indexed) {
+            orders.add(
+                    builder.desc(
+                            builder.function(
+                                    AuditEventSearchFunctions.RANK,
+                                    Double.class,
+                                    eventId,
+                                    words)));
+        }
+        orders.add(builder.desc(root.get(AuditEventEntity_.timestamp)));
+        orders.add(builder.desc(eventId));
+
+        query.select(root).where(predicates.toArray(new Predicate[0])).orderBy(orders);
+        var search = entityManager.createQuery(query).setMaxResults(limit);
+        if (indexed) {
+            search.setParameter(words, text);
+        }
+        return search.getResultList();
+    }
+
+    private static List<Predicate> wordPredicates(
+            String text, Root<AuditEventEntity> root, CriteriaBuilder builder) {
+        List<Predicate> predicates = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!word.isEmpty()) {
+                String pattern = "%" + word.replaceAll("[\\\\%_]", "\\\\$0") + "%";
+                predicates.add(
+                        builder.or(
+                                like(builder, root.get(AuditEventEntity_.summary), pattern),
+                                // payloads are LOBs, which are cast to be compared as text
+                                like(
+                                        builder,
+                                        builder.treat(root, ActivityEventEntity.class)
+                                                .get(ActivityEventEntity_.data)
+                                                .as(String.class),
+                                        pattern),
+                                like(
+                                        builder,
+                                        builder.treat(root, StateChangeEventEntity.class)
+                                                .get(StateChangeEventEntity_.newState)
+                                                .as(String.class),
+                                        pattern)));
+            }
+        }
+        return predicates;
+    }
+
+    private static Predicate like(
+            CriteriaBuilder builder, Expression<String> column, String pattern) {
+        return builder.like(builder.lower(column), pattern, '\\');
+    }
+
+    @Override
+    @Transactional
+    public int indexUnindexedEvents(int batchSize) {
+        if (!isFullTextSearchSupported()) {
+            return 0;
+        }
+
+        List<Object[]> documents =
+                jdbcTemplate.query(
+                        UNINDEXED_SQL,
+                        (rs, rowNum) ->
+                                new Object[] {
+                                    AuditEventSearch.document(
+                                            rs.getString("summary"),
+                                            rs.getString("data") != null
+                                                    ? rs.getString("data")
+                                                    : rs.getString("new_state")),
+                                    rs.getObject("id", UUID.class),
+                                    rs.getObject("timestamp", OffsetDateTime.class)
+                                },
+                        batchSize);
+        if (!documents.isEmpty()) {
+            jdbcTemplate.batchUpdate(INDEX_SQL, documents);
+        }
+        return documents.size();
+    }
+
+    private boolean isFullTextSearchSupported() {
+        if (fullTextSearchSupported == null) {
+            fullTextSearchSupported = AuditEventSearch.isSupported(jdbcTemplate);
+        }
+        return fullTextSearchSupported;
+    }
+
+    private boolean isEstimatesSupported() {
+        if (estimatesSupported == null) {
+            String product =
+                    jdbcTemplate.execute(
+                            (ConnectionCallback<String>)
+                                    connection ->
+                                            connection.getMetaData().getDatabaseProductName());
+            estimatesSupported = "PostgreSQL".equals(product);
+        }
+        return estimatesSupported;
+    }
+}
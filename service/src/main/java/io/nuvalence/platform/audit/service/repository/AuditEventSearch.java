@@ -0,0 +1,79 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search index of audit events. On PostgreSQL, each event's summary and payload (the
+ * activity data or new state) are indexed as a <code>tsvector</code> when the event is written,
+ * and searched through a GIN index.
+ */
+final class AuditEventSearch {
+    /**
+     * PostgreSQL text search configuration, which must be the same for indexing and querying.
+     */
+    static final String TEXT_SEARCH_CONFIG = "english";
+
+    /**
+     * Longest text indexed per event; a tsvector is limited to 1 MB.
+     */
+    static final int MAX_DOCUMENT_LENGTH = 100_000;
+
+    private AuditEventSearch() {}
+
+    /**
+     * Builds the text of an event to index, from its summary and uncompressed payload.
+     *
+     * @param event audit event
+     * @return text to index
+     */
+    static String document(AuditEventEntity event) {
+        String payload = null;
+        if (event instanceof ActivityEventEntity activity) {
+            payload = activity.getData();
+        } else if (event instanceof StateChangeEventEntity stateChange) {
+            payload = stateChange.getNewState();
+        }
+
+        return document(event.getSummary(), payload);
+    }
+
+    /**
+     * Builds the text of an event to index, from its summary and payload as stored.
+     *
+     * @param summary summary of the event, or null
+     * @param payload activity data or new state of the event, possibly compressed, or null
+     * @return text to index
+     */
+    static String document(String summary, String payload) {
+        String document =
+                Stream.of(summary, PayloadCompressor.decompress(payload))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.joining("\n"));
+        return document.length() > MAX_DOCUMENT_LENGTH
+                ? document.substring(0, MAX_DOCUMENT_LENGTH)
+                : document;
+    }
+
+    /**
+     * Whether the database supports the full-text search index; only PostgreSQL does.
+     *
+     * @param jdbcTemplate template of the database
+     * @return true if events are indexed
+     */
+    static boolean isSupported(JdbcTemplate jdbcTemplate) {
+        String product =
+                jdbcTemplate.execute(
+                        (ConnectionCallback<String>)
+                                connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+}
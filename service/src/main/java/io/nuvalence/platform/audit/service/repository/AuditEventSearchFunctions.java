@@ -0,0 +1,92 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.sql.ast.tree.expression.Expression;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * Registers the SQL functions of the full-text search index of audit events with Hibernate, so a
+ * search is a Criteria query which the access filter of the principal can be part of.
+ *
+ * <p>The <code>search_vector</code> column is not mapped, as it would be read with every event.
+ * The functions take the event ID of the searched events instead, and qualify the column with the
+ * table alias of the ID:</p>
+ *
+ * <ul>
+ *   <li><code>audit_event_search_match(eventId, text)</code> is true if the event matches the
+ *       words of the text, in web search syntax</li>
+ *   <li><code>audit_event_search_rank(eventId, text)</code> is the relevance of the event,
+ *       by <code>ts_rank_cd</code></li>
+ * </ul>
+ *
+ * <p>Both are PostgreSQL only, see {@link AuditEventSearch#isSupported}.</p>
+ */
+public class AuditEventSearchFunctions implements FunctionContributor {
+    static final String MATCH = "audit_event_search_match";
+    static final String RANK = "audit_event_search_rank";
+
+    private static final String SEARCH_VECTOR = "search_vector";
+    private static final String QUERY =
+            "websearch_to_tsquery('" + AuditEventSearch.TEXT_SEARCH_CONFIG + "', ";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        var types = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+        var registry = functionContributions.getFunctionRegistry();
+        registry.register(
+                MATCH, new SearchFunction(MATCH, types.resolve(StandardBasicTypes.BOOLEAN)));
+        registry.register(RANK, new SearchFunction(RANK, types.resolve(StandardBasicTypes.DOUBLE)));
+    }
+
+    private static final class SearchFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+        private final boolean rank;
+
+        SearchFunction(String name, BasicType<?> type) {
+            super(
+                    name,
+                    StandardArgumentsValidators.exactly(2),
+                    StandardFunctionReturnTypeResolvers.invariant(type),
+                    StandardFunctionArgumentTypeResolvers.NULL);
+            this.rank = RANK.equals(name);
+        }
+
+        @Override
+        public void render(
+                SqlAppender sqlAppender,
+                List<? extends SqlAstNode> sqlAstArguments,
+                SqlAstTranslator<?> walker) {
+            String vector = searchVector(sqlAstArguments.get(0));
+            // the operator form, so the GIN index applies
+            sqlAppender.appendSql(rank ? "ts_rank_cd(" + vector + ", " : "(" + vector + " @@ ");
+            sqlAppender.appendSql(QUERY);
+            sqlAstArguments.get(1).accept(walker);
+            sqlAppender.appendSql("))");
+        }
+
+        private static String searchVector(SqlAstNode eventId) {
+            ColumnReference column =
+                    eventId instanceof Expression expression
+                            ? expression.getColumnReference()
+                            : null;
+            if (column == null) {
+                throw new IllegalArgumentException(
+                        "The first argument of a search function must be the event ID.");
+            }
+            return column.getQualifier() == null
+                    ? SEARCH_VECTOR
+                    : column.getQualifier() + "." + SEARCH_VECTOR;
+        }
+    }
+}
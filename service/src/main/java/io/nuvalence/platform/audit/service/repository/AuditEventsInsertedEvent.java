@@ -0,0 +1,13 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+
+import java.util.List;
+
+/**
+ * Published by {@link AuditEventBatchWriter} within the transaction which inserted new audit
+ * events, so listeners can act before or after it commits.
+ *
+ * @param events audit events which were inserted, excluding skipped duplicates
+ */
+public record AuditEventsInsertedEvent(List<AuditEventEntity> events) {}
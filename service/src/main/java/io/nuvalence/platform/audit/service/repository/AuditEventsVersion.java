@@ -0,0 +1,12 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Version of the audit events of a business object. Events are insert-only, so every new event
+ * changes the count.
+ *
+ * @param count  number of events
+ * @param latest timestamp of the latest event; null if there are none
+ */
+public record AuditEventsVersion(long count, OffsetDateTime latest) {}
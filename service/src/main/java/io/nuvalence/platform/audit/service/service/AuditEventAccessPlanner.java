@@ -0,0 +1,29 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Plans which audit events the current principal may access, so queries can be restricted to
+ * them in the database.
+ */
+public interface AuditEventAccessPlanner {
+    /**
+     * Plans an action on audit events for the current principal.
+     *
+     * @param action action on the events, such as <code>view</code>
+     * @return filter of the events the action is allowed on, which denies all events if it is
+     *         allowed on none
+     */
+    AuditEventAccessFilter plan(String action);
+
+    /**
+     * Returns the tenant of the current principal, as carried by its token, which scopes the
+     * events it may search.
+     *
+     * @return ID of the tenant, or empty if the principal has none
+     */
+    Optional<UUID> tenantId();
+}
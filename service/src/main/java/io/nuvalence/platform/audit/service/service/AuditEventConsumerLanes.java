@@ -0,0 +1,206 @@
+package io.nuvalence.platform.audit.service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Worker lanes for inbound PubSub messages. Each lane is a single thread with a bounded queue and
+ * messages are assigned to a lane by business object ID, so events of the same business object
+ * are persisted in the order they were received while different business objects are persisted in
+ * parallel.
+ *
+ * <p>A full lane blocks the subscriber thread handing it work. Lane capacity is derived from the
+ * subscriber's flow control limits (max outstanding messages and bytes), so the lanes can together
+ * hold every message PubSub may have outstanding and only block when business objects are
+ * unevenly spread across lanes, while no lane holds more than its share of the outstanding
+ * bytes. A message counts against those bytes until it is acked or nacked, which, with batched
+ * ingest, is after its lane task has handed it to a batch.</p>
+ */
+@Slf4j
+@Component
+public class AuditEventConsumerLanes {
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+    private final List<Semaphore> laneBytes = new ArrayList<>();
+    private int capacityBytes;
+
+    @Value("${ingest.lanes.count:0}")
+    private int laneCount;
+
+    @Value("${spring.cloud.gcp.pubsub.subscriber.flow-control.max-outstanding-element-count:1000}")
+    private int maxOutstandingMessages;
+
+    @Value(
+            "${spring.cloud.gcp.pubsub.subscriber.flow-control.max-outstanding-request-bytes"
+                    + ":104857600}")
+    private long maxOutstandingBytes;
+
+    /**
+     * Indicates whether inbound messages should be handed to worker lanes.
+     *
+     * @return true if lanes are enabled
+     */
+    public boolean isEnabled() {
+        return laneCount > 0;
+    }
+
+    /**
+     * Starts the lanes, if enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        int capacity = Math.max(1, (maxOutstandingMessages + laneCount - 1) / laneCount);
+        capacityBytes =
+                (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxOutstandingBytes / laneCount));
+        for (int i = 0; i < laneCount; i++) {
+            String name = "audit-lane-" + i;
+            ThreadPoolExecutor lane =
+                    new ThreadPoolExecutor(
+                            1,
+                            1,
+                            0L,
+                            TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(capacity),
+                            runnable -> new Thread(runnable, name),
+                            new BlockWhenFull());
+            lanes.add(lane);
+            laneBytes.add(new Semaphore(capacityBytes, true));
+        }
+        log.info(
+                "Started {} consumer lanes with capacity {} messages, {} bytes",
+                laneCount,
+                capacity,
+                capacityBytes);
+    }
+
+    /**
+     * Gets the lane of a business object.
+     *
+     * @param businessObjectId lane key
+     * @return lane index
+     */
+    public int laneOf(UUID businessObjectId) {
+        return Math.floorMod(Objects.hashCode(businessObjectId), lanes.size());
+    }
+
+    /**
+     * Queues a task on the lane of a business object, blocking while that lane is full.
+     *
+     * @param businessObjectId lane key; tasks with the same key run in submission order
+     * @param task             task to run
+     */
+    public void submit(UUID businessObjectId, Runnable task) {
+        submit(
+                businessObjectId,
+                0,
+                release -> {
+                    try {
+                        task.run();
+                    } finally {
+                        release.run();
+                    }
+                });
+    }
+
+    /**
+     * Queues a task on the lane of a business object, blocking while that lane is full or holds
+     * its share of the outstanding bytes. A message larger than the share waits for the lane to
+     * drain.
+     *
+     * @param businessObjectId lane key; tasks with the same key run in submission order
+     * @param bytes            size of the message the task persists
+     * @param task             task to run, given the callback which releases the bytes of the
+     *                         message; it must be run once the message is acked or nacked, which
+     *                         may be after the task has returned
+     */
+    public void submit(UUID businessObjectId, int bytes, Consumer<Runnable> task) {
+        int lane = laneOf(businessObjectId);
+        Semaphore available = laneBytes.get(lane);
+        int permits = Math.min(bytes, capacityBytes);
+        try {
+            available.acquire(permits);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for lane", ex);
+        }
+
+        var released = new AtomicBoolean();
+        Runnable release =
+                () -> {
+                    if (released.compareAndSet(false, true)) {
+                        available.release(permits);
+                    }
+                };
+        try {
+            lanes.get(lane)
+                    .execute(
+                            () -> {
+                                try {
+                                    task.accept(release);
+                                } catch (RuntimeException ex) {
+                                    // a failed task never settles its message
+                                    release.run();
+                                    throw ex;
+                                }
+                            });
+        } catch (RejectedExecutionException ex) {
+            release.run();
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits for queued tasks to complete.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(30, TimeUnit.SECONDS)) {
+                // unacked messages are redelivered by PubSub
+                log.warn("Consumer lane did not drain, {} tasks dropped", lane.getQueue().size());
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Applies backpressure instead of rejecting (or running on the caller, which would reorder
+     * the lane) when a lane is full.
+     */
+    private static class BlockWhenFull implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor lane) {
+            if (lane.isShutdown()) {
+                throw new RejectedExecutionException("Consumer lane is shut down");
+            }
+            try {
+                lane.getQueue().put(task);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for lane", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.error.ApiException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Position of the last audit event of a page, for cursor paging. Events are ordered by timestamp,
+ * with the event ID breaking ties, so a cursor identifies a unique position to resume after.
+ *
+ * <p>A position is only meaningful in the order and among the events of the query it was read
+ * from, so the cursor also records the sort direction and an identity of the query, and cannot
+ * be used to resume any other query.</p>
+ *
+ * @param timestamp timestamp of the last event seen
+ * @param eventId   ID of the last event seen
+ * @param direction direction events are sorted in
+ * @param query     identity of the query, from {@link #businessObjectQuery} or
+ *                  {@link #requestContextQuery}
+ */
+public record AuditEventCursor(
+        OffsetDateTime timestamp, UUID eventId, Sort.Direction direction, UUID query) {
+    private static final char SEPARATOR = '~';
+
+    /**
+     * Creates the cursor positioned at an event.
+     *
+     * @param event     last event of a page
+     * @param direction direction events are sorted in
+     * @param query     identity of the query
+     * @return cursor
+     */
+    public static AuditEventCursor of(
+            AuditEventEntity event, Sort.Direction direction, UUID query) {
+        return new AuditEventCursor(event.getTimestamp(), event.getEventId(), direction, query);
+    }
+
+    /**
+     * Identifies a query of the events of a business object.
+     *
+     * @param businessObjectType type of business object
+     * @param businessObjectId   ID of the business object
+     * @param startTime          start time, or null
+     * @param endTime            end time, or null
+     * @return query identity
+     */
+    public static UUID businessObjectQuery(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime) {
+        return query(
+                "business-object",
+                businessObjectType,
+                businessObjectId,
+                instant(startTime),
+                instant(endTime));
+    }
+
+    /**
+     * Identifies a query of events by the context of the requests which triggered them.
+     *
+     * @param userId    ID of the user, or null
+     * @param tenantId  ID of the tenant, or null
+     * @param requestId ID of the request, or null
+     * @param traceId   ID of the trace, or null
+     * @param startTime start time, or null
+     * @param endTime   end time, or null
+     * @return query identity
+     */
+    public static UUID requestContextQuery(
+            UUID userId,
+            UUID tenantId,
+            UUID requestId,
+            UUID traceId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime) {
+        return query(
+                "request-context",
+                userId,
+                tenantId,
+                requestId,
+                traceId,
+                instant(startTime),
+                instant(endTime));
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL safe string.
+     *
+     * @return encoded cursor
+     */
+    public String encode() {
+        String position =
+                String.join(
+                        String.valueOf(SEPARATOR),
+                        timestamp.toInstant().toString(),
+                        eventId.toString(),
+                        direction.name(),
+                        query.toString());
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encode()}, to resume a query.
+     *
+     * @param cursor    encoded cursor
+     * @param direction direction the query sorts events in
+     * @param query     identity of the query
+     * @return cursor
+     * @throws ApiException if the cursor is malformed, or was read in another direction or from
+     *                      another query
+     */
+    public static AuditEventCursor decode(String cursor, Sort.Direction direction, UUID query) {
+        AuditEventCursor decoded;
+        try {
+            String[] position =
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                            .split(String.valueOf(SEPARATOR), -1);
+            if (position.length != 4) {
+                throw ApiException.Builder.badRequest("The cursor is invalid.");
+            }
+            decoded =
+                    new AuditEventCursor(
+                            OffsetDateTime.ofInstant(Instant.parse(position[0]), ZoneOffset.UTC),
+                            UUID.fromString(position[1]),
+                            Sort.Direction.valueOf(position[2]),
+                            UUID.fromString(position[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw ApiException.Builder.badRequest("The cursor is invalid.");
+        }
+
+        if (decoded.direction() != direction) {
+            throw ApiException.Builder.badRequest(
+                    "The cursor was read in another sort order; start again without a cursor.");
+        }
+        if (!decoded.query().equals(query)) {
+            throw ApiException.Builder.badRequest(
+                    "The cursor was read from another query; start again without a cursor.");
+        }
+        return decoded;
+    }
+
+    private static UUID query(Object... parameters) {
+        String identity =
+                Stream.of(parameters)
+                        .map(parameter -> Objects.toString(parameter, ""))
+                        .collect(Collectors.joining("\n"));
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Instant instant(OffsetDateTime time) {
+        return time == null ? null : time.toInstant();
+    }
+}
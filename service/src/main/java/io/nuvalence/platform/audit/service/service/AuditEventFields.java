@@ -0,0 +1,84 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.error.ApiException;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldset of audit events, naming the properties of each event to return. Payloads and
+ * related business objects are only read from the database when they are requested.
+ *
+ * @param names requested property names; null when all properties are requested
+ */
+public record AuditEventFields(Set<String> names) {
+    public static final String EVENT_ID = "eventId";
+    public static final String EVENT_DATA = "eventData";
+    public static final String ACTIVITY_TYPE = "activityType";
+    public static final String LINKS = "links";
+    public static final AuditEventFields ALL = new AuditEventFields(null);
+
+    /** Properties of an event; activityType stands for the event data without its payload. */
+    static final Set<String> PROPERTIES =
+            Set.of(
+                    EVENT_ID,
+                    "businessObject",
+                    EVENT_DATA,
+                    ACTIVITY_TYPE,
+                    "timestamp",
+                    "summary",
+                    LINKS,
+                    "requestContext");
+
+    /** Payload properties of the event data, which are not part of activityType. */
+    public static final Set<String> PAYLOAD_PROPERTIES = Set.of("data", "newState", "oldState");
+
+    /**
+     * Parses a comma separated list of property names.
+     *
+     * @param fields property names, or null for all properties
+     * @return fieldset
+     * @throws ApiException if a name is not a property of an event
+     */
+    public static AuditEventFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        Set<String> names = new LinkedHashSet<>();
+        names.add(EVENT_ID);
+        for (String name : fields.split(",")) {
+            if (!PROPERTIES.contains(name.trim())) {
+                throw ApiException.Builder.badRequest("Unknown field: " + name.trim());
+            }
+            names.add(name.trim());
+        }
+        return new AuditEventFields(names);
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public boolean includes(String name) {
+        return names == null || names.contains(name);
+    }
+
+    /**
+     * Whether the payload (activity data, or old and new state) is requested.
+     *
+     * @return true if the payload has to be read
+     */
+    public boolean includesPayload() {
+        return includes(EVENT_DATA);
+    }
+
+    /**
+     * Whether the related business objects, part of the links, are requested.
+     *
+     * @return true if the related business objects have to be read
+     */
+    public boolean includesRelatedBusinessObjects() {
+        return includes(LINKS);
+    }
+}
@@ -0,0 +1,179 @@
+package io.nuvalence.platform.audit.service.service;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers inbound audit events into size/time bounded batches, persists each batch in a single
+ * transaction and acknowledges the underlying PubSub messages only once the batch is committed.
+ * Redelivered events are skipped by the writer, so a redelivery never fails the batch. If a batch
+ * fails anyway, its messages are written one by one, so only the messages which fail on their own
+ * are nacked.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventIngestBatcher {
+    private final AuditEventBatchWriter batchWriter;
+    // messages persisted on the subscriber threads, when consumer lanes are disabled
+    private final Buffer buffer = new Buffer();
+    private final Map<Integer, Buffer> laneBuffers = new ConcurrentHashMap<>();
+
+    @Value("${ingest.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.batch.max-size:500}")
+    private int maxSize;
+
+    /**
+     * Indicates whether inbound messages should be batched.
+     *
+     * @return true if batched ingest is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the events of a message to the current batch, flushing it if it has reached its
+     * maximum size. Events from the same message are always written in the same transaction.
+     *
+     * @param entities        parsed audit events
+     * @param originalMessage PubSub message to ack once the events are persisted; may be null when
+     *                        the events did not come from PubSub
+     */
+    public void add(
+            List<AuditEventEntity> entities, BasicAcknowledgeablePubsubMessage originalMessage) {
+        buffer.add(entities, PubSubAcknowledgement.of(originalMessage));
+    }
+
+    /**
+     * Adds the events of a message to the current batch of a consumer lane. Each lane has its own
+     * batches, written one at a time in the order they were filled, so the events of a business
+     * object are committed, and nacked, in the order they were received.
+     *
+     * @param lane            consumer lane, see {@link AuditEventConsumerLanes#laneOf}
+     * @param entities        parsed audit events
+     * @param acknowledgement settles the message, or the part of it the events are, once the
+     *                        events are persisted or could not be
+     */
+    public void add(
+            int lane, List<AuditEventEntity> entities, PubSubAcknowledgement acknowledgement) {
+        laneBuffers.computeIfAbsent(lane, key -> new Buffer()).add(entities, acknowledgement);
+    }
+
+    /**
+     * Flushes whatever is buffered; runs on a fixed delay so no event waits longer than the
+     * configured maximum wait.
+     */
+    @Scheduled(fixedDelayString = "${ingest.batch.max-wait-millis:200}")
+    @PreDestroy
+    public void flush() {
+        buffer.flush();
+        laneBuffers.values().forEach(Buffer::flush);
+    }
+
+    private void write(List<PendingMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<AuditEventEntity> entities =
+                batch.stream()
+                        .flatMap(message -> message.entities().stream())
+                        .collect(Collectors.toList());
+        try {
+            int inserted = batchWriter.insertAll(entities);
+            batch.forEach(PendingMessage::ack);
+            log.info(
+                    "PubSub batch processed/persisted - {} of {} events new",
+                    inserted,
+                    entities.size());
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                log.error("PubSub message could not be persisted - {} events", entities.size(), ex);
+                batch.get(0).nack();
+                return;
+            }
+
+            log.warn(
+                    "PubSub batch could not be persisted - {} events, retrying message by message",
+                    entities.size(),
+                    ex);
+            batch.forEach(this::writeAlone);
+        }
+    }
+
+    private void writeAlone(PendingMessage message) {
+        try {
+            batchWriter.insertAll(message.entities());
+            message.ack();
+        } catch (RuntimeException ex) {
+            log.error(
+                    "PubSub message could not be persisted - {} events",
+                    message.entities().size(),
+                    ex);
+            message.nack();
+        }
+    }
+
+    /**
+     * Buffered messages and their batches. Draining and writing a batch happen under one lock, so
+     * the batches of a buffer are written one at a time, in the order they were drained.
+     */
+    private class Buffer {
+        private final Object lock = new Object();
+        private final Object writeLock = new Object();
+        private List<PendingMessage> pending = new ArrayList<>();
+        private int pendingEvents;
+
+        void add(List<AuditEventEntity> entities, PubSubAcknowledgement acknowledgement) {
+            boolean full;
+            synchronized (lock) {
+                pending.add(new PendingMessage(entities, acknowledgement));
+                pendingEvents += entities.size();
+                full = pendingEvents >= maxSize;
+            }
+
+            if (full) {
+                flush();
+            }
+        }
+
+        void flush() {
+            synchronized (writeLock) {
+                List<PendingMessage> batch;
+                synchronized (lock) {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    pendingEvents = 0;
+                }
+                write(batch);
+            }
+        }
+    }
+
+    private record PendingMessage(
+            List<AuditEventEntity> entities, PubSubAcknowledgement acknowledgement) {
+        void ack() {
+            acknowledgement.ack();
+        }
+
+        void nack() {
+            acknowledgement.nack();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package io.nuvalence.platform.audit.service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the monthly (or n-monthly) range partitions of the audit event tables on PostgreSQL.
+ *
+ * <p>Partitions are named {@code <table>_p<yyyyMM>_<yyyyMM>} after their (UTC) bounds, which is
+ * how the manager finds the end of the partitioned range. Upcoming partitions are created ahead
+ * of time; with a retention configured, partitions which ended before it are detached (not
+ * dropped), so they can be archived and dropped out of band. The related business objects are
+ * partitioned on the timestamp of their event, with identical bounds.</p>
+ *
+ * <p>Events for which no partition existed yet, e.g. dated further ahead than the premade
+ * partitions or written while partitions were not managed, land in the default partitions.
+ * PostgreSQL refuses to create a partition whose range the default partition holds rows of, so
+ * such rows are moved into the new partition as it is created.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventPartitionManager {
+    static final String EVENTS_TABLE = "audit_events";
+    static final String RELATED_TABLE = "audit_events_related_business_objects";
+    static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                    + " WHERE i.inhparent = CAST(? AS regclass)";
+
+    // 1: events table, 2: related table, 3 and 4: their new partitions, 5 and 6: bounds
+    private static final String MOVE_FROM_DEFAULT_SQL =
+            String.join(
+                    "\n",
+                    "DO $$",
+                    "BEGIN",
+                    "LOCK TABLE %1$s_default, %2$s_default IN SHARE ROW EXCLUSIVE MODE;",
+                    "CREATE TABLE %3$s (LIKE %1$s INCLUDING DEFAULTS);",
+                    "CREATE TABLE %4$s (LIKE %2$s INCLUDING DEFAULTS);",
+                    "INSERT INTO %4$s SELECT * FROM %2$s_default",
+                    "    WHERE event_timestamp >= '%5$s' AND event_timestamp < '%6$s';",
+                    "DELETE FROM %2$s_default",
+                    "    WHERE event_timestamp >= '%5$s' AND event_timestamp < '%6$s';",
+                    "INSERT INTO %3$s SELECT * FROM %1$s_default",
+                    "    WHERE \"timestamp\" >= '%5$s' AND \"timestamp\" < '%6$s';",
+                    "DELETE FROM %1$s_default",
+                    "    WHERE \"timestamp\" >= '%5$s' AND \"timestamp\" < '%6$s';",
+                    "ALTER TABLE %1$s ATTACH PARTITION %3$s FOR VALUES FROM ('%5$s') TO ('%6$s');",
+                    "ALTER TABLE %2$s ATTACH PARTITION %4$s FOR VALUES FROM ('%5$s') TO ('%6$s');",
+                    "END",
+                    "$$");
+
+    private static final String RELATED_FK = "fk_audit_events_related_business_objects";
+    private static final Pattern PARTITION_BOUNDS = Pattern.compile("_p(\\d{6})_(\\d{6})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private Boolean supported;
+
+    @Value("${partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${partitions.interval-months:1}")
+    private int intervalMonths;
+
+    @Value("${partitions.premake:3}")
+    private int premake;
+
+    @Value("${partitions.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * Creates upcoming and detaches expired partitions; runs at startup and on a fixed delay.
+     */
+    @Scheduled(fixedDelayString = "${partitions.check-interval-millis:3600000}")
+    public void run() {
+        if (!enabled || !isSupported()) {
+            return;
+        }
+
+        try {
+            manage(YearMonth.now(ZoneOffset.UTC));
+        } catch (DataAccessException ex) {
+            log.error("Audit event partitions could not be managed, will retry", ex);
+        }
+    }
+
+    void manage(YearMonth current) {
+        YearMonth coveredUntil =
+                partitions(EVENTS_TABLE).stream()
+                        .map(AuditEventPartitionManager::upperBound)
+                        .flatMap(Optional::stream)
+                        .max(YearMonth::compareTo)
+                        .orElse(null);
+
+        // periods are aligned to multiples of the interval, counting months from year 0
+        long month = current.getYear() * 12L + current.getMonthValue() - 1;
+        YearMonth start = current.minusMonths(Math.floorMod(month, intervalMonths));
+        YearMonth until = start.plusMonths((long) intervalMonths * (premake + 1));
+        for (YearMonth from = start; from.isBefore(until); from = from.plusMonths(intervalMonths)) {
+            YearMonth to = from.plusMonths(intervalMonths);
+            if (coveredUntil != null && !to.isAfter(coveredUntil)) {
+                continue;
+            }
+            // the first period may be cut short by a partition with different bounds
+            YearMonth effectiveFrom =
+                    coveredUntil != null && coveredUntil.isAfter(from) ? coveredUntil : from;
+            if (hasDefaultRows(effectiveFrom, to)) {
+                createFromDefault(effectiveFrom, to);
+            } else {
+                create(EVENTS_TABLE, effectiveFrom, to);
+                create(RELATED_TABLE, effectiveFrom, to);
+            }
+        }
+
+        if (retentionMonths > 0) {
+            detachExpired(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private void create(String table, YearMonth from, YearMonth to) {
+        String partition = partitionName(table, from, to);
+        jdbcTemplate.execute(
+                String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s')"
+                                + " TO ('%s')",
+                        partition, table, bound(from), bound(to)));
+        log.debug("Ensured audit event partition {}", partition);
+    }
+
+    private boolean hasDefaultRows(YearMonth from, YearMonth to) {
+        Boolean exists =
+                jdbcTemplate.queryForObject(
+                        String.format(
+                                "SELECT EXISTS (SELECT 1 FROM %s_default"
+                                        + " WHERE \"timestamp\" >= CAST(? AS timestamptz)"
+                                        + " AND \"timestamp\" < CAST(? AS timestamptz))",
+                                EVENTS_TABLE),
+                        Boolean.class,
+                        bound(from),
+                        bound(to));
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Creates the partitions of a period as plain tables, moves the period's rows out of the
+     * default partitions into them and attaches them, in one transaction. Writes to the default
+     * partitions wait meanwhile; related business objects are moved before the events they
+     * reference.
+     */
+    private void createFromDefault(YearMonth from, YearMonth to) {
+        String partition = partitionName(EVENTS_TABLE, from, to);
+        jdbcTemplate.execute(
+                String.format(
+                        MOVE_FROM_DEFAULT_SQL,
+                        EVENTS_TABLE,
+                        RELATED_TABLE,
+                        partition,
+                        partitionName(RELATED_TABLE, from, to),
+                        bound(from),
+                        bound(to)));
+        log.warn("Moved audit events out of the default partition into {}", partition);
+    }
+
+    private void detachExpired(YearMonth cutoff) {
+        // related business objects reference their events, so they are detached first
+        for (String partition : partitions(RELATED_TABLE)) {
+            if (isExpired(partition, cutoff)) {
+                jdbcTemplate.execute(
+                        String.format(
+                                "ALTER TABLE %s DETACH PARTITION %s", RELATED_TABLE, partition));
+                jdbcTemplate.execute(
+                        String.format(
+                                "ALTER TABLE %s DROP CONSTRAINT IF EXISTS %s",
+                                partition, RELATED_FK));
+                log.info("Detached expired audit event partition {}", partition);
+            }
+        }
+        for (String partition : partitions(EVENTS_TABLE)) {
+            if (isExpired(partition, cutoff)) {
+                jdbcTemplate.execute(
+                        String.format(
+                                "ALTER TABLE %s DETACH PARTITION %s", EVENTS_TABLE, partition));
+                log.info("Detached expired audit event partition {}", partition);
+            }
+        }
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table);
+    }
+
+    private boolean isSupported() {
+        if (supported == null) {
+            String product =
+                    jdbcTemplate.execute(
+                            (ConnectionCallback<String>)
+                                    connection ->
+                                            connection.getMetaData().getDatabaseProductName());
+            supported = "PostgreSQL".equals(product);
+            if (!supported) {
+                log.info("Audit event partitions are not managed on {}", product);
+            }
+        }
+        return supported;
+    }
+
+    private static boolean isExpired(String partition, YearMonth cutoff) {
+        return upperBound(partition).map(to -> !to.isAfter(cutoff)).orElse(false);
+    }
+
+    private static Optional<YearMonth> upperBound(String partition) {
+        Matcher matcher = PARTITION_BOUNDS.matcher(partition);
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        String to = matcher.group(2);
+        return Optional.of(
+                YearMonth.of(
+                        Integer.parseInt(to.substring(0, 4)), Integer.parseInt(to.substring(4))));
+    }
+
+    private static String partitionName(String table, YearMonth from, YearMonth to) {
+        return String.format(
+                "%s_p%04d%02d_%04d%02d",
+                table, from.getYear(), from.getMonthValue(), to.getYear(), to.getMonthValue());
+    }
+
+    private static String bound(YearMonth month) {
+        return month.atDay(1) + " 00:00:00+00";
+    }
+}
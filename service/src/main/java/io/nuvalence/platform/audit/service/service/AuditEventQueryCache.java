@@ -0,0 +1,319 @@
+package io.nuvalence.platform.audit.service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventsInsertedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of audit event query results, keyed by business object and normalized query.
+ *
+ * <p>Entries are bounded by the number of events they hold and expire after a TTL. When events of
+ * a business object are inserted, its entries are invalidated once the insert commits. On
+ * PostgreSQL the invalidation is also broadcast to every replica with NOTIFY, received by
+ * {@link AuditEventQueryCacheListener}. Broadcasts are sent after the insert commits, off the
+ * committing thread, with the business objects of every commit since the last one collapsed into
+ * a single notification; until it arrives, other replicas may serve stale results, which are
+ * never older than the TTL.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventQueryCache {
+    static final String CHANNEL = "audit_event_queries";
+    static final String CACHE_NAME = "audit-event-queries";
+    private static final char SEPARATOR = '/';
+    private static final char DELIMITER = '\n';
+    // PostgreSQL rejects NOTIFY payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong invalidationSequence = new AtomicLong();
+    private final Set<BusinessObject> unbroadcast = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean broadcastQueued = new AtomicBoolean();
+    private ExecutorService broadcaster;
+    private volatile long allInvalidated;
+    private Cache<Key, Object> cache;
+    private Cache<BusinessObject, Long> invalidations;
+    private Counter invalidationCounter;
+    private Boolean broadcastSupported;
+
+    @Value("${query-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query-cache.max-events:50000}")
+    private long maxEvents;
+
+    @Value("${query-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    /**
+     * Creates the cache, if enabled, and binds its hit, miss, eviction and size metrics.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        cache =
+                Caffeine.newBuilder()
+                        .maximumWeight(maxEvents)
+                        .weigher(AuditEventQueryCache::weigh)
+                        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                        .recordStats()
+                        .build();
+        // no load outlasts the TTL, so older invalidations cannot race a load
+        invalidations =
+                Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(ttlSeconds)).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationCounter =
+                Counter.builder("cache.invalidations")
+                        .tag("cache", CACHE_NAME)
+                        .description("Business objects whose cached queries were invalidated")
+                        .register(meterRegistry);
+        broadcaster =
+                Executors.newSingleThreadExecutor(
+                        runnable -> new Thread(runnable, "audit-query-cache-broadcast"));
+    }
+
+    /**
+     * Stops broadcasting; pending invalidations are left to expire with the TTL on other replicas.
+     */
+    @PreDestroy
+    public void stop() {
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached result of a query of a business object's events, loading and caching it
+     * on a miss. A result is not cached if the business object is invalidated while it loads.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param query              normalized query parameters, compared by equality
+     * @param loader             runs the query
+     * @param <T>                result type
+     * @return query result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(
+            String businessObjectType, UUID businessObjectId, List<?> query, Supplier<T> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+
+        var businessObject = new BusinessObject(businessObjectType, businessObjectId);
+        var key = new Key(businessObject, query);
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long sequence = invalidationSequence.get();
+        T result = loader.get();
+        Long invalidated = invalidations.getIfPresent(businessObject);
+        if (result != null
+                && allInvalidated <= sequence
+                && (invalidated == null || invalidated <= sequence)) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the cached queries of a business object on this replica.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     */
+    public void invalidateLocally(String businessObjectType, UUID businessObjectId) {
+        if (cache == null) {
+            return;
+        }
+
+        var businessObject = new BusinessObject(businessObjectType, businessObjectId);
+        invalidations.put(businessObject, invalidationSequence.incrementAndGet());
+        cache.asMap().keySet().removeIf(key -> key.businessObject().equals(businessObject));
+        invalidationCounter.increment();
+    }
+
+    /**
+     * Drops every cached query on this replica, for when invalidations may have been missed.
+     */
+    public void invalidateAllLocally() {
+        if (cache != null) {
+            allInvalidated = invalidationSequence.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Invalidates the cached queries of the business objects of inserted events, once they are
+     * committed, and queues their broadcast to every replica.
+     *
+     * @param event inserted events
+     */
+    @TransactionalEventListener
+    public void onInserted(AuditEventsInsertedEvent event) {
+        Set<BusinessObject> businessObjects = businessObjects(event.events());
+        businessObjects.forEach(
+                businessObject -> invalidateLocally(businessObject.type(), businessObject.id()));
+        if (!isEnabled() || !isBroadcastSupported()) {
+            return;
+        }
+
+        unbroadcast.addAll(businessObjects);
+        if (broadcastQueued.compareAndSet(false, true)) {
+            try {
+                broadcaster.execute(this::broadcast);
+            } catch (RejectedExecutionException ex) {
+                // shutting down
+                broadcastQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Notifies every replica of the business objects inserted since the last broadcast, in as few
+     * notifications as their payload allows, usually one.
+     */
+    void broadcast() {
+        // cleared first, so business objects added from here on queue the next broadcast
+        broadcastQueued.set(false);
+        List<String> encoded = new ArrayList<>();
+        for (Iterator<BusinessObject> it = unbroadcast.iterator(); it.hasNext(); ) {
+            encoded.add(encode(it.next()));
+            it.remove();
+        }
+
+        try {
+            for (String payload : payloads(encoded)) {
+                jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+            }
+        } catch (DataAccessException ex) {
+            log.warn(
+                    "Audit event query invalidations could not be broadcast, other replicas"
+                            + " expire them with the TTL",
+                    ex);
+        }
+    }
+
+    /**
+     * Applies the invalidations of a notification received from any replica.
+     *
+     * @param payload notification payload, as sent by {@link #broadcast}
+     */
+    void onNotification(String payload) {
+        for (String encoded : payload.split(String.valueOf(DELIMITER))) {
+            int separator = encoded.lastIndexOf(SEPARATOR);
+            try {
+                invalidateLocally(
+                        encoded.substring(0, separator),
+                        UUID.fromString(encoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                log.warn("Ignored malformed audit event query invalidation: {}", encoded);
+            }
+        }
+    }
+
+    /**
+     * Whether invalidations are broadcast; only PostgreSQL supports LISTEN/NOTIFY.
+     *
+     * @return true on PostgreSQL
+     */
+    boolean isBroadcastSupported() {
+        if (broadcastSupported == null) {
+            String product =
+                    jdbcTemplate.execute(
+                            (ConnectionCallback<String>)
+                                    connection ->
+                                            connection.getMetaData().getDatabaseProductName());
+            broadcastSupported = "PostgreSQL".equals(product);
+        }
+        return broadcastSupported;
+    }
+
+    static String encode(BusinessObject businessObject) {
+        return businessObject.type() + SEPARATOR + businessObject.id();
+    }
+
+    private static List<String> payloads(List<String> encoded) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        int payloadBytes = 0;
+        for (String businessObject : encoded) {
+            int bytes = businessObject.getBytes(StandardCharsets.UTF_8).length;
+            if (payloadBytes > 0 && payloadBytes + 1 + bytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payloadBytes = 0;
+            }
+            if (payloadBytes > 0) {
+                payload.append(DELIMITER);
+                payloadBytes++;
+            }
+            payload.append(businessObject);
+            payloadBytes += bytes;
+        }
+        if (payloadBytes > 0) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    private static Set<BusinessObject> businessObjects(List<AuditEventEntity> events) {
+        Set<BusinessObject> businessObjects = new LinkedHashSet<>();
+        for (AuditEventEntity event : events) {
+            businessObjects.add(
+                    new BusinessObject(event.getBusinessObjectType(), event.getBusinessObjectId()));
+        }
+        return businessObjects;
+    }
+
+    /** Weighs cached results by the number of events they hold. */
+    private static int weigh(Key key, Object result) {
+        return result instanceof Slice<?> slice ? Math.max(1, slice.getNumberOfElements()) : 1;
+    }
+
+    record BusinessObject(String type, UUID id) {}
+
+    private record Key(BusinessObject businessObject, List<?> query) {}
+}
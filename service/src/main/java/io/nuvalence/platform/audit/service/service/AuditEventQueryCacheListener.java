@@ -0,0 +1,113 @@
+package io.nuvalence.platform.audit.service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Receives the audit event query invalidations broadcast by every replica, including this one,
+ * with PostgreSQL LISTEN/NOTIFY, and applies them to the local {@link AuditEventQueryCache}.
+ *
+ * <p>A single thread holds a dedicated connection to listen on, opened outside the connection
+ * pool so the subscribed session is never handed to another caller; closing it ends the session
+ * and with it the subscription. While it is not listening, notifications are missed, so the whole
+ * cache is dropped each time it starts listening.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventQueryCacheListener {
+    private final DataSourceProperties dataSourceProperties;
+    private final AuditEventQueryCache queryCache;
+    private Thread thread;
+    private volatile boolean running;
+
+    @Value("${query-cache.listen.poll-millis:1000}")
+    private int pollMillis;
+
+    @Value("${query-cache.listen.retry-millis:5000}")
+    private long retryMillis;
+
+    /**
+     * Starts listening, if the cache is enabled and invalidations are broadcast.
+     */
+    @PostConstruct
+    public void start() {
+        if (!queryCache.isEnabled() || !queryCache.isBroadcastSupported()) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this::run, "audit-query-cache-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops listening and releases the connection.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(pollMillis + 1000L);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = connect()) {
+                listen(connection);
+            } catch (SQLException ex) {
+                log.warn("Audit event query invalidations could not be received, will retry", ex);
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + AuditEventQueryCache.CHANNEL);
+        }
+        queryCache.invalidateAllLocally();
+        log.info("Listening for audit event query invalidations");
+
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    queryCache.onNotification(notification.getParameter());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in the full-text search index of the audit events written before it existed, one batch
+ * in one transaction per run, so searches find them too without a run ever holding a scheduler
+ * thread for long.
+ *
+ * <p>New events are indexed as they are written, so once a run finds fewer unindexed events than
+ * a batch the backfill is complete and later runs do nothing until the next start. Replicas
+ * backfill concurrently without indexing the same events, as each skips the rows others have
+ * locked. Databases without the index have nothing to backfill.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventSearchBackfill {
+    private final AuditEventRepository auditEventRepository;
+    private boolean complete;
+    private long indexed;
+
+    @Value("${search.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.backfill.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Indexes a batch of unindexed events; runs at startup and on a fixed delay until the
+     * backfill is complete.
+     */
+    @Scheduled(fixedDelayString = "${search.backfill.interval-millis:1000}")
+    public void run() {
+        if (!enabled || complete) {
+            return;
+        }
+
+        try {
+            int batch = auditEventRepository.indexUnindexedEvents(batchSize);
+            indexed += batch;
+            if (batch < batchSize) {
+                // a short batch means the rest, if any, is locked by another replica's backfill
+                complete = true;
+                if (indexed > 0) {
+                    log.info("Indexed {} audit events for search", indexed);
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.error("Audit events could not be indexed for search, will retry", ex);
+        }
+    }
+}
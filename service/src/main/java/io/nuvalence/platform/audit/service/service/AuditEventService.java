@@ -2,16 +2,22 @@ package io.nuvalence.platform.audit.service.service;
 
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.error.ApiException;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
 import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import io.nuvalence.platform.audit.service.repository.AuditEventsVersion;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service layer to manage audit events.
@@ -23,7 +29,17 @@ public class AuditEventService {
     private final AuditEventRepository auditEventRepository;
     private final PubSubService pubSubService;
 
-    private static void checkTimeRange(OffsetDateTime startTime, OffsetDateTime endTime) {
+    @Value("${export.fetch-size:500}")
+    private int exportFetchSize;
+
+    /**
+     * Rejects a time range which ends before it starts.
+     *
+     * @param startTime start time (inclusive), or null
+     * @param endTime   end time (exclusive), or null
+     * @throws ApiException if the start time is after the end time
+     */
+    public static void checkTimeRange(OffsetDateTime startTime, OffsetDateTime endTime) {
         if (startTime != null && endTime != null && startTime.isAfter(endTime)) {
             throw ApiException.Builder.badRequest(
                     "The startTime cannot be greater than the endTime.");
@@ -33,13 +49,40 @@ public class AuditEventService {
     static PageRequest createPageable(
             Integer pageNumber, Integer pageSize, String sortOrder, String sortBy) {
         try {
-            Sort.Direction sortDirection = Sort.Direction.fromString(sortOrder);
-            return PageRequest.of(pageNumber, pageSize, sortDirection, sortBy);
+            return PageRequest.of(pageNumber, pageSize, sortDirection(sortOrder), sortBy);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.Builder.badRequest(e.getMessage());
+        }
+    }
+
+    private static Sort.Direction sortDirection(String sortOrder) {
+        try {
+            return Sort.Direction.fromString(sortOrder);
         } catch (IllegalArgumentException e) {
             throw ApiException.Builder.badRequest(e.getMessage());
         }
     }
 
+    /**
+     * Loads the related business objects of a page of events in one query, if they are requested,
+     * so the page can be mapped once the transaction has ended.
+     */
+    private <S extends Slice<AuditEventEntity>> S withRelatedBusinessObjects(
+            S events, AuditEventFields fields) {
+        withRelatedBusinessObjects(events.getContent(), fields);
+        return events;
+    }
+
+    private List<AuditEventEntity> withRelatedBusinessObjects(
+            List<AuditEventEntity> events, AuditEventFields fields) {
+        if (fields.includesRelatedBusinessObjects()) {
+            auditEventRepository.loadRelatedBusinessObjects(events);
+        } else {
+            auditEventRepository.detachWithoutRelatedBusinessObjects(events);
+        }
+        return events;
+    }
+
     /**
      * Queries audit events from db.
      *
@@ -65,14 +108,421 @@ public class AuditEventService {
             Integer pageSize,
             String sortOrder,
             String sortBy) {
+        return findAuditEvents(
+                businessObjectType,
+                businessObjectId,
+                startTime,
+                endTime,
+                pageNumber,
+                pageSize,
+                sortOrder,
+                sortBy,
+                AuditEventFields.ALL,
+                AuditEventAccessFilter.ALLOW_ALL);
+    }
+
+    /**
+     * Queries audit events from db, reading only the columns of the requested fields.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Start time (inclusive), or null.
+     * @param endTime            End time (exclusive), or null.
+     * @param pageNumber         Results page number.
+     * @param pageSize           Results page size.
+     * @param sortOrder          Controls whether results are returned in chronologically ascending or descending order.
+     * @param sortBy             Specifies the field to sort results by.
+     * @param fields             Fields of the events to read.
+     * @param access             Events the principal may access.
+     * @return page object containing db query results and pagination metadata
+     */
+    @Transactional(readOnly = true)
+    public Page<AuditEventEntity> findAuditEvents(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Integer pageNumber,
+            Integer pageSize,
+            String sortOrder,
+            String sortBy,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
+        checkTimeRange(startTime, endTime);
+
+        return withRelatedBusinessObjects(
+                auditEventRepository.findAll(
+                        businessObjectType,
+                        businessObjectId,
+                        startTime,
+                        endTime,
+                        createPageable(pageNumber, pageSize, sortOrder, sortBy),
+                        fields.includesPayload(),
+                        access),
+                fields);
+    }
+
+    /**
+     * Queries audit events from db, without counting all matching events.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Specifies a start time (inclusive) for filtering results to events which occurred at
+     *                           or after the specified time.
+     * @param endTime            Specifies an end time (exclusive)for filtering results to events which occurred before
+     *                           the specified time.
+     * @param pageNumber         Results page number.
+     * @param pageSize           Results page size.
+     * @param sortOrder          Controls whether results are returned in chronologically ascending or descending order.
+     * @param sortBy             Specifies the field to sort results by.
+     * @param fields             Fields of the events to read.
+     * @param access             Events the principal may access.
+     * @return slice containing db query results
+     */
+    @Transactional(readOnly = true)
+    public Slice<AuditEventEntity> findAuditEventSlice(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Integer pageNumber,
+            Integer pageSize,
+            String sortOrder,
+            String sortBy,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
+        checkTimeRange(startTime, endTime);
+
+        return withRelatedBusinessObjects(
+                auditEventRepository.findSlice(
+                        businessObjectType,
+                        businessObjectId,
+                        startTime,
+                        endTime,
+                        createPageable(pageNumber, pageSize, sortOrder, sortBy),
+                        fields.includesPayload(),
+                        access),
+                fields);
+    }
+
+    /**
+     * Queries the audit events of any business object which name a business object among their
+     * related business objects, without counting all matching events.
+     *
+     * @param relatedBusinessObject Related business object, as recorded in the events' links.
+     * @param startTime             Start time (inclusive), or null.
+     * @param endTime               End time (exclusive), or null.
+     * @param pageNumber            Results page number.
+     * @param pageSize              Results page size.
+     * @param sortOrder             Ascending or descending order.
+     * @param sortBy                Specifies the field to sort results by.
+     * @param fields                Fields of the events to read.
+     * @param access                Events the principal may access.
+     * @return slice containing db query results
+     */
+    @Transactional(readOnly = true)
+    public Slice<AuditEventEntity> findRelatedAuditEvents(
+            String relatedBusinessObject,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Integer pageNumber,
+            Integer pageSize,
+            String sortOrder,
+            String sortBy,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
         checkTimeRange(startTime, endTime);
 
-        return auditEventRepository.findAll(
+        return withRelatedBusinessObjects(
+                auditEventRepository.findRelatedSlice(
+                        relatedBusinessObject,
+                        startTime,
+                        endTime,
+                        createPageable(pageNumber, pageSize, sortOrder, sortBy),
+                        fields.includesPayload(),
+                        access),
+                fields);
+    }
+
+    /**
+     * Queries a page of audit events from db in timestamp order, resuming after a cursor.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Specifies a start time (inclusive) for filtering results to events which occurred at
+     *                           or after the specified time.
+     * @param endTime            Specifies an end time (exclusive)for filtering results to events which occurred before
+     *                           the specified time.
+     * @param cursor             Cursor from the previous page of the same query, or null for the
+     *                           first page.
+     * @param pageSize           Results page size.
+     * @param sortOrder          Controls whether results are returned in chronologically ascending or descending order.
+     * @param sortBy             Specifies the field to sort results by; only timestamp is supported.
+     * @param fields             Fields of the events to read.
+     * @param access             Events the principal may access.
+     * @return slice containing db query results
+     */
+    @Transactional(readOnly = true)
+    public Slice<AuditEventEntity> findAuditEventsAfter(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String cursor,
+            Integer pageSize,
+            String sortOrder,
+            String sortBy,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
+        checkTimeRange(startTime, endTime);
+        if (!"timestamp".equals(sortBy)) {
+            throw ApiException.Builder.badRequest(
+                    "Cursor paging is only supported when sorting by timestamp.");
+        }
+
+        var direction = sortDirection(sortOrder);
+        var after =
+                cursor == null
+                        ? null
+                        : AuditEventCursor.decode(
+                                cursor,
+                                direction,
+                                AuditEventCursor.businessObjectQuery(
+                                        businessObjectType, businessObjectId, startTime, endTime));
+        return withRelatedBusinessObjects(
+                auditEventRepository.findAllAfter(
+                        businessObjectType,
+                        businessObjectId,
+                        startTime,
+                        endTime,
+                        after == null ? null : after.timestamp(),
+                        after == null ? null : after.eventId(),
+                        direction,
+                        pageSize,
+                        fields.includesPayload(),
+                        access),
+                fields);
+    }
+
+    /**
+     * Queries a page of audit events of any business object by the context of the requests which
+     * triggered them, in timestamp order, resuming after a cursor.
+     *
+     * @param userId    ID of the user, or null.
+     * @param tenantId  ID of the tenant, or null.
+     * @param requestId ID of the request, or null.
+     * @param traceId   ID of the trace, or null.
+     * @param startTime Start time (inclusive), or null.
+     * @param endTime   End time (exclusive), or null.
+     * @param cursor    Cursor from the previous page of the same query, or null for the first
+     *                  page.
+     * @param pageSize  Results page size.
+     * @param sortOrder Controls whether results are returned in ascending or descending order.
+     * @param fields    Fields of the events to read.
+     * @param access    Events the principal may access.
+     * @return slice containing db query results
+     * @throws ApiException if none of the request context fields is given
+     */
+    @Transactional(readOnly = true)
+    public Slice<AuditEventEntity> findAuditEventsByRequestContext(
+            UUID userId,
+            UUID tenantId,
+            UUID requestId,
+            UUID traceId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String cursor,
+            Integer pageSize,
+            String sortOrder,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
+        checkTimeRange(startTime, endTime);
+        if (userId == null && tenantId == null && requestId == null && traceId == null) {
+            throw ApiException.Builder.badRequest(
+                    "One of userId, tenantId, requestId or traceId is required.");
+        }
+
+        var direction = sortDirection(sortOrder);
+        var after =
+                cursor == null
+                        ? null
+                        : AuditEventCursor.decode(
+                                cursor,
+                                direction,
+                                AuditEventCursor.requestContextQuery(
+                                        userId, tenantId, requestId, traceId, startTime, endTime));
+        return withRelatedBusinessObjects(
+                auditEventRepository.findByRequestContextAfter(
+                        userId,
+                        tenantId,
+                        requestId,
+                        traceId,
+                        startTime,
+                        endTime,
+                        after == null ? null : after.timestamp(),
+                        after == null ? null : after.eventId(),
+                        direction,
+                        pageSize,
+                        fields.includesPayload(),
+                        access),
+                fields);
+    }
+
+    /**
+     * Searches the summaries and payloads of the audit events of a tenant for words.
+     *
+     * @param text      Words to search for, in web search syntax.
+     * @param tenantId  ID of the tenant the events belong to.
+     * @param startTime Start time (inclusive), or null.
+     * @param endTime   End time (exclusive), or null.
+     * @param sortBy    relevance, or timestamp for the latest events first.
+     * @param limit     Maximum number of events.
+     * @param fields    Fields of the events to read.
+     * @param access    Events the principal may access.
+     * @return matching events, in order
+     * @throws ApiException if the search has no words or sortBy is unknown
+     */
+    @Transactional(readOnly = true)
+    public List<AuditEventEntity> searchAuditEvents(
+            String text,
+            UUID tenantId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String sortBy,
+            Integer limit,
+            AuditEventFields fields,
+            AuditEventAccessFilter access) {
+        checkTimeRange(startTime, endTime);
+        if (text == null || text.isBlank()) {
+            throw ApiException.Builder.badRequest("The search text cannot be blank.");
+        }
+        if (!"relevance".equals(sortBy) && !"timestamp".equals(sortBy)) {
+            throw ApiException.Builder.badRequest(
+                    "Search results can only be sorted by relevance or timestamp.");
+        }
+
+        return withRelatedBusinessObjects(
+                auditEventRepository.search(
+                        text,
+                        tenantId,
+                        startTime,
+                        endTime,
+                        "relevance".equals(sortBy),
+                        limit,
+                        access),
+                fields);
+    }
+
+    /**
+     * Reads a single audit event of a business object, with its payload and related business
+     * objects.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param eventId            Unique identifier of the event.
+     * @param access             Events the principal may access.
+     * @return the event
+     * @throws ApiException if the business object has no such event the principal may access
+     */
+    @Transactional(readOnly = true)
+    public AuditEventEntity findAuditEvent(
+            String businessObjectType,
+            UUID businessObjectId,
+            UUID eventId,
+            AuditEventAccessFilter access) {
+        AuditEventEntity event =
+                auditEventRepository
+                        .findOne(businessObjectType, businessObjectId, eventId, access)
+                        .orElseThrow(
+                                () -> ApiException.Builder.notFound("The event was not found."));
+        auditEventRepository.loadRelatedBusinessObjects(List.of(event));
+        return event;
+    }
+
+    /**
+     * Counts the audit events of a business object.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Start time (inclusive), or null.
+     * @param endTime            End time (exclusive), or null.
+     * @param access             Events the principal may access.
+     * @return number of events
+     */
+    @Transactional(readOnly = true)
+    public long countAuditEvents(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            AuditEventAccessFilter access) {
+        return auditEventRepository.count(
+                auditEventRepository.findAllSpec(
+                        businessObjectId, businessObjectType, startTime, endTime, access));
+    }
+
+    /**
+     * Reads the version of the audit events of a business object, which changes whenever an
+     * event is added.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @return number of events and timestamp of the latest
+     */
+    @Transactional(readOnly = true)
+    public AuditEventsVersion findAuditEventsVersion(
+            String businessObjectType, UUID businessObjectId) {
+        return auditEventRepository.findVersion(businessObjectType, businessObjectId);
+    }
+
+    /**
+     * Estimates the number of audit events of a business object from database statistics.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Start time (inclusive), or null.
+     * @param endTime            End time (exclusive), or null.
+     * @return estimated number of events
+     */
+    @Transactional(readOnly = true)
+    public long estimateAuditEvents(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime) {
+        return auditEventRepository.estimateCount(
+                businessObjectType, businessObjectId, startTime, endTime);
+    }
+
+    /**
+     * Reads all audit events of a business object in timestamp order, passing each to an action
+     * as it is read from the database. Memory use does not grow with the number of events.
+     *
+     * @param businessObjectType Type of business object.
+     * @param businessObjectId   Unique identifier for a business object of the specified type.
+     * @param startTime          Start time (inclusive), or null.
+     * @param endTime            End time (exclusive), or null.
+     * @param access             Events the principal may access.
+     * @param action             action to apply to each event
+     */
+    @Transactional(readOnly = true)
+    public void exportAuditEvents(
+            String businessObjectType,
+            UUID businessObjectId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            AuditEventAccessFilter access,
+            Consumer<AuditEventEntity> action) {
+        checkTimeRange(startTime, endTime);
+
+        auditEventRepository.forEach(
                 businessObjectType,
                 businessObjectId,
                 startTime,
                 endTime,
-                createPageable(pageNumber, pageSize, sortOrder, sortBy));
+                exportFetchSize,
+                access,
+                action);
     }
 
     /**
@@ -84,4 +534,14 @@ public class AuditEventService {
     public AuditEventEntity addAuditEvent(AuditEventEntity auditEvent) {
         return pubSubService.publish(auditEvent);
     }
+
+    /**
+     * Creates a batch of audit events, possibly for different entities.
+     *
+     * @param auditEvents audit event data
+     * @return created events, with their event identifiers
+     */
+    public List<AuditEventEntity> addAuditEvents(List<AuditEventEntity> auditEvents) {
+        return pubSubService.publishAll(auditEvents);
+    }
 }
@@ -0,0 +1,301 @@
+package io.nuvalence.platform.audit.service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped spool on local disk for PubSub messages which could not be published.
+ *
+ * <p>Messages are appended to the current segment file as length and CRC prefixed records; the
+ * segment is forced to disk on a fixed delay rather than on every append, so appends never wait
+ * for an fsync. Sealed segments are handed to the {@link AuditEventSpoolReplayer}, which deletes
+ * them once they have been drained.</p>
+ *
+ * <p>Segments are named after the instance which wrote them, and an instance only seals and
+ * replays its own, so an open segment of another instance sharing the directory is never taken
+ * for a sealed one. The instance ID must therefore be stable across restarts, such as the pod name
+ * of a StatefulSet, for an instance to replay what it spooled before it restarted.</p>
+ */
+@Slf4j
+@Component
+public class AuditEventSpool {
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 1;
+    private static final byte BATCH_FLAG = 1;
+    private static final byte PROTOBUF_FLAG = 2;
+
+    private final Object lock = new Object();
+    private FileChannel currentChannel;
+    private MappedByteBuffer current;
+    private Path currentPath;
+    private boolean dirty;
+
+    @Value("${spool.enabled:false}")
+    private boolean enabled;
+
+    @Value("${spool.directory:/var/spool/audit-service}")
+    private String directory;
+
+    @Value("${spool.segment-size-bytes:67108864}")
+    private int segmentSize;
+
+    // a field default, as @Value fields are not injected when the spool is built by hand
+    @Value("${spool.instance-id:local}")
+    private String instanceId = "local";
+
+    /**
+     * A spooled PubSub message.
+     *
+     * @param payload  serialized message payload
+     * @param batch    whether the payload is a JSON array of audit events
+     * @param protobuf whether the payload is a protobuf envelope rather than JSON
+     */
+    public record SpooledMessage(byte[] payload, boolean batch, boolean protobuf) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SpooledMessage message
+                    && Arrays.equals(payload, message.payload)
+                    && batch == message.batch
+                    && protobuf == message.protobuf;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(payload), batch, protobuf);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "SpooledMessage[%d bytes, batch=%s, protobuf=%s]",
+                    payload.length, batch, protobuf);
+        }
+    }
+
+    /**
+     * Indicates whether failed publishes should be spooled.
+     *
+     * @return true if the spool is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a message to the current segment. The record is durable after the next sync.
+     *
+     * @param message message to spool
+     * @throws IOException if the segment could not be created or mapped
+     */
+    public void append(SpooledMessage message) throws IOException {
+        byte[] payload = message.payload();
+        int bodyLength = payload.length + 1;
+        byte flags = 0;
+        if (message.batch()) {
+            flags |= BATCH_FLAG;
+        }
+        if (message.protobuf()) {
+            flags |= PROTOBUF_FLAG;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(flags);
+        crc.update(payload);
+
+        synchronized (lock) {
+            if (current == null || current.remaining() < HEADER_BYTES + bodyLength) {
+                roll(HEADER_BYTES + bodyLength);
+            }
+            current.putInt(bodyLength);
+            current.putInt((int) crc.getValue());
+            current.put(flags);
+            current.put(payload);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forces appended records to disk; runs on a fixed delay so fsyncs are batched.
+     */
+    @Scheduled(fixedDelayString = "${spool.fsync-interval-millis:100}")
+    public void sync() {
+        synchronized (lock) {
+            if (dirty) {
+                current.force();
+                dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Seals the current segment, if it holds any records, and lists the sealed segments of this
+     * instance.
+     *
+     * @return sealed segments, oldest first
+     * @throws IOException if the spool directory could not be read
+     */
+    public List<Path> seal() throws IOException {
+        Path open;
+        synchronized (lock) {
+            if (current != null && current.position() > 0) {
+                closeCurrent();
+            }
+            open = currentPath;
+        }
+
+        Path spoolDirectory = Paths.get(directory);
+        if (!Files.isDirectory(spoolDirectory)) {
+            return List.of();
+        }
+
+        String prefix = segmentPrefix();
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.filter(path -> isSegment(path.getFileName().toString(), prefix))
+                    .filter(path -> !path.equals(open))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the records of a sealed segment. Reading stops at the first torn or corrupt record,
+     * which can only be the tail of a segment that was being written when the process died.
+     *
+     * @param segment sealed segment
+     * @return spooled messages, in append order
+     * @throws IOException if the segment could not be read
+     */
+    public List<SpooledMessage> read(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<SpooledMessage> messages = new ArrayList<>();
+
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int bodyLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (bodyLength <= 0 || bodyLength > buffer.remaining()) {
+                break;
+            }
+
+            byte[] body = new byte[bodyLength];
+            buffer.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Corrupt record in spool segment {}, skipping remainder", segment);
+                break;
+            }
+
+            messages.add(
+                    new SpooledMessage(
+                            Arrays.copyOfRange(body, 1, bodyLength),
+                            (body[0] & BATCH_FLAG) != 0,
+                            (body[0] & PROTOBUF_FLAG) != 0));
+        }
+
+        return messages;
+    }
+
+    /**
+     * Deletes a drained segment.
+     *
+     * @param segment sealed segment
+     * @throws IOException if the segment could not be deleted
+     */
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    /**
+     * Forces and closes the current segment on shutdown.
+     *
+     * @throws IOException if the segment could not be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (current != null) {
+                closeCurrent();
+            }
+        }
+    }
+
+    private void roll(int minimumSize) throws IOException {
+        if (current != null) {
+            closeCurrent();
+        }
+
+        Path spoolDirectory = Files.createDirectories(Paths.get(directory));
+        currentPath =
+                spoolDirectory.resolve(
+                        String.format(
+                                "%s%020d%s",
+                                segmentPrefix(), System.currentTimeMillis(), SEGMENT_SUFFIX));
+        while (Files.exists(currentPath)) {
+            currentPath = incrementName(currentPath, segmentPrefix());
+        }
+
+        currentChannel =
+                FileChannel.open(
+                        currentPath,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        current =
+                currentChannel.map(
+                        FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize));
+        log.info("Opened spool segment {}", currentPath);
+    }
+
+    private void closeCurrent() throws IOException {
+        current.force();
+        // drop the unused, zero filled tail of the mapping
+        currentChannel.truncate(current.position());
+        currentChannel.close();
+        current = null;
+        currentChannel = null;
+        currentPath = null;
+        dirty = false;
+    }
+
+    private String segmentPrefix() {
+        // the instance ID is a host or pod name; anything else is kept out of the file name
+        return SEGMENT_PREFIX + instanceId.replaceAll("[^A-Za-z0-9.-]", "_") + "-";
+    }
+
+    private static boolean isSegment(String name, String prefix) {
+        // another instance's ID may start with this one's, but is not followed by the sequence
+        return name.startsWith(prefix)
+                && name.endsWith(SEGMENT_SUFFIX)
+                && name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length())
+                        .matches("\\d+");
+    }
+
+    private static Path incrementName(Path path, String prefix) {
+        String name = path.getFileName().toString();
+        long sequence =
+                Long.parseLong(
+                        name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length()));
+        return path.resolveSibling(
+                String.format("%s%020d%s", prefix, sequence + 1, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,57 @@
+package io.nuvalence.platform.audit.service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Drains sealed {@link AuditEventSpool} segments, oldest first, either back to PubSub or in bulk
+ * to the database. A segment is only deleted once all of its messages were drained; on failure
+ * draining stops and is retried on the next run, so messages may be delivered more than once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventSpoolReplayer {
+    private final AuditEventSpool spool;
+    private final PubSubService pubSubService;
+
+    @Value("${spool.replay-to-database:false}")
+    private boolean replayToDatabase;
+
+    /**
+     * Drains the spool; runs on a fixed delay.
+     */
+    @Scheduled(fixedDelayString = "${spool.replay-interval-millis:10000}")
+    public void replay() {
+        if (!spool.isEnabled()) {
+            return;
+        }
+
+        try {
+            for (Path segment : spool.seal()) {
+                List<AuditEventSpool.SpooledMessage> messages = spool.read(segment);
+                if (replayToDatabase) {
+                    pubSubService.persistSpooled(messages);
+                } else {
+                    for (AuditEventSpool.SpooledMessage message : messages) {
+                        pubSubService.republish(message);
+                    }
+                }
+                spool.delete(segment);
+                log.info("Replayed {} spooled messages from {}", messages.size(), segment);
+            }
+        } catch (IOException | MessagingException ex) {
+            log.warn("Spool replay interrupted, will retry", ex);
+        } catch (RuntimeException ex) {
+            log.error("Spool replay failed, will retry", ex);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.nuvalence.platform.audit.service.service;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settles an inbound PubSub message, or a part of its events, once they are persisted or could
+ * not be. Each acknowledgement is settled once, by either {@link #ack} or {@link #nack}.
+ */
+public interface PubSubAcknowledgement {
+    /**
+     * Acknowledges the events as persisted.
+     */
+    void ack();
+
+    /**
+     * Reports the events as not persisted, so PubSub redelivers them.
+     */
+    void nack();
+
+    /**
+     * Acknowledges a PubSub message.
+     *
+     * @param message PubSub message; may be null when the events did not come from PubSub
+     * @return acknowledgement of the message
+     */
+    static PubSubAcknowledgement of(BasicAcknowledgeablePubsubMessage message) {
+        return new PubSubAcknowledgement() {
+            @Override
+            public void ack() {
+                if (message != null) {
+                    message.ack();
+                }
+            }
+
+            @Override
+            public void nack() {
+                if (message != null) {
+                    message.nack();
+                }
+            }
+        };
+    }
+
+    /**
+     * Splits this acknowledgement into parts, which are settled on their own. The whole is acked
+     * once every part is acked, and nacked as soon as any part is nacked; PubSub then redelivers
+     * every event, and the writer skips those already persisted.
+     *
+     * @param count number of parts
+     * @return acknowledgements of the parts
+     */
+    default List<PubSubAcknowledgement> split(int count) {
+        var unacked = new AtomicInteger(count);
+        var nacked = new AtomicBoolean();
+        List<PubSubAcknowledgement> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(
+                    new PubSubAcknowledgement() {
+                        @Override
+                        public void ack() {
+                            if (unacked.decrementAndGet() == 0 && !nacked.get()) {
+                                PubSubAcknowledgement.this.ack();
+                            }
+                        }
+
+                        @Override
+                        public void nack() {
+                            if (nacked.compareAndSet(false, true)) {
+                                PubSubAcknowledgement.this.nack();
+                            }
+                        }
+                    });
+        }
+        return parts;
+    }
+
+    /**
+     * Runs a callback once this acknowledgement is settled, either way.
+     *
+     * @param settled callback
+     * @return acknowledgement which settles this one, then runs the callback
+     */
+    default PubSubAcknowledgement andThen(Runnable settled) {
+        return new PubSubAcknowledgement() {
+            @Override
+            public void ack() {
+                try {
+                    PubSubAcknowledgement.this.ack();
+                } finally {
+                    settled.run();
+                }
+            }
+
+            @Override
+            public void nack() {
+                try {
+                    PubSubAcknowledgement.this.nack();
+                } finally {
+                    settled.run();
+                }
+            }
+        };
+    }
+}
@@ -1,20 +1,33 @@
 package io.nuvalence.platform.audit.service.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.nuvalence.platform.audit.service.config.PubSubConfig;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import io.nuvalence.platform.audit.service.config.PubSubConfig.PubSubOutboundGateway;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.error.AuditEventParsingException;
-import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import io.nuvalence.platform.audit.service.mapper.AuditEventProtobufCodec;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import io.nuvalence.platform.audit.service.utils.EventIdGenerator;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Handle PubSub writes & callbacks.
@@ -23,9 +36,21 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class PubSubService {
     private static final Log LOG = LogFactory.getLog(PubSubService.class);
-    private final PubSubConfig.PubSubOutboundGateway messagingGateway;
-    private final AuditEventRepository auditEventRepository;
+    private final PubSubOutboundGateway messagingGateway;
+    private final AuditEventBatchWriter auditEventBatchWriter;
     private final ObjectMapper mapper;
+    private final AuditEventIngestBatcher ingestBatcher;
+    private final AuditEventSpool spool;
+    private final AuditEventProtobufCodec protobufCodec;
+    private final PayloadCompressor payloadCompressor;
+    private final AuditEventConsumerLanes consumerLanes;
+    private final EventIdGenerator eventIdGenerator;
+
+    @Value("${publish.format:json}")
+    private String publishFormat;
+
+    @Value("${publish.max-message-bytes:9000000}")
+    private int maxMessageBytes;
 
     /**
      * Serialize and write entity to PubSub.
@@ -34,35 +59,279 @@ public class PubSubService {
      * @return original entity
      */
     public AuditEventEntity publish(AuditEventEntity entity) {
-        entity.setEventId(UUID.randomUUID());
+        entity.setEventId(eventIdGenerator.next());
+        payloadCompressor.compress(entity);
+        send(List.of(entity), false, () -> auditEventBatchWriter.insertAll(List.of(entity)));
+        return entity;
+    }
+
+    /**
+     * Serialize and write entities to PubSub as a single message.
+     *
+     * @param entities Audit entities to write to PubSub
+     * @return original entities
+     */
+    public List<AuditEventEntity> publishAll(List<AuditEventEntity> entities) {
+        entities.forEach(
+                entity -> {
+                    entity.setEventId(eventIdGenerator.next());
+                    payloadCompressor.compress(entity);
+                });
+        send(entities, true, () -> auditEventBatchWriter.insertAll(entities));
+        return entities;
+    }
 
+    private void send(List<AuditEventEntity> entities, boolean batch, Runnable databaseFallback) {
+        AuditEventSpool.SpooledMessage message = null;
         try {
-            String str = mapper.writeValueAsString(entity);
-            messagingGateway.sendToPubSub(str);
+            message = serialize(entities, batch);
+            if (batch && entities.size() > 1 && message.payload().length > maxMessageBytes) {
+                // PubSub rejects messages over 10 MB, so the batch is halved until each part fits
+                var first = entities.subList(0, entities.size() / 2);
+                var second = entities.subList(entities.size() / 2, entities.size());
+                send(first, true, () -> auditEventBatchWriter.insertAll(first));
+                send(second, true, () -> auditEventBatchWriter.insertAll(second));
+                return;
+            }
+            republish(message);
         } catch (IOException | MessagingException ex) {
-            LOG.warn(
-                    "PubSub message could not be written, writing message directly to database",
-                    ex);
-            auditEventRepository.save(entity);
+            if (message == null || !trySpool(message, ex)) {
+                LOG.warn(
+                        "PubSub message could not be written, writing message directly to database",
+                        ex);
+                databaseFallback.run();
+            }
         }
+    }
 
-        return entity;
+    private AuditEventSpool.SpooledMessage serialize(
+            List<AuditEventEntity> entities, boolean batch) throws IOException {
+        if ("protobuf".equalsIgnoreCase(publishFormat)) {
+            return new AuditEventSpool.SpooledMessage(protobufCodec.encode(entities), false, true);
+        }
+
+        // batches are serialized as an array so every element keeps its type information
+        String str =
+                batch
+                        ? mapper.writeValueAsString(entities.toArray(new AuditEventEntity[0]))
+                        : mapper.writeValueAsString(entities.get(0));
+        return new AuditEventSpool.SpooledMessage(
+                str.getBytes(StandardCharsets.UTF_8), batch, false);
     }
 
     /**
-     * Handle incoming PubSub message.
+     * Handle incoming PubSub message. When consumer lanes are enabled the events of each business
+     * object in the message are persisted on the lane of that business object, and the message is
+     * acked once all of them are. When batched ingest is enabled the entities are handed to the
+     * {@link AuditEventIngestBatcher}, which acks the message once its batch is committed.
      *
      * @param message Incoming PubSub Message to process & persist.
      */
     public void process(Message<?> message) {
-        AuditEventEntity entity = unsafeParseEntity(message);
+        BasicAcknowledgeablePubsubMessage originalMessage =
+                message.getHeaders()
+                        .get(
+                                GcpPubSubHeaders.ORIGINAL_MESSAGE,
+                                BasicAcknowledgeablePubsubMessage.class);
+        List<AuditEventEntity> entities;
+        try {
+            entities = unsafeParse(message);
+        } catch (RuntimeException ex) {
+            // messages are acked manually with lanes or batches, see PubSubConfig, so the adapter
+            // would leave an unparseable message outstanding until its ack deadline
+            boolean manualAck = consumerLanes.isEnabled() || ingestBatcher.isEnabled();
+            if (originalMessage != null && manualAck) {
+                originalMessage.nack();
+            }
+            throw ex;
+        }
+
+        if (consumerLanes.isEnabled()) {
+            submitToLanes(
+                    entities,
+                    payloadBytes(message).length,
+                    PubSubAcknowledgement.of(originalMessage));
+            return;
+        }
+
+        if (ingestBatcher.isEnabled()) {
+            ingestBatcher.add(entities, originalMessage);
+            return;
+        }
+        persist(entities);
+    }
+
+    private void persist(List<AuditEventEntity> entities) {
+        int inserted = auditEventBatchWriter.insertAll(entities);
+        LOG.info(
+                String.format(
+                        "PubSub message processed/persisted - %d of %d events new",
+                        inserted, entities.size()));
+    }
+
+    private void submitToLanes(
+            List<AuditEventEntity> entities, int bytes, PubSubAcknowledgement acknowledgement) {
+        // a batch may hold several business objects, each of which is kept in order on its lane
+        Map<UUID, List<AuditEventEntity>> parts = new LinkedHashMap<>();
+        for (AuditEventEntity entity : entities) {
+            parts.computeIfAbsent(entity.getBusinessObjectId(), key -> new ArrayList<>())
+                    .add(entity);
+        }
+        if (parts.isEmpty()) {
+            parts.put(null, entities);
+        }
+
+        Iterator<PubSubAcknowledgement> partAcknowledgements =
+                acknowledgement.split(parts.size()).iterator();
+        parts.forEach(
+                (businessObjectId, part) -> {
+                    PubSubAcknowledgement partAcknowledgement = partAcknowledgements.next();
+                    int partBytes =
+                            parts.size() == 1
+                                    ? bytes
+                                    : (int) ((long) bytes * part.size() / entities.size());
+                    consumerLanes.submit(
+                            businessObjectId,
+                            partBytes,
+                            release ->
+                                    persistOnLane(
+                                            consumerLanes.laneOf(businessObjectId),
+                                            part,
+                                            partAcknowledgement.andThen(release)));
+                });
+    }
+
+    private void persistOnLane(
+            int lane, List<AuditEventEntity> entities, PubSubAcknowledgement acknowledgement) {
+        if (ingestBatcher.isEnabled()) {
+            ingestBatcher.add(lane, entities, acknowledgement);
+            return;
+        }
+
+        try {
+            persist(entities);
+            acknowledgement.ack();
+        } catch (RuntimeException ex) {
+            LOG.error("PubSub message could not be persisted", ex);
+            acknowledgement.nack();
+        }
+    }
+
+    /**
+     * Handles a message the async publisher failed to deliver by spooling it or writing its
+     * events directly to the database. Runs on a publisher callback thread rather than the request
+     * thread.
+     *
+     * @param message message which could not be published
+     * @param cause   publish failure
+     */
+    public void handlePublishFailure(Message<?> message, Throwable cause) {
+        var spooled =
+                new AuditEventSpool.SpooledMessage(
+                        payloadBytes(message), isBatch(message), isProtobuf(message));
+        if (trySpool(spooled, cause)) {
+            return;
+        }
+
+        LOG.warn(
+                "PubSub message could not be published, writing message directly to database",
+                cause);
+
+        List<AuditEventEntity> entities = unsafeParse(message);
+        try {
+            auditEventBatchWriter.insertAll(entities);
+        } catch (RuntimeException ex) {
+            LOG.error(
+                    String.format(
+                            "Unpublished PubSub message could not be persisted - %s",
+                            entities.stream().map(AuditEventEntity::getEventId).toList()),
+                    ex);
+        }
+    }
+
+    /**
+     * Sends a serialized (possibly spooled) message to PubSub. Unlike {@link #publish}, failures
+     * are thrown to the caller so a spooled message stays in the spool.
+     *
+     * @param message serialized message
+     * @throws IOException if the message could not be sent
+     */
+    public void republish(AuditEventSpool.SpooledMessage message) throws IOException {
+        if (message.protobuf()) {
+            messagingGateway.sendProtobufToPubSub(message.payload());
+        } else if (message.batch()) {
+            messagingGateway.sendBatchToPubSub(
+                    new String(message.payload(), StandardCharsets.UTF_8));
+        } else {
+            messagingGateway.sendToPubSub(new String(message.payload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes spooled messages directly to the database in a single transaction. Events which
+     * were already persisted are skipped.
+     *
+     * @param messages spooled messages
+     */
+    public void persistSpooled(List<AuditEventSpool.SpooledMessage> messages) {
+        auditEventBatchWriter.insertAll(
+                messages.stream()
+                        .map(this::unsafeParse)
+                        .flatMap(List::stream)
+                        .collect(Collectors.toList()));
+    }
+
+    private boolean trySpool(AuditEventSpool.SpooledMessage message, Throwable cause) {
+        if (!spool.isEnabled()) {
+            return false;
+        }
 
         try {
-            auditEventRepository.save(entity);
-            LOG.info(String.format("PubSub message processed/persisted - %s", entity.getEventId()));
-        } catch (DuplicateKeyException ex) {
-            LOG.info("Duplicate PubSub message ignored", ex);
+            spool.append(message);
+            LOG.warn("PubSub message could not be written, message spooled to disk", cause);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            LOG.error("PubSub message could not be spooled", ex);
+            return false;
+        }
+    }
+
+    private List<AuditEventEntity> unsafeParse(AuditEventSpool.SpooledMessage message) {
+        var builder =
+                MessageBuilder.withPayload(message.payload())
+                        .setHeader(PubSubOutboundGateway.BATCH_HEADER, message.batch());
+        if (message.protobuf()) {
+            builder.setHeader(
+                    PubSubOutboundGateway.CONTENT_TYPE_HEADER,
+                    PubSubOutboundGateway.PROTOBUF_CONTENT_TYPE);
         }
+        return unsafeParse(builder.build());
+    }
+
+    private List<AuditEventEntity> unsafeParse(Message<?> message) {
+        if (isProtobuf(message)) {
+            return unsafeParseEnvelope(message);
+        }
+        return isBatch(message)
+                ? unsafeParseEntities(message)
+                : List.of(unsafeParseEntity(message));
+    }
+
+    private static byte[] payloadBytes(Message<?> message) {
+        // outbound JSON messages carry the serialized String, everything else raw bytes
+        return message.getPayload() instanceof String payload
+                ? payload.getBytes(StandardCharsets.UTF_8)
+                : (byte[]) message.getPayload();
+    }
+
+    private static boolean isProtobuf(Message<?> message) {
+        return PubSubOutboundGateway.PROTOBUF_CONTENT_TYPE.equals(
+                message.getHeaders().get(PubSubOutboundGateway.CONTENT_TYPE_HEADER));
+    }
+
+    private static boolean isBatch(Message<?> message) {
+        Object batch = message.getHeaders().get(PubSubOutboundGateway.BATCH_HEADER);
+        return Boolean.parseBoolean(String.valueOf(batch));
     }
 
     /**
@@ -74,11 +343,42 @@ public class PubSubService {
      */
     private AuditEventEntity unsafeParseEntity(Message<?> message) {
         try {
-            var payload = (byte[]) message.getPayload();
-            return mapper.readValue(payload, AuditEventEntity.class);
+            return mapper.readValue(payloadBytes(message), AuditEventEntity.class);
         } catch (IOException ex) {
             LOG.error("Error parsing message from PubSub", ex);
             throw new AuditEventParsingException("Error parsing message from PubSub", ex);
         }
     }
+
+    /**
+     * Parses the entities from a batched pub/sub message;
+     * throws a runtime exception if the value cannot be parsed.
+     *
+     * @param message pub/sub message
+     * @return parsed entities
+     */
+    private List<AuditEventEntity> unsafeParseEntities(Message<?> message) {
+        try {
+            return List.of(mapper.readValue(payloadBytes(message), AuditEventEntity[].class));
+        } catch (IOException ex) {
+            LOG.error("Error parsing batch message from PubSub", ex);
+            throw new AuditEventParsingException("Error parsing batch message from PubSub", ex);
+        }
+    }
+
+    /**
+     * Parses the entities from a protobuf envelope pub/sub message;
+     * throws a runtime exception if the value cannot be parsed.
+     *
+     * @param message pub/sub message
+     * @return parsed entities
+     */
+    private List<AuditEventEntity> unsafeParseEnvelope(Message<?> message) {
+        try {
+            return protobufCodec.decode(payloadBytes(message));
+        } catch (IOException ex) {
+            LOG.error("Error parsing protobuf message from PubSub", ex);
+            throw new AuditEventParsingException("Error parsing protobuf message from PubSub", ex);
+        }
+    }
 }
@@ -0,0 +1,141 @@
+package io.nuvalence.platform.audit.service.utils;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses large event payloads (activity data, old and new state) before they are published.
+ *
+ * <p>A compressed payload is stored in the same string field as a marker followed by base64
+ * encoded gzip data, so it travels through PubSub and into the database as is. Payloads are only
+ * decompressed when they are rendered; uncompressed (older or small) payloads pass through
+ * unchanged.</p>
+ *
+ * <p>A submitted payload which itself starts with the marker, possibly after escape prefixes, is
+ * stored with one more escape prefix, so it cannot be mistaken for compressed data; the prefix is
+ * removed again when the payload is rendered.</p>
+ */
+@Component
+public class PayloadCompressor {
+    private static final String MARKER = "gzip+base64:";
+    private static final String ESCAPE = "escaped:";
+
+    @Value("${compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${compression.min-length:1024}")
+    private int minLength;
+
+    /**
+     * Compresses the payload fields of an event in place, if enabled and at least the minimum
+     * length. A payload is left as is if compression would not make it shorter, unless it has to
+     * be escaped.
+     *
+     * @param entity audit event
+     */
+    public void compress(AuditEventEntity entity) {
+        if (entity instanceof ActivityEventEntity activity) {
+            activity.setData(compress(activity.getData()));
+        } else if (entity instanceof StateChangeEventEntity stateChange) {
+            stateChange.setNewState(compress(stateChange.getNewState()));
+            stateChange.setOldState(compress(stateChange.getOldState()));
+        }
+    }
+
+    private String compress(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        if (enabled && value.length() >= minLength) {
+            String compressed =
+                    fromCompressedBytes(gzip(value.getBytes(StandardCharsets.UTF_8)));
+            if (compressed.length() < value.length()) {
+                return compressed;
+            }
+        }
+        return isMarked(value) ? ESCAPE + value : value;
+    }
+
+    /**
+     * Indicates whether a payload was compressed.
+     *
+     * @param value payload
+     * @return true if the payload is compressed
+     */
+    public static boolean isCompressed(String value) {
+        return value != null && value.startsWith(MARKER);
+    }
+
+    /**
+     * Returns the original form of a payload.
+     *
+     * @param value payload, compressed or not
+     * @return uncompressed payload
+     */
+    public static String decompress(String value) {
+        if (value != null && value.startsWith(ESCAPE) && isMarked(value)) {
+            return value.substring(ESCAPE.length());
+        }
+        if (!isCompressed(value)) {
+            return value;
+        }
+
+        try (var input = new GZIPInputStream(new ByteArrayInputStream(toCompressedBytes(value)))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Compressed payload could not be read", e);
+        }
+    }
+
+    /**
+     * Extracts the raw gzip data of a compressed payload, e.g. to transmit it without base64.
+     *
+     * @param value compressed payload
+     * @return gzip data
+     */
+    public static byte[] toCompressedBytes(String value) {
+        return Base64.getDecoder().decode(value.substring(MARKER.length()));
+    }
+
+    /**
+     * Wraps raw gzip data as a compressed payload.
+     *
+     * @param gzip gzip data
+     * @return compressed payload
+     */
+    public static String fromCompressedBytes(byte[] gzip) {
+        return MARKER + Base64.getEncoder().encodeToString(gzip);
+    }
+
+    // starts with the marker, possibly after escape prefixes
+    private static boolean isMarked(String value) {
+        int start = 0;
+        while (value.startsWith(ESCAPE, start)) {
+            start += ESCAPE.length();
+        }
+        return value.startsWith(MARKER, start);
+    }
+
+    private static byte[] gzip(byte[] value) {
+        var bytes = new ByteArrayOutputStream();
+        try (var output = new GZIPOutputStream(bytes)) {
+            output.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Payload could not be compressed", e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package io.nuvalence.platform.audit.service.config;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@ExtendWith(MockitoExtension.class)
+class CachingAuthorizationHandlerTest {
+    @Mock private AuthorizationHandler delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CachingAuthorizationHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler =
+                new CachingAuthorizationHandler(
+                        delegate, meterRegistry, Duration.ofSeconds(30), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void isAllowed_GivenSameRolesTwice_ShouldAskDelegateOnceAndRecordHit() {
+        when(delegate.isAllowed("view", AuditEventEntity.class)).thenReturn(true);
+
+        authenticate("alice", "as:admin", "as:viewer");
+        Assertions.assertTrue(handler.isAllowed("view", AuditEventEntity.class));
+        authenticate("bob", "as:viewer", "as:admin");
+        Assertions.assertTrue(handler.isAllowed("view", AuditEventEntity.class));
+
+        verify(delegate, times(1)).isAllowed("view", AuditEventEntity.class);
+        Assertions.assertEquals(
+                1.0,
+                meterRegistry
+                        .get("cache.gets")
+                        .tag("cache", CachingAuthorizationHandler.CACHE_NAME)
+                        .tag("result", "hit")
+                        .functionCounter()
+                        .count());
+    }
+
+    @Test
+    void isAllowed_GivenDifferentRolesOrAction_ShouldAskDelegateForEach() {
+        when(delegate.isAllowed("view", AuditEventEntity.class)).thenReturn(true, false);
+        when(delegate.isAllowed("create", AuditEventEntity.class)).thenReturn(false);
+
+        authenticate("alice", "as:admin");
+        Assertions.assertTrue(handler.isAllowed("view", AuditEventEntity.class));
+        Assertions.assertFalse(handler.isAllowed("create", AuditEventEntity.class));
+        authenticate("bob", "as:viewer");
+        Assertions.assertFalse(handler.isAllowed("view", AuditEventEntity.class));
+
+        verify(delegate, times(2)).isAllowed("view", AuditEventEntity.class);
+        verify(delegate, times(1)).isAllowed("create", AuditEventEntity.class);
+    }
+
+    @Test
+    void isAllowedForInstance_ShouldNotCache() {
+        var resource = new Object();
+        when(delegate.isAllowedForInstance("view", resource)).thenReturn(true);
+
+        authenticate("alice", "as:admin");
+        handler.isAllowedForInstance("view", resource);
+        handler.isAllowedForInstance("view", resource);
+
+        verify(delegate, times(2)).isAllowedForInstance("view", resource);
+    }
+
+    private static void authenticate(String user, String... roles) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new UsernamePasswordAuthenticationToken(
+                                user, null, AuthorityUtils.createAuthorityList(roles)));
+    }
+}
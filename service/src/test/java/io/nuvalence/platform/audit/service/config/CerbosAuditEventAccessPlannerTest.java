@@ -0,0 +1,162 @@
+package io.nuvalence.platform.audit.service.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.Value;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression.Operand;
+import dev.cerbos.sdk.CerbosBlockingClient;
+import dev.cerbos.sdk.PlanResourcesResult;
+import dev.cerbos.sdk.builders.Principal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@ExtendWith(MockitoExtension.class)
+class CerbosAuditEventAccessPlannerTest {
+    private static final String TENANT_ID = UUID.randomUUID().toString();
+
+    @Mock private CerbosBlockingClient client;
+    @Mock private PlanResourcesResult result;
+
+    private CerbosAuditEventAccessPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner =
+                new CerbosAuditEventAccessPlanner(
+                        client, new SimpleMeterRegistry(), Duration.ofSeconds(30), 100);
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new UsernamePasswordAuthenticationToken(
+                                "alice", null, AuthorityUtils.createAuthorityList("as:reader")));
+        when(client.plan(any(), any(), eq("view"))).thenReturn(result);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void plan_GivenAlwaysAllowedTwice_ShouldAllowAllAndPlanOnce() {
+        when(result.isAlwaysAllowed()).thenReturn(true);
+
+        Assertions.assertEquals(AuditEventAccessFilter.ALLOW_ALL, planner.plan("view"));
+        Assertions.assertEquals(AuditEventAccessFilter.ALLOW_ALL, planner.plan("view"));
+
+        verify(client, times(1)).plan(any(), any(), eq("view"));
+    }
+
+    @Test
+    void plan_GivenConditionalPlan_ShouldReturnConditionalFilter() {
+        when(result.getCondition()).thenReturn(condition("tenantId"));
+
+        var filter = planner.plan("view");
+
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(filter.isDenied()),
+                () -> Assertions.assertTrue(filter.isConditional()));
+    }
+
+    @Test
+    void plan_GivenConditionOnPrincipalTenant_ShouldSendTenantAndPlanPerTenant() {
+        // the plan of "R.attr.tenantId == P.attr.tenantId", with the principal's tenant substituted
+        when(result.getCondition()).thenReturn(condition("tenantId"));
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new TenantToken(
+                                "alice",
+                                TENANT_ID,
+                                AuthorityUtils.createAuthorityList("as:reader")));
+
+        var filter = planner.plan("view");
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new TenantToken(
+                                "alice",
+                                UUID.randomUUID().toString(),
+                                AuthorityUtils.createAuthorityList("as:reader")));
+        planner.plan("view");
+
+        ArgumentCaptor<Principal> principals = ArgumentCaptor.forClass(Principal.class);
+        verify(client, times(2)).plan(principals.capture(), any(), eq("view"));
+        var principal = principals.getAllValues().get(0).toPrincipal();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of("as:reader"), principal.getRolesList()),
+                () ->
+                        Assertions.assertEquals(
+                                TENANT_ID,
+                                principal.getAttrMap().get("tenantId").getStringValue()),
+                () ->
+                        Assertions.assertEquals(
+                                AuditEventAccessFilter.of(condition("tenantId")), filter));
+    }
+
+    @Test
+    void plan_GivenUntranslatableCondition_ShouldDenyAll() {
+        when(result.getCondition()).thenReturn(condition("summary"));
+
+        Assertions.assertEquals(AuditEventAccessFilter.DENY_ALL, planner.plan("view"));
+    }
+
+    private static Operand condition(String attribute) {
+        return Operand.newBuilder()
+                .setExpression(
+                        Expression.newBuilder()
+                                .setOperator("eq")
+                                .addOperands(
+                                        Operand.newBuilder()
+                                                .setVariable("request.resource.attr." + attribute)
+                                                .build())
+                                .addOperands(
+                                        Operand.newBuilder()
+                                                .setValue(
+                                                        Value.newBuilder()
+                                                                .setStringValue(TENANT_ID)
+                                                                .build())
+                                                .build())
+                                .build())
+                .build();
+    }
+
+    /**
+     * Token of a user of a tenant, as issued by the token filter.
+     */
+    public static class TenantToken extends UsernamePasswordAuthenticationToken {
+        private static final long serialVersionUID = 1L;
+
+        private final String tenantId;
+
+        TenantToken(
+                String name, String tenantId, Collection<? extends GrantedAuthority> authorities) {
+            super(name, null, authorities);
+            this.tenantId = tenantId;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.nuvalence.platform.audit.service.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+class LocalCerbosPolicyTest {
+    private static final String POLICY =
+            """
+            apiVersion: api.cerbos.dev/v1
+            resourcePolicy:
+              version: "default"
+              resource: audit-event
+              rules:
+                - actions: ["view"]
+                  roles:
+                    - event-reader
+                  effect: EFFECT_ALLOW
+
+                - actions: ["create"]
+                  roles:
+                    - event-reporter
+                  effect: EFFECT_ALLOW
+            """;
+
+    @TempDir private Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("audit-event_resource.yaml");
+        Files.writeString(file, POLICY);
+    }
+
+    @Test
+    void isAllowed_GivenRoleToActionRules_ShouldDecideLocally() {
+        var policy = new LocalCerbosPolicy(file);
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                Optional.of(true),
+                                policy.isAllowed("audit-event", "view", Set.of("as:event-reader"))),
+                () ->
+                        Assertions.assertEquals(
+                                Optional.of(false),
+                                policy.isAllowed(
+                                        "audit-event", "create", Set.of("as:event-reader"))),
+                () ->
+                        Assertions.assertEquals(
+                                Optional.empty(),
+                                policy.isAllowed("other", "view", Set.of("as:event-reader"))));
+    }
+
+    @Test
+    void isAllowed_GivenRoleOfOtherNamespace_ShouldNotMatchPolicyRole() {
+        var policy = new LocalCerbosPolicy(file);
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                Optional.of(false),
+                                policy.isAllowed(
+                                        "audit-event", "view", Set.of("other-app:event-reader"))),
+                () ->
+                        Assertions.assertEquals(
+                                Optional.of(false),
+                                policy.isAllowed(
+                                        "audit-event", "create", Set.of("um:event-reporter"))));
+    }
+
+    @Test
+    void isAllowed_GivenApplicableRuleWithCondition_ShouldDeferToCerbos() throws IOException {
+        Files.writeString(
+                file,
+                POLICY
+                        + """
+                            - actions: ["view"]
+                              roles:
+                                - tenant-reader
+                              condition:
+                                match:
+                                  expr: R.attr.tenantId == P.attr.tenantId
+                              effect: EFFECT_ALLOW
+                        """);
+        var policy = new LocalCerbosPolicy(file);
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                Optional.empty(),
+                                policy.isAllowed("audit-event", "view", Set.of("tenant-reader"))),
+                () ->
+                        Assertions.assertEquals(
+                                Optional.of(true),
+                                policy.isAllowed("audit-event", "view", Set.of("event-reader"))));
+    }
+
+    @Test
+    void reloadIfChanged_GivenChangedOrMalformedFile_ShouldReloadOrDeferToCerbos()
+            throws IOException {
+        var policy = new LocalCerbosPolicy(file);
+
+        Files.writeString(file, POLICY.replace("event-reader", "event-viewer"));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+        policy.reloadIfChanged();
+        var reloaded = policy.isAllowed("audit-event", "view", Set.of("event-reader"));
+
+        Files.writeString(file, "resourcePolicy: [");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(120)));
+        policy.reloadIfChanged();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(Optional.of(false), reloaded),
+                () ->
+                        Assertions.assertEquals(
+                                Optional.empty(),
+                                policy.isAllowed("audit-event", "view", Set.of("event-reader"))));
+    }
+}
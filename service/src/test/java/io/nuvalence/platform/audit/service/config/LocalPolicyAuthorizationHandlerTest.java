@@ -0,0 +1,65 @@
+package io.nuvalence.platform.audit.service.config;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.Set;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@ExtendWith(MockitoExtension.class)
+class LocalPolicyAuthorizationHandlerTest {
+    @Mock private LocalCerbosPolicy policy;
+    @Mock private AuthorizationHandler delegate;
+
+    private LocalPolicyAuthorizationHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new LocalPolicyAuthorizationHandler(policy, delegate);
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new UsernamePasswordAuthenticationToken(
+                                "alice",
+                                null,
+                                AuthorityUtils.createAuthorityList("as:event-reader")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void isAllowed_GivenLocalDecision_ShouldNotAskCerbos() {
+        when(policy.isAllowed("audit-event", "view", Set.of("as:event-reader")))
+                .thenReturn(Optional.of(true));
+
+        Assertions.assertTrue(handler.isAllowed("view", AuditEventEntity.class));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void isAllowed_GivenNoLocalDecision_ShouldAskCerbos() {
+        when(policy.isAllowed("audit-event", "create", Set.of("as:event-reader")))
+                .thenReturn(Optional.empty());
+        when(delegate.isAllowed("create", AuditEventEntity.class)).thenReturn(false);
+
+        Assertions.assertFalse(handler.isAllowed("create", AuditEventEntity.class));
+        verify(delegate).isAllowed("create", AuditEventEntity.class);
+    }
+}
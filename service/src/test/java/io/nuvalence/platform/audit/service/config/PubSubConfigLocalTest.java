@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.mockito.Mockito.verify;
 
 import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
 import io.nuvalence.platform.audit.service.service.PubSubService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -31,6 +32,7 @@ class PubSubConfigLocalTest {
 
     @Autowired private MessageHandler localMessageSender;
     @MockBean private AuthorizationHandler authorizationHandler;
+    @MockBean private AuditEventAccessPlanner accessPlanner;
 
     @Test
     void localMessageSender_shouldPublishToInputChannel() {
@@ -2,7 +2,9 @@ package io.nuvalence.platform.audit.service.config;
 
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
 import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +24,12 @@ class PubSubConfigTest {
 
     @Autowired private PubSubInboundChannelAdapter pubSubInboundChannelAdapter;
 
+    @Autowired private PubSubMessageHandler messageSender;
+
     @MockBean private AuthorizationHandler authorizationHandler;
 
+    @MockBean private AuditEventAccessPlanner accessPlanner;
+
     @Test
     void messageChannelAdapter_shouldConfigureOutputChannel() {
         Assertions.assertEquals(inputChannel, pubSubInboundChannelAdapter.getOutputChannel());
@@ -33,4 +39,9 @@ class PubSubConfigTest {
     void messageChannelAdapter_ShouldSetAutoAck() {
         Assertions.assertEquals(AckMode.AUTO_ACK, pubSubInboundChannelAdapter.getAckMode());
     }
+
+    @Test
+    void messageSender_ShouldPublishSynchronouslyByDefault() {
+        Assertions.assertTrue(messageSender.isSync());
+    }
 }
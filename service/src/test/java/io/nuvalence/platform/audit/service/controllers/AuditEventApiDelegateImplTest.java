@@ -1,49 +1,83 @@
 package io.nuvalence.platform.audit.service.controllers;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.jayway.jsonpath.JsonPath;
 import io.nuvalence.auth.access.AuthorizationHandler;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.error.ApiException;
-import io.nuvalence.platform.audit.service.generated.models.AuditEventRequest;
+import io.nuvalence.platform.audit.service.generated.controllers.AuditEventsApiController;
 import io.nuvalence.platform.audit.service.mapper.AuditEventMapper;
-import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import io.nuvalence.platform.audit.service.mapper.PagingMetadataMapper;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import io.nuvalence.platform.audit.service.repository.AuditEventsVersion;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import io.nuvalence.platform.audit.service.service.AuditEventCursor;
+import io.nuvalence.platform.audit.service.service.AuditEventFields;
+import io.nuvalence.platform.audit.service.service.AuditEventQueryCache;
 import io.nuvalence.platform.audit.service.service.AuditEventService;
 import io.nuvalence.platform.audit.service.utils.TestUtil;
-import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
+import org.mapstruct.factory.Mappers;
+import org.mockito.invocation.InvocationOnMock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
-@ExtendWith(SpringExtension.class)
-// @WebMvcTest doesn't set up controller method level validations:
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// the generated application scans every component, so the web layer is configured explicitly
+@WebMvcTest(properties = "publish.max-message-bytes=1000")
+@ContextConfiguration(
+        classes = {
+            AuditEventsApiController.class,
+            AuditEventApiDelegateImpl.class,
+            GlobalErrorHandler.class,
+            SparseFieldsetAdvice.class,
+            PagingMetadataMapper.class,
+            AuditEventApiDelegateImplTest.MapperConfig.class
+        })
 @AutoConfigureMockMvc(addFilters = false)
 @ActiveProfiles("test")
-@Disabled
 class AuditEventApiDelegateImplTest {
 
     private static final String BUSINESS_OBJECT_TYPE = "orders";
@@ -51,19 +85,28 @@ class AuditEventApiDelegateImplTest {
     private static final UUID BUSINESS_OBJECT_ID =
             UUID.fromString("1190241c-5eae-11ec-bf63-0242ac130002");
     private static final String LIST_EVENTS_PATH =
-            "/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002/";
+            "/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002";
     private static final String ASC = "ASC";
 
     @Autowired private MockMvc mockMvc;
 
-    // This is to avoid loading the DB connection for the real repository class:
-    @MockBean private AuditEventRepository auditEventRepository;
-
     @MockBean private AuditEventService auditEventService;
 
+    @MockBean private AuditEventQueryCache queryCache;
+
     @MockBean private AuthorizationHandler authorizationHandler;
 
-    @Mock private AuditEventMapper eventMapper;
+    @MockBean private AuditEventAccessPlanner accessPlanner;
+
+    @BeforeEach
+    void setUp() {
+        when(accessPlanner.plan("view")).thenReturn(AuditEventAccessFilter.ALLOW_ALL);
+        when(authorizationHandler.isAllowed("create", AuditEventEntity.class)).thenReturn(true);
+        when(queryCache.get(any(), any(), anyList(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
+        when(auditEventService.findAuditEventsVersion(any(), any()))
+                .thenReturn(new AuditEventsVersion(0, null));
+    }
 
     @Test
     void getEvents() throws Exception {
@@ -73,8 +116,9 @@ class AuditEventApiDelegateImplTest {
         // Expected result from PagingMetadataMapper.
         String nextPage =
                 "http://localhost/api/v1/audit-events/orders/"
-                        + "1190241c-5eae-11ec-bf63-0242ac130002/?sortOrder=ASC&pageSize=10&sortBy=type"
-                        + "&startTime=2021-12-02T20:00:28.570Z&endTime=2021-12-22T20:00:28.570Z&pageNumber=1";
+                        + "1190241c-5eae-11ec-bf63-0242ac130002?sortOrder=ASC&count=exact"
+                        + "&pageSize=10&sortBy=type&startTime=2021-12-02T20:00:28.570Z"
+                        + "&endTime=2021-12-22T20:00:28.570Z&pageNumber=1";
 
         when(auditEventService.findAuditEvents(
                         BUSINESS_OBJECT_TYPE,
@@ -84,14 +128,16 @@ class AuditEventApiDelegateImplTest {
                         0,
                         10,
                         ASC,
-                        SORT_BY))
+                        SORT_BY,
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
                 .thenReturn(page);
 
         String urlTemplate =
                 LIST_EVENTS_PATH
                         + "?sortOrder=ASC&sortBy=type&startTime=2021-12-02T20:00:28.570Z&"
                         + "endTime=2021-12-22T20:00:28.570Z&"
-                        + "pageNumber=0&pageSize=10";
+                        + "count=exact&pageNumber=0&pageSize=10";
         mockMvc.perform(get(urlTemplate))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.events", hasSize(1)))
@@ -112,7 +158,9 @@ class AuditEventApiDelegateImplTest {
                         0,
                         10,
                         ASC,
-                        SORT_BY))
+                        SORT_BY,
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
                 .thenThrow(ApiException.Builder.badRequest("ErRoR"));
 
         String urlTemplate =
@@ -162,23 +210,127 @@ class AuditEventApiDelegateImplTest {
                 .andExpect(correctErrorMessages("pageSize: must be less than or equal to 200"));
     }
 
+    @Test
+    void getEvents_GivenIfNoneMatchOfUnchangedPage_ShouldReturnHttp304() throws Exception {
+        AuditEventEntity auditEvent = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
+        when(auditEventService.findAuditEvents(
+                        eq(BUSINESS_OBJECT_TYPE),
+                        eq(BUSINESS_OBJECT_ID),
+                        isNull(),
+                        isNull(),
+                        eq(0),
+                        any(),
+                        eq(ASC),
+                        eq("timestamp"),
+                        eq(AuditEventFields.ALL),
+                        eq(AuditEventAccessFilter.ALLOW_ALL)))
+                .thenReturn(new PageImpl<>(List.of(auditEvent), PageRequest.of(0, 10), 1));
+
+        String eTag =
+                mockMvc.perform(get(LIST_EVENTS_PATH + "?pageSize=10"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().exists(HttpHeaders.ETAG))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(LIST_EVENTS_PATH + "?pageSize=10").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        // another page of the same events has another ETag
+        mockMvc.perform(get(LIST_EVENTS_PATH + "?pageSize=20").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+        verify(auditEventService, times(1))
+                .findAuditEvents(
+                        any(), any(), any(), any(), any(), eq(10), any(), any(), any(), any());
+    }
+
+    @Test
+    void getEvents_GivenCursorPaging_ShouldLinkNextPageByCursorWithoutCount() throws Exception {
+        AuditEventEntity auditEvent = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
+        auditEvent.setEventId(UUID.randomUUID());
+        when(auditEventService.findAuditEventsAfter(
+                        BUSINESS_OBJECT_TYPE,
+                        BUSINESS_OBJECT_ID,
+                        null,
+                        null,
+                        null,
+                        1,
+                        ASC,
+                        "timestamp",
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(new SliceImpl<>(List.of(auditEvent), PageRequest.of(0, 1), true));
+
+        String nextPage =
+                JsonPath.read(
+                        mockMvc.perform(get(LIST_EVENTS_PATH + "?paging=cursor&pageSize=1"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.events", hasSize(1)))
+                                .andExpect(jsonPath("$.pagingMetadata.totalCount").doesNotExist())
+                                .andExpect(
+                                        jsonPath("$.pagingMetadata.nextPage")
+                                                .value(containsString("cursor=")))
+                                .andReturn()
+                                .getResponse()
+                                .getContentAsString(),
+                        "$.pagingMetadata.nextPage");
+
+        var cursor =
+                AuditEventCursor.decode(
+                        UriComponentsBuilder.fromUriString(nextPage)
+                                .build()
+                                .getQueryParams()
+                                .getFirst("cursor"),
+                        Sort.Direction.ASC,
+                        AuditEventCursor.businessObjectQuery(
+                                BUSINESS_OBJECT_TYPE, BUSINESS_OBJECT_ID, null, null));
+        Assertions.assertEquals(auditEvent.getEventId(), cursor.eventId());
+        verify(auditEventService, never()).countAuditEvents(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getEvents_GivenCountModes_ShouldEstimateOrOmitTotalCount() throws Exception {
+        AuditEventEntity auditEvent = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
+        when(auditEventService.findAuditEventSlice(
+                        BUSINESS_OBJECT_TYPE,
+                        BUSINESS_OBJECT_ID,
+                        null,
+                        null,
+                        0,
+                        10,
+                        ASC,
+                        "timestamp",
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(new SliceImpl<>(List.of(auditEvent), PageRequest.of(0, 10), false));
+        when(auditEventService.estimateAuditEvents(
+                        BUSINESS_OBJECT_TYPE, BUSINESS_OBJECT_ID, null, null))
+                .thenReturn(1234L);
+
+        mockMvc.perform(get(LIST_EVENTS_PATH + "?pageSize=10&count=estimate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.pagingMetadata.totalCount").value(1234));
+        mockMvc.perform(get(LIST_EVENTS_PATH + "?pageSize=10&count=none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.pagingMetadata.totalCount").doesNotExist());
+        verify(auditEventService, never()).countAuditEvents(any(), any(), any(), any(), any());
+    }
+
     @Test
     void postEvent() throws Exception {
         String eventId = "6950bc28-4c09-43fe-8361-2a26555e92b6";
 
-        AuditEventRequest body = TestUtil.Data.STATE_CHANGE_REQUEST.readJson();
-        AuditEventEntity bodyData = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
-
         // Mock publishing this event by assigning an ID.
         AuditEventEntity result = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
         result.setEventId(UUID.fromString(eventId));
 
-        when(eventMapper.toEntity(BUSINESS_OBJECT_ID, BUSINESS_OBJECT_TYPE, body))
-                .thenReturn(bodyData);
         when(auditEventService.addAuditEvent(any())).thenReturn(result);
 
         mockMvc.perform(
-                        post("/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002/")
+                        post("/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002")
                                 .content(TestUtil.Data.STATE_CHANGE_REQUEST.readJsonString())
                                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isCreated())
@@ -188,7 +340,7 @@ class AuditEventApiDelegateImplTest {
     @Test
     void postEvent_GivenInvalidRequestBody_ShouldReturnHttp400() throws Exception {
         mockMvc.perform(
-                        post("/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002/")
+                        post("/api/v1/audit-events/orders/1190241c-5eae-11ec-bf63-0242ac130002")
                                 .content("{}")
                                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest())
@@ -198,4 +350,178 @@ class AuditEventApiDelegateImplTest {
                                 "'timestamp': must not be null",
                                 "'summary': must not be null"));
     }
+
+    @Test
+    void postEvents_GivenValidItems_ShouldReturnHttp201WithEventIds() throws Exception {
+        when(auditEventService.addAuditEvents(anyList())).thenAnswer(this::assignEventIds);
+        String event = TestUtil.Data.ACTIVITY_REQUEST.readJsonString();
+
+        mockMvc.perform(
+                        post("/api/v1/audit-events")
+                                .content(batch(event, event))
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].eventId").exists())
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].eventId").exists());
+    }
+
+    @Test
+    void postEvents_GivenRejectedItem_ShouldReturnHttp207WithPerItemResults() throws Exception {
+        when(auditEventService.addAuditEvents(anyList())).thenAnswer(this::assignEventIds);
+        String event = TestUtil.Data.ACTIVITY_REQUEST.readJsonString();
+        String oversized = event.replace("find all records", "x".repeat(2000));
+
+        mockMvc.perform(
+                        post("/api/v1/audit-events")
+                                .content(batch(event, oversized, event))
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.results", hasSize(3)))
+                .andExpect(jsonPath("$.results[0].eventId").exists())
+                .andExpect(jsonPath("$.results[1].eventId").doesNotExist())
+                .andExpect(
+                        jsonPath("$.results[1].errorMessage")
+                                .value("The event exceeds the maximum size of 1000 bytes."))
+                .andExpect(jsonPath("$.results[2].eventId").exists());
+        verify(auditEventService).addAuditEvents(argThat(events -> events.size() == 2));
+    }
+
+    @Test
+    void getRelatedEvents_GivenBusinessObject_ShouldReturnPage() throws Exception {
+        AuditEventEntity auditEvent = TestUtil.Data.ACTIVITY_ENTITY.readJson();
+        when(auditEventService.findRelatedAuditEvents(
+                        "http://example.com/orders/1",
+                        null,
+                        null,
+                        0,
+                        10,
+                        ASC,
+                        "timestamp",
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(new SliceImpl<>(List.of(auditEvent), PageRequest.of(0, 10), true));
+
+        mockMvc.perform(
+                        get("/api/v1/audit-events/related")
+                                .queryParam("businessObject", "http://example.com/orders/1")
+                                .queryParam("pageSize", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.pagingMetadata.totalCount").doesNotExist())
+                .andExpect(
+                        jsonPath("$.pagingMetadata.nextPage")
+                                .value(containsString("pageNumber=1")));
+    }
+
+    @Test
+    void getEventsByRequestContext_GivenTenant_ShouldLinkNextPageByCursor() throws Exception {
+        UUID tenantId = UUID.randomUUID();
+        AuditEventEntity auditEvent = TestUtil.Data.ACTIVITY_ENTITY.readJson();
+        auditEvent.setEventId(UUID.randomUUID());
+        when(auditEventService.findAuditEventsByRequestContext(
+                        null,
+                        tenantId,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        1,
+                        "DESC",
+                        AuditEventFields.parse("eventId,summary"),
+                        AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(new SliceImpl<>(List.of(auditEvent), PageRequest.of(0, 1), true));
+
+        mockMvc.perform(
+                        get("/api/v1/audit-events/request-context")
+                                .queryParam("tenantId", tenantId.toString())
+                                .queryParam("sortOrder", "DESC")
+                                .queryParam("pageSize", "1")
+                                .queryParam("fields", "eventId,summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.events[0].summary").value("sed ipsum in ex"))
+                .andExpect(jsonPath("$.events[0].eventData").doesNotExist())
+                .andExpect(jsonPath("$.pagingMetadata.nextPage").value(containsString("cursor=")));
+    }
+
+    @Test
+    void searchEvents_GivenWords_ShouldReturnMatchingEventsOfPrincipalTenant() throws Exception {
+        UUID tenantId = UUID.randomUUID();
+        AuditEventEntity auditEvent = TestUtil.Data.ACTIVITY_ENTITY.readJson();
+        when(accessPlanner.tenantId()).thenReturn(Optional.of(tenantId));
+        when(auditEventService.searchAuditEvents(
+                        "records",
+                        tenantId,
+                        null,
+                        null,
+                        "relevance",
+                        5,
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(List.of(auditEvent));
+
+        mockMvc.perform(
+                        get("/api/v1/audit-events/search")
+                                .queryParam("q", "records")
+                                .queryParam("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.pagingMetadata.pageSize").value(5));
+    }
+
+    @Test
+    void searchEvents_GivenOtherTenantOrPrincipalWithoutTenant_ShouldReturnHttp403()
+            throws Exception {
+        when(accessPlanner.tenantId())
+                .thenReturn(Optional.of(UUID.randomUUID()))
+                .thenReturn(Optional.empty());
+
+        mockMvc.perform(
+                        get("/api/v1/audit-events/search")
+                                .queryParam("q", "records")
+                                .queryParam("tenantId", UUID.randomUUID().toString()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/audit-events/search").queryParam("q", "records"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(auditEventService);
+    }
+
+    @Test
+    void searchEvents_GivenNoWords_ShouldReturnHttp400() throws Exception {
+        mockMvc.perform(
+                        get("/api/v1/audit-events/search")
+                                .queryParam("tenantId", UUID.randomUUID().toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<AuditEventEntity> assignEventIds(InvocationOnMock invocation) {
+        List<AuditEventEntity> events = invocation.getArgument(0);
+        events.forEach(event -> event.setEventId(UUID.randomUUID()));
+        return events;
+    }
+
+    private static String batch(String... events) {
+        StringBuilder body = new StringBuilder("{\"events\":[");
+        for (int i = 0; i < events.length; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"businessObject\":{\"type\":\"orders\",\"id\":\"")
+                    .append(UUID.randomUUID())
+                    .append("\"},\"event\":")
+                    .append(events[i])
+                    .append('}');
+        }
+        return body.append("]}").toString();
+    }
+
+    @TestConfiguration
+    static class MapperConfig {
+        @Bean
+        AuditEventMapper auditEventMapper() {
+            return Mappers.getMapper(AuditEventMapper.class);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import static io.nuvalence.platform.audit.service.utils.TestUtil.Data.ACTIVITY_ENTITY;
+import static io.nuvalence.platform.audit.service.utils.TestUtil.Data.STATE_CHANGE_ENTITY;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.error.ApiException;
+import io.nuvalence.platform.audit.service.mapper.AuditEventMapper;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import io.nuvalence.platform.audit.service.service.AuditEventService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@ExtendWith(MockitoExtension.class)
+class AuditEventExportControllerTest {
+    private static final String BUSINESS_OBJECT_TYPE = "orders";
+    private static final UUID BUSINESS_OBJECT_ID = UUID.randomUUID();
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Mock private AuditEventService auditEventService;
+    @Mock private AuditEventAccessPlanner accessPlanner;
+
+    private AuditEventExportController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller =
+                new AuditEventExportController(
+                        auditEventService,
+                        accessPlanner,
+                        Mappers.getMapper(AuditEventMapper.class),
+                        mapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportEvents_GivenEvents_ShouldWriteOneJsonLinePerEvent() throws Exception {
+        List<AuditEventEntity> events =
+                List.of(ACTIVITY_ENTITY.readJson(), STATE_CHANGE_ENTITY.readJson());
+        events.forEach(event -> event.setEventId(UUID.randomUUID()));
+        Mockito.when(accessPlanner.plan("view")).thenReturn(AuditEventAccessFilter.ALLOW_ALL);
+        Mockito.doAnswer(
+                        invocation -> {
+                            events.forEach(invocation.<Consumer<AuditEventEntity>>getArgument(5));
+                            return null;
+                        })
+                .when(auditEventService)
+                .exportAuditEvents(
+                        ArgumentMatchers.eq(BUSINESS_OBJECT_TYPE),
+                        ArgumentMatchers.eq(BUSINESS_OBJECT_ID),
+                        ArgumentMatchers.isNull(),
+                        ArgumentMatchers.isNull(),
+                        ArgumentMatchers.eq(AuditEventAccessFilter.ALLOW_ALL),
+                        ArgumentMatchers.any(Consumer.class));
+
+        var response =
+                controller.exportEvents(BUSINESS_OBJECT_TYPE, BUSINESS_OBJECT_ID, null, null);
+        var output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                MediaType.APPLICATION_NDJSON,
+                                response.getHeaders().getContentType()),
+                () -> Assertions.assertEquals(2, lines.length),
+                () ->
+                        Assertions.assertEquals(
+                                events.get(0).getEventId().toString(),
+                                mapper.readTree(lines[0]).get("eventId").asText()),
+                () ->
+                        Assertions.assertEquals(
+                                events.get(1).getEventId().toString(),
+                                mapper.readTree(lines[1]).get("eventId").asText()));
+    }
+
+    @Test
+    void exportEvents_GivenInvalidTimeRange_ShouldThrowBeforeStreaming() {
+        Mockito.when(accessPlanner.plan("view")).thenReturn(AuditEventAccessFilter.ALLOW_ALL);
+        var startTime = OffsetDateTime.now();
+
+        Assertions.assertThrows(
+                ApiException.class,
+                () ->
+                        controller.exportEvents(
+                                BUSINESS_OBJECT_TYPE,
+                                BUSINESS_OBJECT_ID,
+                                startTime,
+                                startTime.minusSeconds(1)));
+        Mockito.verifyNoInteractions(auditEventService);
+    }
+
+    @Test
+    void exportEvents_GivenNoPermission_ShouldThrowAccessDenied() {
+        Mockito.when(accessPlanner.plan("view")).thenReturn(AuditEventAccessFilter.DENY_ALL);
+
+        Assertions.assertThrows(
+                AccessDeniedException.class,
+                () ->
+                        controller.exportEvents(
+                                BUSINESS_OBJECT_TYPE, BUSINESS_OBJECT_ID, null, null));
+    }
+}
@@ -0,0 +1,57 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import io.nuvalence.platform.audit.service.repository.AuditEventsVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+class AuditEventsETagTest {
+    private static final OffsetDateTime LATEST = OffsetDateTime.parse("2023-09-01T12:00:00Z");
+
+    @Test
+    void of_GivenSameVersionAndQuery_ShouldReturnSameStrongETag() {
+        var eTag = AuditEventsETag.of(new AuditEventsVersion(3, LATEST), List.of("slice", 0));
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(eTag.matches("^\"[0-9a-f]{32}\"$")),
+                () ->
+                        Assertions.assertEquals(
+                                eTag,
+                                AuditEventsETag.of(
+                                        new AuditEventsVersion(
+                                                3,
+                                                OffsetDateTime.parse("2023-09-01T14:00:00+02:00")),
+                                        List.of("slice", 0))));
+    }
+
+    @Test
+    void of_GivenNewEventOrOtherQuery_ShouldReturnDifferentETag() {
+        var eTag = AuditEventsETag.of(new AuditEventsVersion(3, LATEST), List.of("slice", 0));
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertNotEquals(
+                                eTag,
+                                AuditEventsETag.of(
+                                        new AuditEventsVersion(4, LATEST), List.of("slice", 0))),
+                () ->
+                        Assertions.assertNotEquals(
+                                eTag,
+                                AuditEventsETag.of(
+                                        new AuditEventsVersion(3, LATEST), List.of("slice", 1))));
+    }
+
+    @Test
+    void matches_GivenIfNoneMatchHeader_ShouldCompareWeakly() {
+        var eTag = "\"abc\"";
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(AuditEventsETag.matches(eTag, eTag)),
+                () -> Assertions.assertTrue(AuditEventsETag.matches("\"x\", W/\"abc\"", eTag)),
+                () -> Assertions.assertTrue(AuditEventsETag.matches("*", eTag)),
+                () -> Assertions.assertFalse(AuditEventsETag.matches("\"x\"", eTag)),
+                () -> Assertions.assertFalse(AuditEventsETag.matches(null, eTag)));
+    }
+}
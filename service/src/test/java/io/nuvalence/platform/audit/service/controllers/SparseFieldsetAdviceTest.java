@@ -0,0 +1,82 @@
+package io.nuvalence.platform.audit.service.controllers;
+
+import static io.nuvalence.platform.audit.service.utils.TestUtil.Data.ACTIVITY_ENTITY;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.error.ApiException;
+import io.nuvalence.platform.audit.service.generated.models.AuditEventsPage;
+import io.nuvalence.platform.audit.service.mapper.AuditEventMapper;
+import io.nuvalence.platform.audit.service.service.AuditEventFields;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+class SparseFieldsetAdviceTest {
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final SparseFieldsetAdvice advice = new SparseFieldsetAdvice(mapper);
+
+    private AuditEventsPage page;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        AuditEventEntity event = ACTIVITY_ENTITY.readJson();
+        event.setEventId(UUID.randomUUID());
+        page =
+                new AuditEventsPage()
+                        .events(
+                                List.of(
+                                        Mappers.getMapper(AuditEventMapper.class)
+                                                .fromEntity(event)));
+    }
+
+    @Test
+    void beforeBodyWrite_GivenFields_ShouldLeaveOutUnrequestedProperties() {
+        var body = (JsonNode) write("timestamp,activityType");
+
+        JsonNode event = body.get("events").get(0);
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(event.has("eventId")),
+                () -> Assertions.assertTrue(event.has("timestamp")),
+                () -> Assertions.assertFalse(event.has("summary")),
+                () -> Assertions.assertFalse(event.has("businessObject")),
+                () -> Assertions.assertTrue(event.get("eventData").has("activityType")),
+                () -> Assertions.assertFalse(event.get("eventData").has("data")));
+    }
+
+    @Test
+    void beforeBodyWrite_GivenNoFields_ShouldReturnPageUnchanged() {
+        Assertions.assertSame(page, write(null));
+    }
+
+    @Test
+    void parse_GivenUnknownField_ShouldThrowError() {
+        Assertions.assertThrows(ApiException.class, () -> AuditEventFields.parse("eventId,foo"));
+    }
+
+    private Object write(String fields) {
+        var request = new MockHttpServletRequest();
+        if (fields != null) {
+            request.setParameter(SparseFieldsetAdvice.FIELDS_PARAMETER, fields);
+        }
+        return advice.beforeBodyWrite(
+                page,
+                null,
+                MediaType.APPLICATION_JSON,
+                MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(request),
+                null);
+    }
+}
@@ -14,12 +14,14 @@ import io.nuvalence.platform.audit.service.generated.models.AuditEventDataBase;
 import io.nuvalence.platform.audit.service.generated.models.AuditEventRequest;
 import io.nuvalence.platform.audit.service.generated.models.BusinessObjectMetadata;
 import io.nuvalence.platform.audit.service.generated.models.StateChangeEventData;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
 import io.nuvalence.platform.audit.service.utils.SamplesUtil;
 import io.nuvalence.platform.audit.service.utils.TestUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mapstruct.factory.Mappers;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.util.List;
@@ -110,6 +112,26 @@ class AuditEventMapperTest {
         assertThat(auditEventMapper.fromEntity(entity)).usingRecursiveComparison().isEqualTo(model);
     }
 
+    @Test
+    void fromEntity_ShouldDecompressPayloads() throws Exception {
+        AuditEvent model = TestUtil.Data.STATE_CHANGE_MODEL.readJson();
+        model.businessObject(createEntityModel());
+        model.setEventId(EVENT_ID);
+
+        StateChangeEventEntity entity = TestUtil.Data.STATE_CHANGE_ENTITY.readJson();
+        entity.setEventId(EVENT_ID);
+        PayloadCompressor compressor = new PayloadCompressor();
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "minLength", 0);
+        entity.setNewState(entity.getNewState().repeat(20));
+        compressor.compress(entity);
+        ((StateChangeEventData) model.getEventData())
+                .setNewState(
+                        ((StateChangeEventData) model.getEventData()).getNewState().repeat(20));
+
+        assertThat(auditEventMapper.fromEntity(entity)).usingRecursiveComparison().isEqualTo(model);
+    }
+
     private BusinessObjectMetadata createEntityModel() {
         var businessObjectMetadata = new BusinessObjectMetadata();
         businessObjectMetadata.setId(ENTITY_ID);
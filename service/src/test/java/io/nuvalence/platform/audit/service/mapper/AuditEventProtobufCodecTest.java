@@ -0,0 +1,96 @@
+package io.nuvalence.platform.audit.service.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class AuditEventProtobufCodecTest {
+    private final AuditEventProtobufCodec codec = new AuditEventProtobufCodec();
+
+    @Test
+    void decode_shouldRoundTripEncodedEvents() throws IOException {
+        var activity = new ActivityEventEntity();
+        activity.setEventId(UUID.randomUUID());
+        activity.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        activity.setSchema("https://www.example.com/test/uri");
+        activity.setBusinessObjectId(UUID.randomUUID());
+        activity.setBusinessObjectType("test");
+        activity.setTimestamp(
+                OffsetDateTime.of(2023, 5, 1, 12, 30, 15, 123456789, ZoneOffset.ofHours(-5)));
+        activity.setSummary("Test Summary");
+        activity.setSystemOfRecord("https://www.example.com/system");
+        activity.setRelatedBusinessObjects(Set.of("first", "second"));
+        activity.setActivityType("activity");
+        activity.setData("{\"key\": \"value\"}");
+        var requestContext = new RequestContext();
+        requestContext.setUserId(UUID.randomUUID());
+        requestContext.setOriginatorId(UUID.randomUUID());
+        activity.setRequestContext(requestContext);
+
+        var stateChange = new StateChangeEventEntity();
+        stateChange.setEventId(UUID.randomUUID());
+        stateChange.setType(TypeEnum.STATE_CHANGE_EVENT_DATA);
+        stateChange.setOldState("old");
+        stateChange.setNewState("new");
+
+        List<AuditEventEntity> events = List.of(activity, stateChange);
+        var result = codec.decode(codec.encode(events));
+
+        assertThat(result).usingRecursiveComparison().isEqualTo(events);
+        assertThat(result.get(0)).isInstanceOf(ActivityEventEntity.class);
+        assertThat(result.get(1)).isInstanceOf(StateChangeEventEntity.class);
+    }
+
+    @Test
+    void decode_shouldRoundTripCompressedPayloads() throws IOException {
+        var stateChange = new StateChangeEventEntity();
+        stateChange.setType(TypeEnum.STATE_CHANGE_EVENT_DATA);
+        stateChange.setOldState(PayloadCompressor.fromCompressedBytes(new byte[] {1, 2, 3}));
+        stateChange.setNewState("new");
+
+        List<AuditEventEntity> events = List.of(stateChange);
+
+        assertThat(codec.decode(codec.encode(events))).usingRecursiveComparison().isEqualTo(events);
+    }
+
+    @Test
+    void decode_shouldRejectUnsupportedVersion() {
+        // envelope with only field 1 (version) set to 2
+        var payload = new byte[] {0x08, 0x02};
+
+        Assertions.assertThrows(IOException.class, () -> codec.decode(payload));
+    }
+
+    @Test
+    void decode_shouldRejectEventsOfMissingOrUnknownKind() {
+        // version 1 envelopes with an empty event, and with an event of kind 3
+        var missingKind = new byte[] {0x08, 0x01, 0x12, 0x00};
+        var unknownKind = new byte[] {0x08, 0x01, 0x12, 0x02, 0x08, 0x03};
+
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IOException.class, () -> codec.decode(missingKind)),
+                () -> Assertions.assertThrows(IOException.class, () -> codec.decode(unknownKind)));
+    }
+
+    @Test
+    void decode_shouldRejectMalformedPayload() {
+        var payload = "{\"not\": \"protobuf\"}".getBytes(StandardCharsets.UTF_8);
+
+        Assertions.assertThrows(IOException.class, () -> codec.decode(payload));
+    }
+}
@@ -7,9 +7,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.mock.web.MockHttpServletRequest;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 
@@ -78,4 +80,49 @@ class PagingMetadataMapperTest {
 
         Assertions.assertEquals(expectedMetadata, mapper.toPagingMetadata(fakePage));
     }
+
+    @Test
+    void toPagingMetadata_givenUncountedSliceWithNext_ShouldOmitTotalCountAndLinkNextPage() {
+        var slice =
+                new SliceImpl<>(
+                        List.of(new AuditEventEntity()),
+                        PageRequest.of(pageNumber, pageSize),
+                        true);
+
+        Assertions.assertEquals(
+                new PagingMetadata()
+                        .pageNumber(pageNumber)
+                        .pageSize(pageSize)
+                        .nextPage("http://localhost?pageNumber=" + (pageNumber + 1)),
+                mapper.toPagingMetadata(slice, null));
+    }
+
+    @Test
+    void toPagingMetadata_givenSliceWithNext_ShouldReturnNextPageLinkWithCursorOfLastItem() {
+        var first = new AuditEventEntity();
+        var last = new AuditEventEntity();
+        last.setEventId(UUID.randomUUID());
+        var slice = new SliceImpl<>(List.of(first, last), PageRequest.of(0, 2), true);
+        mockHttpServletRequest.addParameter("pageNumber", "3");
+        mockHttpServletRequest.addParameter("cursor", "previous");
+
+        var metadata =
+                mapper.toPagingMetadata(slice, totalCount, event -> event.getEventId().toString());
+
+        Assertions.assertEquals(
+                new PagingMetadata()
+                        .pageNumber(0)
+                        .pageSize(2)
+                        .totalCount(totalCount)
+                        .nextPage("http://localhost?cursor=" + last.getEventId()),
+                metadata);
+    }
+
+    @Test
+    void toPagingMetadata_givenLastSlice_ShouldReturnNoNextPage() {
+        var slice = new SliceImpl<>(List.of(new AuditEventEntity()), PageRequest.of(0, 2), false);
+
+        Assertions.assertNull(
+                mapper.toPagingMetadata(slice, 1L, event -> "cursor").getNextPage());
+    }
 }
@@ -0,0 +1,42 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the application against PostgreSQL in a container, for the SQL that H2 cannot run: the
+ * partitioned schema, full-text search and query plans. Skipped where Docker is not available.
+ *
+ * <p>The container is started once, by the first test class, and shared by all of them so that
+ * they can share the application context as well.</p>
+ */
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class AbstractPostgresTest {
+    private static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @MockBean protected AuthorizationHandler authorizationHandler;
+
+    @MockBean protected AuditEventAccessPlanner accessPlanner;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add(
+                "spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+}
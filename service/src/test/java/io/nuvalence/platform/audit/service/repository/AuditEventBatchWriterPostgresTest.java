@@ -0,0 +1,78 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class AuditEventBatchWriterPostgresTest extends AbstractPostgresTest {
+    private static final String businessObjectType = "batch-test";
+
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertAll_shouldCountOnlyEventsWhichWereInserted() {
+        var businessObjectId = UUID.randomUUID();
+        var existing = event(businessObjectId);
+        var fresh = event(businessObjectId);
+        fresh.setRelatedBusinessObjects(Set.of("related"));
+
+        batchWriter.insertAll(List.of(existing));
+        var inserted = batchWriter.insertAll(List.of(existing, fresh, fresh));
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, inserted),
+                () ->
+                        Assertions.assertEquals(
+                                2,
+                                jdbcTemplate.queryForObject(
+                                        "SELECT count(*) FROM audit_events"
+                                                + " WHERE business_object_id = ?",
+                                        Integer.class,
+                                        businessObjectId)),
+                () ->
+                        Assertions.assertEquals(
+                                1,
+                                jdbcTemplate.queryForObject(
+                                        "SELECT count(*) FROM audit_events_related_business_objects"
+                                                + " WHERE audit_event_id = ?",
+                                        Integer.class,
+                                        fresh.getEventId())));
+    }
+
+    @Test
+    void insertAll_shouldIndexSummaryAndPayload() {
+        var event = event(UUID.randomUUID());
+        event.setSummary("Application submitted");
+        event.setData("{\"applicant\": \"lovelace\"}");
+
+        batchWriter.insertAll(List.of(event));
+
+        Assertions.assertEquals(
+                Boolean.TRUE,
+                jdbcTemplate.queryForObject(
+                        "SELECT search_vector @@ to_tsquery('english', 'submitted & lovelace')"
+                                + " FROM audit_events WHERE id = ?",
+                        Boolean.class,
+                        event.getEventId()));
+    }
+
+    private static ActivityEventEntity event(UUID businessObjectId) {
+        var event = new ActivityEventEntity();
+        event.setEventId(UUID.randomUUID());
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setBusinessObjectId(businessObjectId);
+        event.setBusinessObjectType(businessObjectType);
+        event.setTimestamp(OffsetDateTime.now());
+        event.setActivityType("activity");
+        return event;
+    }
+}
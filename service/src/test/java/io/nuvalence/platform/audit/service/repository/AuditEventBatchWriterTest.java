@@ -0,0 +1,194 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.auth.access.AuthorizationHandler;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import io.nuvalence.platform.audit.service.service.AuditEventQueryCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@SpringBootTest
+@ActiveProfiles("test")
+class AuditEventBatchWriterTest {
+    private static final String businessObjectType = "batch-test";
+
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private AuditEventRepository auditEventRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private AuditEventQueryCache queryCache;
+
+    @MockBean private AuthorizationHandler authorizationHandler;
+
+    @MockBean private AuditEventAccessPlanner accessPlanner;
+
+    @Test
+    @Transactional
+    void insertAll_shouldPersistEventsAndRelatedBusinessObjects() {
+        var businessObjectId = UUID.randomUUID();
+        var timestamp = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        var activity = new ActivityEventEntity();
+        activity.setEventId(UUID.randomUUID());
+        activity.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        activity.setBusinessObjectId(businessObjectId);
+        activity.setBusinessObjectType(businessObjectType);
+        activity.setTimestamp(timestamp);
+        activity.setActivityType("activity");
+        activity.setData("{\"key\": \"value\"}");
+        activity.setRelatedBusinessObjects(Set.of("first", "second"));
+        var requestContext = new RequestContext();
+        requestContext.setUserId(UUID.randomUUID());
+        activity.setRequestContext(requestContext);
+
+        var stateChange = new StateChangeEventEntity();
+        stateChange.setEventId(UUID.randomUUID());
+        stateChange.setType(TypeEnum.STATE_CHANGE_EVENT_DATA);
+        stateChange.setBusinessObjectId(businessObjectId);
+        stateChange.setBusinessObjectType(businessObjectType);
+        stateChange.setTimestamp(timestamp.plusMinutes(1));
+        stateChange.setOldState("old");
+        stateChange.setNewState("new");
+
+        batchWriter.insertAll(List.of(activity, stateChange));
+
+        var saved =
+                auditEventRepository
+                        .findAll(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                PageRequest.of(0, 10))
+                        .getContent();
+
+        var savedActivity = (ActivityEventEntity) find(saved, activity.getEventId());
+        var savedStateChange = (StateChangeEventEntity) find(saved, stateChange.getEventId());
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(2, saved.size()),
+                () -> Assertions.assertEquals(activity.getData(), savedActivity.getData()),
+                () ->
+                        Assertions.assertEquals(
+                                TypeEnum.ACTIVITY_EVENT_DATA, savedActivity.getType()),
+                () -> Assertions.assertTrue(timestamp.isEqual(savedActivity.getTimestamp())),
+                () ->
+                        Assertions.assertEquals(
+                                activity.getRelatedBusinessObjects(),
+                                savedActivity.getRelatedBusinessObjects()),
+                () ->
+                        Assertions.assertEquals(
+                                requestContext.getUserId(),
+                                savedActivity.getRequestContext().getUserId()),
+                () -> Assertions.assertEquals("new", savedStateChange.getNewState()),
+                () -> Assertions.assertEquals("old", savedStateChange.getOldState()));
+    }
+
+    @Test
+    @Transactional
+    void insertAll_shouldSkipEventsWhichAlreadyExist() {
+        var businessObjectId = UUID.randomUUID();
+        var existing = event(businessObjectId);
+        existing.setRelatedBusinessObjects(Set.of("related"));
+        var fresh = event(businessObjectId);
+
+        batchWriter.insertAll(List.of(existing));
+        var inserted = batchWriter.insertAll(List.of(existing, fresh));
+
+        var saved =
+                auditEventRepository
+                        .findAll(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                PageRequest.of(0, 10))
+                        .getContent();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, inserted),
+                () -> Assertions.assertEquals(2, saved.size()),
+                () ->
+                        Assertions.assertEquals(
+                                Set.of("related"),
+                                find(saved, existing.getEventId()).getRelatedBusinessObjects()));
+    }
+
+    @Test
+    @Transactional
+    void insertAll_shouldStoreNativeUuidsAndTypeCodes() {
+        var event = event(UUID.randomUUID());
+
+        batchWriter.insertAll(List.of(event));
+
+        var row =
+                jdbcTemplate.queryForMap(
+                        "SELECT id, type FROM audit_events WHERE id = ?", event.getEventId());
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(event.getEventId(), row.get("id")),
+                () ->
+                        Assertions.assertEquals(
+                                TypeEnum.ACTIVITY_EVENT_DATA.getCode(),
+                                ((Number) row.get("type")).shortValue()));
+    }
+
+    @Test
+    void insertAll_shouldInvalidateCachedQueriesOfBusinessObjectOnCommit() {
+        var businessObjectId = UUID.randomUUID();
+        var otherObjectId = UUID.randomUUID();
+        queryCache.get(businessObjectType, businessObjectId, List.of("q"), () -> "before");
+        queryCache.get(businessObjectType, otherObjectId, List.of("q"), () -> "before");
+
+        batchWriter.insertAll(List.of(event(businessObjectId)));
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                "after",
+                                queryCache.get(
+                                        businessObjectType,
+                                        businessObjectId,
+                                        List.of("q"),
+                                        () -> "after")),
+                () ->
+                        Assertions.assertEquals(
+                                "before",
+                                queryCache.get(
+                                        businessObjectType,
+                                        otherObjectId,
+                                        List.of("q"),
+                                        () -> "after")));
+    }
+
+    private static ActivityEventEntity event(UUID businessObjectId) {
+        var event = new ActivityEventEntity();
+        event.setEventId(UUID.randomUUID());
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setBusinessObjectId(businessObjectId);
+        event.setBusinessObjectType(businessObjectType);
+        event.setTimestamp(OffsetDateTime.now());
+        return event;
+    }
+
+    private static AuditEventEntity find(List<AuditEventEntity> events, UUID eventId) {
+        return events.stream()
+                .filter(event -> eventId.equals(event.getEventId()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,419 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity_;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+
+/**
+ * Guards the read indexes: records the statements {@link AuditEventRepository} issues for each
+ * query shape, with their parameters, and fails if PostgreSQL plans any of them with a
+ * sequential scan or, where an index provides the order, with a sort.
+ *
+ * <p>The seeded tables are small enough for a sequential scan or a sort to be cheapest, so both
+ * are disabled while planning: the planner then only chooses them if no index applies.</p>
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AuditEventQueryPlanTest extends AbstractPostgresTest {
+    private static final String businessObjectType = "plan-test";
+    private static final Pattern PARAMETER = Pattern.compile("\\?");
+    private static final Pattern SEQUENTIAL_SCAN = Pattern.compile("Seq Scan");
+    private static final Pattern SORT =
+            Pattern.compile("(?m)^\\s*(->\\s+)?(Incremental )?Sort\\s+\\(cost");
+
+    private static final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    private final OffsetDateTime rangeStart =
+            OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private final List<UUID> businessObjectIds =
+            IntStream.range(0, 20).mapToObj(i -> UUID.randomUUID()).toList();
+
+    @Autowired private AuditEventRepository repository;
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        // 20 business objects with 25 events each
+        List<AuditEventEntity> events =
+                businessObjectIds.stream()
+                        .flatMap(
+                                id ->
+                                        IntStream.range(0, 25)
+                                                .mapToObj(h -> event(id, rangeStart.plusHours(h))))
+                        .toList();
+        batchWriter.insertAll(events);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @BeforeEach
+    void clearStatements() {
+        statements.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                AuditEventEntity_.TIMESTAMP,
+                AuditEventEntity_.BUSINESS_OBJECT_TYPE,
+                AuditEventEntity_.SYSTEM_OF_RECORD,
+                AuditEventEntity_.BUSINESS_OBJECT_ID,
+                AuditEventEntity_.TYPE,
+                AuditEventEntity_.SCHEMA,
+                AuditEventEntity_.EVENT_ID
+            })
+    void findAll_givenBusinessObject_shouldUseIndexForEverySortColumn(String sortBy) {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            // a full first page, so the count is queried as well
+            var pageable = PageRequest.of(0, 10, Sort.by(direction, sortBy));
+            read(
+                    () ->
+                            repository.findAll(
+                                    businessObjectType,
+                                    businessObjectIds.get(0),
+                                    null,
+                                    null,
+                                    pageable,
+                                    true,
+                                    AuditEventAccessFilter.ALLOW_ALL));
+            read(
+                    () ->
+                            repository.findAll(
+                                    businessObjectType,
+                                    businessObjectIds.get(0),
+                                    rangeStart,
+                                    rangeStart.plusHours(12),
+                                    pageable,
+                                    false,
+                                    AuditEventAccessFilter.ALLOW_ALL));
+        }
+
+        assertPlans(8, true);
+    }
+
+    @Test
+    void findAllAfter_givenCursor_shouldUseIndex() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            read(
+                    () ->
+                            repository.findAllAfter(
+                                    businessObjectType,
+                                    businessObjectIds.get(0),
+                                    rangeStart,
+                                    rangeStart.plusHours(20),
+                                    rangeStart.plusHours(12),
+                                    UUID.randomUUID(),
+                                    direction,
+                                    10,
+                                    true,
+                                    AuditEventAccessFilter.ALLOW_ALL));
+        }
+
+        assertPlans(2, true);
+    }
+
+    @Test
+    void version_givenBusinessObject_shouldUseIndex() {
+        read(() -> repository.findVersion(businessObjectType, businessObjectIds.get(0)));
+
+        assertPlans(1, false);
+    }
+
+    @Test
+    void loadRelatedBusinessObjects_givenEvents_shouldUseIndex() {
+        read(
+                () -> {
+                    var events =
+                            repository
+                                    .findSlice(
+                                            businessObjectType,
+                                            businessObjectIds.get(0),
+                                            null,
+                                            null,
+                                            PageRequest.of(0, 10),
+                                            false,
+                                            AuditEventAccessFilter.ALLOW_ALL)
+                                    .getContent();
+                    repository.loadRelatedBusinessObjects(events);
+                    return events;
+                });
+
+        assertPlans(2, false);
+    }
+
+    @Test
+    void findRelatedSlice_givenRelatedBusinessObject_shouldUseIndex() {
+        read(
+                () ->
+                        repository.findRelatedSlice(
+                                "related/" + businessObjectIds.get(0),
+                                rangeStart,
+                                rangeStart.plusHours(12),
+                                PageRequest.of(0, 10, Sort.by(AuditEventEntity_.TIMESTAMP)),
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL));
+
+        // the events are found through the related business object, so they need sorting
+        assertPlans(1, false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"userId", "tenantId", "requestId", "traceId"})
+    void findByRequestContextAfter_givenContextField_shouldUseIndex(String field) {
+        UUID value = businessObjectIds.get(0);
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            read(
+                    () ->
+                            repository.findByRequestContextAfter(
+                                    "userId".equals(field) ? value : null,
+                                    "tenantId".equals(field) ? value : null,
+                                    "requestId".equals(field) ? value : null,
+                                    "traceId".equals(field) ? value : null,
+                                    rangeStart,
+                                    rangeStart.plusHours(20),
+                                    rangeStart.plusHours(12),
+                                    UUID.randomUUID(),
+                                    direction,
+                                    10,
+                                    true,
+                                    AuditEventAccessFilter.ALLOW_ALL));
+        }
+
+        assertPlans(2, true);
+    }
+
+    private void read(Supplier<?> query) {
+        transactionTemplate.execute(status -> query.get());
+    }
+
+    /**
+     * Plans the recorded statements; ordered statements must not sort, since an index provides
+     * their order.
+     */
+    private void assertPlans(int minimumStatements, boolean ordered) {
+        List<RecordedStatement> recorded = List.copyOf(statements);
+        Assertions.assertTrue(
+                recorded.size() >= minimumStatements,
+                () -> "Expected at least " + minimumStatements + " statements: " + recorded);
+
+        for (RecordedStatement statement : recorded) {
+            String sql = statement.inline();
+            String plan = explain(sql);
+            Assertions.assertFalse(
+                    SEQUENTIAL_SCAN.matcher(plan).find(),
+                    () -> "Sequential scan for " + sql + "\n" + plan);
+            if (ordered && sql.toLowerCase(Locale.ROOT).contains(" order by ")) {
+                Assertions.assertFalse(
+                        SORT.matcher(plan).find(), () -> "Sort for " + sql + "\n" + plan);
+            }
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute(
+                (ConnectionCallback<String>)
+                        connection -> {
+                            try (Statement statement = connection.createStatement()) {
+                                statement.execute("SET enable_seqscan = off");
+                                statement.execute("SET enable_sort = off");
+                                try (ResultSet rows = statement.executeQuery("EXPLAIN " + sql)) {
+                                    List<String> lines = new ArrayList<>();
+                                    while (rows.next()) {
+                                        lines.add(rows.getString(1));
+                                    }
+                                    return String.join("\n", lines);
+                                } finally {
+                                    statement.execute("RESET enable_seqscan");
+                                    statement.execute("RESET enable_sort");
+                                }
+                            }
+                        });
+    }
+
+    private static AuditEventEntity event(UUID businessObjectId, OffsetDateTime timestamp) {
+        var event = new ActivityEventEntity();
+        event.setEventId(UUID.randomUUID());
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setBusinessObjectId(businessObjectId);
+        event.setBusinessObjectType(businessObjectType);
+        event.setTimestamp(timestamp);
+        event.setActivityType("activity");
+        event.setData("{}");
+        event.setRelatedBusinessObjects(Set.of("related/" + businessObjectId));
+        var context = new RequestContext();
+        context.setUserId(businessObjectId);
+        context.setTenantId(businessObjectId);
+        context.setRequestId(businessObjectId);
+        context.setTraceId(businessObjectId);
+        event.setRequestContext(context);
+        return event;
+    }
+
+    /**
+     * A query executed through JDBC, with the parameters it was executed with.
+     */
+    private record RecordedStatement(String sql, Map<Integer, Object> parameters) {
+        /**
+         * Returns the SQL with its parameters inlined as literals, so that it can be explained.
+         */
+        String inline() {
+            Matcher matcher = PARAMETER.matcher(sql);
+            StringBuilder inlined = new StringBuilder();
+            int index = 0;
+            while (matcher.find()) {
+                matcher.appendReplacement(
+                        inlined, Matcher.quoteReplacement(literal(parameters.get(++index))));
+            }
+            return matcher.appendTail(inlined).toString();
+        }
+
+        private static String literal(Object value) {
+            if (value == null) {
+                return "NULL";
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString();
+            }
+            String text =
+                    value instanceof Timestamp timestamp
+                            ? timestamp.toInstant().toString()
+                            : value.toString();
+            return "'" + text.replace("'", "''") + "'";
+        }
+    }
+
+    /**
+     * Records the queries executed through the application's data source.
+     */
+    @TestConfiguration
+    static class RecordingConfig {
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                                    && !(bean instanceof DelegatingDataSource)
+                            ? new RecordingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    private static final class RecordingDataSource extends DelegatingDataSource {
+        RecordingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recording(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recording(super.getConnection(username, password));
+        }
+
+        private static Connection recording(Connection connection) {
+            return proxy(
+                    Connection.class,
+                    connection,
+                    (method, args, result) ->
+                            "prepareStatement".equals(method)
+                                            && args[0] instanceof String sql
+                                            && isQuery(sql)
+                                    ? recording((PreparedStatement) result, sql)
+                                    : result);
+        }
+
+        private static boolean isQuery(String sql) {
+            return sql.trim().toLowerCase(Locale.ROOT).startsWith("select");
+        }
+
+        private static PreparedStatement recording(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(
+                    PreparedStatement.class,
+                    statement,
+                    (method, args, result) -> {
+                        if (method.startsWith("set")
+                                && args != null
+                                && args.length >= 2
+                                && args[0] instanceof Integer index) {
+                            parameters.put(index, "setNull".equals(method) ? null : args[1]);
+                        } else if ("clearParameters".equals(method)) {
+                            parameters.clear();
+                        } else if ("executeQuery".equals(method) || "execute".equals(method)) {
+                            statements.add(new RecordedStatement(sql, new TreeMap<>(parameters)));
+                        }
+                        return result;
+                    });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Interception interception) {
+            return (T)
+                    Proxy.newProxyInstance(
+                            type.getClassLoader(),
+                            new Class<?>[] {type},
+                            (proxy, method, args) -> {
+                                try {
+                                    return interception.apply(
+                                            method.getName(), args, method.invoke(target, args));
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Interception {
+        Object apply(String method, Object[] args, Object result) throws SQLException;
+    }
+}
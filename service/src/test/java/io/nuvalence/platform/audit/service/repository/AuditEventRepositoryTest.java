@@ -1,14 +1,23 @@
 package io.nuvalence.platform.audit.service.repository;
 
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression.Operand;
 import io.nuvalence.auth.access.AuthorizationHandler;
 import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity_;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
 import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.service.AuditEventAccessPlanner;
+import jakarta.persistence.EntityManager;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.hamcrest.TypeSafeMatcher;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -16,11 +25,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -36,9 +52,14 @@ class AuditEventRepositoryTest {
     private final UUID firstObjectId = UUID.randomUUID();
     private final UUID secondObjectId = UUID.randomUUID();
     @Autowired private AuditEventRepository auditEventRepository;
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
 
     @MockBean private AuthorizationHandler authorizationHandler;
 
+    @MockBean private AuditEventAccessPlanner accessPlanner;
+
     @BeforeAll
     public void beforeEach() {
         System.out.println(rangeStart);
@@ -141,12 +162,475 @@ class AuditEventRepositoryTest {
         MatcherAssert.assertThat(items, hasNItemsMatching(3, matcher));
     }
 
+    @Test
+    void findAllAfter_givenFirstObjectId_ShouldPageThroughAllEventsInTimestampOrder() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<AuditEventEntity> items = new ArrayList<>();
+            Slice<AuditEventEntity> slice =
+                    auditEventRepository.findAllAfter(
+                            businessObjectType,
+                            firstObjectId,
+                            null,
+                            null,
+                            null,
+                            null,
+                            direction,
+                            2,
+                            true,
+                            AuditEventAccessFilter.ALLOW_ALL);
+            items.addAll(slice.getContent());
+            while (slice.hasNext()) {
+                var last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                slice =
+                        auditEventRepository.findAllAfter(
+                                businessObjectType,
+                                firstObjectId,
+                                null,
+                                null,
+                                last.getTimestamp(),
+                                last.getEventId(),
+                                direction,
+                                2,
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL);
+                items.addAll(slice.getContent());
+            }
+
+            Comparator<AuditEventEntity> byTimestamp =
+                    Comparator.comparing(AuditEventEntity::getTimestamp);
+            debugItems(items);
+            MatcherAssert.assertThat(
+                    items, hasNItemsMatching(5, businessObjectIdMatches(firstObjectId)));
+            MatcherAssert.assertThat(
+                    items,
+                    Matchers.equalTo(
+                            items.stream()
+                                    .sorted(
+                                            direction.isAscending()
+                                                    ? byTimestamp
+                                                    : byTimestamp.reversed())
+                                    .toList()));
+        }
+    }
+
+    @Test
+    void findSlice_givenFirstObjectId_ShouldProbeForNextPageWithoutCounting() {
+        var first =
+                auditEventRepository.findSlice(
+                        businessObjectType,
+                        firstObjectId,
+                        null,
+                        null,
+                        PageRequest.of(0, 2),
+                        true,
+                        AuditEventAccessFilter.ALLOW_ALL);
+        var last =
+                auditEventRepository.findSlice(
+                        businessObjectType,
+                        firstObjectId,
+                        null,
+                        null,
+                        PageRequest.of(2, 2),
+                        true,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        MatcherAssert.assertThat(
+                first.getContent(), hasNItemsMatching(2, businessObjectIdMatches(firstObjectId)));
+        MatcherAssert.assertThat(first.hasNext(), Matchers.is(true));
+        MatcherAssert.assertThat(
+                last.getContent(), hasNItemsMatching(1, businessObjectIdMatches(firstObjectId)));
+        MatcherAssert.assertThat(last.hasNext(), Matchers.is(false));
+    }
+
+    @Test
+    void findSlice_givenAccessFilter_ShouldOnlyReturnAccessibleEvents() {
+        var allowed =
+                AuditEventAccessFilter.of(
+                        expression(
+                                "and",
+                                expression(
+                                        "eq",
+                                        variable("businessObjectType"),
+                                        value(businessObjectType)),
+                                expression(
+                                        "in",
+                                        variable("businessObjectId"),
+                                        value(
+                                                firstObjectId.toString(),
+                                                UUID.randomUUID().toString()))));
+        var denied =
+                AuditEventAccessFilter.of(
+                        expression(
+                                "not",
+                                expression(
+                                        "eq",
+                                        variable("businessObjectType"),
+                                        value(businessObjectType))));
+
+        var first =
+                auditEventRepository.findSlice(
+                        businessObjectType, firstObjectId, null, null, pageRequest, true, allowed);
+        var second =
+                auditEventRepository.findSlice(
+                        businessObjectType, secondObjectId, null, null, pageRequest, true, allowed);
+        var none =
+                auditEventRepository.findSlice(
+                        businessObjectType, firstObjectId, null, null, pageRequest, true, denied);
+
+        MatcherAssert.assertThat(
+                first.getContent(), hasNItemsMatching(5, businessObjectIdMatches(firstObjectId)));
+        MatcherAssert.assertThat(second.getContent(), Matchers.empty());
+        MatcherAssert.assertThat(none.getContent(), Matchers.empty());
+    }
+
+    @Test
+    void findVersion_givenFirstObjectId_ShouldReturnCountAndLatestTimestamp() {
+        var version = auditEventRepository.findVersion(businessObjectType, firstObjectId);
+        var none = auditEventRepository.findVersion(businessObjectType, UUID.randomUUID());
+
+        MatcherAssert.assertThat(version.count(), Matchers.is(5L));
+        MatcherAssert.assertThat(
+                version.latest().isEqual(rangeStart.plusHours(4)), Matchers.is(true));
+        MatcherAssert.assertThat(none, Matchers.is(new AuditEventsVersion(0, null)));
+    }
+
+    @Test
+    void findAll_givenPayloadsNotRequested_ShouldReadEventsWithoutPayloads() {
+        var page =
+                auditEventRepository.findAll(
+                        businessObjectType,
+                        firstObjectId,
+                        null,
+                        null,
+                        PageRequest.of(0, 2, Sort.by(AuditEventEntity_.TIMESTAMP)),
+                        false,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        MatcherAssert.assertThat(page.getTotalElements(), Matchers.is(5L));
+        MatcherAssert.assertThat(
+                page.getContent(), hasNItemsMatching(2, businessObjectIdMatches(firstObjectId)));
+        var first = (ActivityEventEntity) page.getContent().get(0);
+        MatcherAssert.assertThat(first.getActivityType(), Matchers.is("entry-0"));
+        MatcherAssert.assertThat(first.getType(), Matchers.is(TypeEnum.ACTIVITY_EVENT_DATA));
+        MatcherAssert.assertThat(first.getData(), Matchers.nullValue());
+    }
+
+    @Test
+    void estimateCount_givenFirstObjectIdAndStartTime_ShouldCountExactlyWithoutPlannerEstimates() {
+        // H2 has no row estimates, so this falls back to an exact count
+        MatcherAssert.assertThat(
+                auditEventRepository.estimateCount(
+                        businessObjectType, firstObjectId, rangeStart.plusHours(1), null),
+                Matchers.is(4L));
+    }
+
+    @Test
+    @Transactional
+    void forEach_givenFirstObjectId_ShouldVisitAllEventsInTimestampOrder() {
+        List<AuditEventEntity> items = new ArrayList<>();
+
+        auditEventRepository.forEach(
+                businessObjectType,
+                firstObjectId,
+                null,
+                null,
+                2,
+                AuditEventAccessFilter.ALLOW_ALL,
+                items::add);
+
+        debugItems(items);
+        MatcherAssert.assertThat(
+                items, hasNItemsMatching(5, businessObjectIdMatches(firstObjectId)));
+        MatcherAssert.assertThat(
+                items,
+                Matchers.equalTo(
+                        items.stream()
+                                .sorted(Comparator.comparing(AuditEventEntity::getTimestamp))
+                                .toList()));
+    }
+
+    @Test
+    @Transactional
+    void loadRelatedBusinessObjects_givenPage_ShouldDetachEventsWithTheirRelatedObjects() {
+        var businessObjectId = UUID.randomUUID();
+        List<AuditEventEntity> events =
+                IntStream.range(0, 3)
+                        .mapToObj(
+                                i -> {
+                                    ActivityEventEntity event = new ActivityEventEntity();
+                                    event.setEventId(UUID.randomUUID());
+                                    event.setTimestamp(rangeStart.plusHours(i));
+                                    event.setBusinessObjectId(businessObjectId);
+                                    event.setBusinessObjectType(businessObjectType);
+                                    event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+                                    event.setActivityType("related-" + i);
+                                    event.setRelatedBusinessObjects(
+                                            i == 0
+                                                    ? Set.of()
+                                                    : Set.of("first-" + i, "second-" + i));
+                                    return (AuditEventEntity) event;
+                                })
+                        .toList();
+        batchWriter.insertAll(events);
+
+        var items =
+                auditEventRepository
+                        .findSlice(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                PageRequest.of(0, 10, Sort.by(AuditEventEntity_.TIMESTAMP)),
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL)
+                        .getContent();
+        auditEventRepository.loadRelatedBusinessObjects(items);
+
+        MatcherAssert.assertThat(items, Matchers.hasSize(3));
+        MatcherAssert.assertThat(items.get(0).getRelatedBusinessObjects(), Matchers.empty());
+        MatcherAssert.assertThat(
+                items.get(2).getRelatedBusinessObjects(),
+                Matchers.containsInAnyOrder("first-2", "second-2"));
+        MatcherAssert.assertThat(
+                items.stream().noneMatch(entityManager::contains), Matchers.is(true));
+    }
+
+    @Test
+    void findRelatedSlice_givenRelatedObjectAndStartTime_ShouldReturnEventsOfAnyBusinessObject() {
+        var related = "related/" + UUID.randomUUID();
+        List<AuditEventEntity> events =
+                IntStream.range(0, 4)
+                        .mapToObj(
+                                i -> {
+                                    ActivityEventEntity event = new ActivityEventEntity();
+                                    event.setEventId(UUID.randomUUID());
+                                    event.setTimestamp(rangeStart.plusHours(i));
+                                    event.setBusinessObjectId(UUID.randomUUID());
+                                    event.setBusinessObjectType(businessObjectType);
+                                    event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+                                    event.setActivityType("related-" + i);
+                                    event.setRelatedBusinessObjects(
+                                            i == 3 ? Set.of("other") : Set.of(related, "other"));
+                                    return (AuditEventEntity) event;
+                                })
+                        .toList();
+        batchWriter.insertAll(events);
+
+        var items =
+                auditEventRepository
+                        .findRelatedSlice(
+                                related,
+                                rangeStart.plusHours(1),
+                                null,
+                                PageRequest.of(
+                                        0,
+                                        10,
+                                        Sort.by(Sort.Direction.DESC, AuditEventEntity_.TIMESTAMP)),
+                                false,
+                                AuditEventAccessFilter.ALLOW_ALL)
+                        .getContent();
+
+        MatcherAssert.assertThat(
+                items.stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(events.get(2).getEventId(), events.get(1).getEventId()));
+    }
+
+    @Test
+    void findByRequestContextAfter_givenUserIdAndEndTime_ShouldPageThroughEventsOfUser() {
+        var userId = UUID.randomUUID();
+        List<AuditEventEntity> events =
+                IntStream.range(0, 6)
+                        .mapToObj(
+                                i -> {
+                                    var context = new RequestContext();
+                                    context.setUserId(i == 5 ? UUID.randomUUID() : userId);
+                                    context.setTraceId(UUID.randomUUID());
+                                    ActivityEventEntity event = new ActivityEventEntity();
+                                    event.setEventId(UUID.randomUUID());
+                                    event.setTimestamp(rangeStart.plusHours(i));
+                                    event.setBusinessObjectId(UUID.randomUUID());
+                                    event.setBusinessObjectType(businessObjectType);
+                                    event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+                                    event.setActivityType("context-" + i);
+                                    event.setRequestContext(context);
+                                    return (AuditEventEntity) event;
+                                })
+                        .toList();
+        batchWriter.insertAll(events);
+
+        List<AuditEventEntity> items = new ArrayList<>();
+        Slice<AuditEventEntity> slice = null;
+        do {
+            var last =
+                    slice == null ? null : slice.getContent().get(slice.getNumberOfElements() - 1);
+            slice =
+                    auditEventRepository.findByRequestContextAfter(
+                            userId,
+                            null,
+                            null,
+                            null,
+                            null,
+                            rangeStart.plusHours(4),
+                            last == null ? null : last.getTimestamp(),
+                            last == null ? null : last.getEventId(),
+                            Sort.Direction.DESC,
+                            2,
+                            false,
+                            AuditEventAccessFilter.ALLOW_ALL);
+            items.addAll(slice.getContent());
+        } while (slice.hasNext());
+        var byTrace =
+                auditEventRepository.findByRequestContextAfter(
+                        userId,
+                        null,
+                        null,
+                        events.get(1).getRequestContext().getTraceId(),
+                        null,
+                        null,
+                        null,
+                        null,
+                        Sort.Direction.ASC,
+                        10,
+                        true,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        MatcherAssert.assertThat(
+                items.stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(
+                        events.get(3).getEventId(),
+                        events.get(2).getEventId(),
+                        events.get(1).getEventId(),
+                        events.get(0).getEventId()));
+        MatcherAssert.assertThat(
+                byTrace.getContent().stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(events.get(1).getEventId()));
+    }
+
+    @Test
+    void search_givenWordsAndTenant_ShouldReturnLatestMatchingEventsOfTenantUpToLimit() {
+        var tenantId = UUID.randomUUID();
+        List<AuditEventEntity> events =
+                IntStream.range(0, 5)
+                        .mapToObj(
+                                i -> {
+                                    var context = new RequestContext();
+                                    context.setTenantId(i == 4 ? UUID.randomUUID() : tenantId);
+                                    ActivityEventEntity event = new ActivityEventEntity();
+                                    event.setEventId(UUID.randomUUID());
+                                    event.setTimestamp(rangeStart.plusHours(i));
+                                    event.setBusinessObjectId(UUID.randomUUID());
+                                    event.setBusinessObjectType(businessObjectType);
+                                    event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+                                    event.setActivityType("search-" + i);
+                                    event.setSummary(i == 0 ? "Permit issued" : "Permit renewed");
+                                    event.setData(i == 2 ? "PX1" : "{\"permit\": \"P1\"}");
+                                    event.setRequestContext(context);
+                                    return (AuditEventEntity) event;
+                                })
+                        .toList();
+        batchWriter.insertAll(events);
+
+        var renewed =
+                auditEventRepository.search(
+                        "permit RENEWED",
+                        tenantId,
+                        null,
+                        null,
+                        false,
+                        2,
+                        AuditEventAccessFilter.ALLOW_ALL);
+        var byData =
+                auditEventRepository.search(
+                        "p1", tenantId, null, null, true, 10, AuditEventAccessFilter.ALLOW_ALL);
+        var wildcard =
+                auditEventRepository.search(
+                        "p_1", tenantId, null, null, true, 10, AuditEventAccessFilter.ALLOW_ALL);
+        // the access filter is applied before the limit, so the latest accessible match is found
+        var accessible =
+                auditEventRepository.search(
+                        "renewed",
+                        tenantId,
+                        null,
+                        null,
+                        false,
+                        1,
+                        AuditEventAccessFilter.of(
+                                expression(
+                                        "ne",
+                                        variable("businessObjectId"),
+                                        value(events.get(3).getBusinessObjectId().toString()))));
+
+        MatcherAssert.assertThat(
+                renewed.stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(events.get(3).getEventId(), events.get(2).getEventId()));
+        MatcherAssert.assertThat(
+                byData.stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(
+                        events.get(3).getEventId(),
+                        events.get(1).getEventId(),
+                        events.get(0).getEventId()));
+        // the underscore is not a wildcard, so PX1 does not match
+        MatcherAssert.assertThat(wildcard, Matchers.empty());
+        MatcherAssert.assertThat(
+                accessible.stream().map(AuditEventEntity::getEventId).toList(),
+                Matchers.contains(events.get(2).getEventId()));
+    }
+
+    @Test
+    @Transactional
+    void save_shouldCopyEventTimestampToRelatedBusinessObjects() {
+        var event = new ActivityEventEntity();
+        event.setBusinessObjectType(businessObjectType);
+        event.setBusinessObjectId(UUID.randomUUID());
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setTimestamp(rangeStart);
+        event.setActivityType("saved");
+        event.setRelatedBusinessObjects(Set.of("related"));
+
+        var saved = auditEventRepository.save(event);
+        entityManager.flush();
+
+        var eventTimestamp =
+                jdbcTemplate.queryForObject(
+                        "SELECT event_timestamp FROM audit_events_related_business_objects"
+                                + " WHERE audit_event_id = ?",
+                        OffsetDateTime.class,
+                        saved.getEventId());
+        Assertions.assertTrue(rangeStart.isEqual(eventTimestamp));
+    }
+
     private Matcher<List<AuditEventEntity>> hasNItemsMatching(
             int expectedSize, Matcher<AuditEventEntity> matcher) {
         return Matchers.<List<AuditEventEntity>>both(Matchers.everyItem(matcher))
                 .and(Matchers.hasSize(expectedSize));
     }
 
+    private static Operand expression(String operator, Operand... operands) {
+        var expression = Expression.newBuilder().setOperator(operator);
+        for (Operand operand : operands) {
+            expression.addOperands(operand);
+        }
+        return Operand.newBuilder().setExpression(expression.build()).build();
+    }
+
+    private static Operand variable(String attribute) {
+        return Operand.newBuilder().setVariable("request.resource.attr." + attribute).build();
+    }
+
+    private static Operand value(String... values) {
+        Value value;
+        if (values.length == 1) {
+            value = Value.newBuilder().setStringValue(values[0]).build();
+        } else {
+            var list = ListValue.newBuilder();
+            for (String element : values) {
+                list.addValues(Value.newBuilder().setStringValue(element));
+            }
+            value = Value.newBuilder().setListValue(list).build();
+        }
+        return Operand.newBuilder().setValue(value).build();
+    }
+
     private Matcher<AuditEventEntity> businessObjectIdMatches(UUID expected) {
         return new TypeSafeMatcher<>() {
             @Override
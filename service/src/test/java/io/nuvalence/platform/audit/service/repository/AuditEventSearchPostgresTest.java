@@ -0,0 +1,213 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import com.google.protobuf.Value;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression;
+import dev.cerbos.api.v1.engine.Engine.PlanResourcesFilter.Expression.Operand;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.domain.RequestContext;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+class AuditEventSearchPostgresTest extends AbstractPostgresTest {
+    private static final OffsetDateTime START =
+            OffsetDateTime.of(2023, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired private AuditEventRepository auditEventRepository;
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        tenantId = UUID.randomUUID();
+    }
+
+    @Test
+    void search_GivenWebSearchSyntax_ShouldMatchIndexedSummariesAndPayloads() {
+        var issued = activity(tenantId, 0, "Permit issued", "{\"permit\": \"P-100\"}");
+        var renewed = activity(tenantId, 1, "Permit renewed", "{\"holder\": \"lovelace\"}");
+        var approved =
+                stateChange(tenantId, 2, "Application approved", "{\"approver\": \"hopper\"}");
+        // written in one statement, so each event's search document is bound in its own place
+        batchWriter.insertAll(List.of(issued, renewed, approved));
+
+        Assertions.assertAll(
+                () -> assertFound("lovelace", renewed),
+                () -> assertFound("\"permit renewed\"", renewed),
+                () -> assertFound("permit -renewed", issued),
+                () -> assertFound("issued or approved", approved, issued),
+                // stemmed by the english configuration
+                () -> assertFound("renewing", renewed),
+                () -> assertFound("hopper", approved));
+    }
+
+    @Test
+    void search_GivenCompressedPayload_ShouldMatchUncompressedText() {
+        var approved =
+                stateChange(
+                        tenantId,
+                        0,
+                        "Application approved",
+                        "{\"approver\": \"hopper\"}".repeat(100));
+        var compressor = new PayloadCompressor();
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "minLength", 1024);
+        compressor.compress(approved);
+        batchWriter.insertAll(List.of(approved));
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(PayloadCompressor.isCompressed(approved.getNewState())),
+                () -> assertFound("hopper", approved));
+    }
+
+    @Test
+    void search_GivenRelevanceOrder_ShouldRankDenserMatchesFirst() {
+        var sparse =
+                activity(tenantId, 1, "Permit renewed", "{\"note\": \"permit of the holder\"}");
+        var dense =
+                activity(
+                        tenantId,
+                        0,
+                        "Permit renewed",
+                        "{\"note\": \"permit renewed, then permit renewed again\"}");
+        batchWriter.insertAll(List.of(sparse, dense));
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                List.of(dense.getEventId(), sparse.getEventId()),
+                                eventIds(search("permit renewed", true, 10, allowAll()))),
+                () ->
+                        Assertions.assertEquals(
+                                List.of(sparse.getEventId(), dense.getEventId()),
+                                eventIds(search("permit renewed", false, 10, allowAll()))));
+    }
+
+    @Test
+    void search_GivenAccessFilterAndLimit_ShouldLimitAccessibleEventsOfTenantOnly() {
+        var hidden = activity(tenantId, 3, "Permit renewed", null);
+        hidden.setBusinessObjectType("restricted");
+        var otherTenant = activity(UUID.randomUUID(), 2, "Permit renewed", null);
+        var latest = activity(tenantId, 1, "Permit renewed", null);
+        var earliest = activity(tenantId, 0, "Permit renewed", null);
+        batchWriter.insertAll(List.of(hidden, otherTenant, latest, earliest));
+
+        // the latest match is not accessible, so a limit of 1 still finds the next one
+        var events =
+                search("renewed", false, 1, AuditEventAccessFilter.of(businessObjectType("test")));
+
+        Assertions.assertEquals(List.of(latest.getEventId()), eventIds(events));
+    }
+
+    @Test
+    void indexUnindexedEvents_GivenEventWithoutSearchVector_ShouldIndexItFromItsPayload() {
+        var renewed = activity(tenantId, 0, "Permit renewed", "{\"holder\": \"lovelace\"}");
+        batchWriter.insertAll(List.of(renewed));
+        jdbcTemplate.update(
+                "UPDATE audit_events SET search_vector = NULL WHERE id = ?", renewed.getEventId());
+        var before = search("lovelace", true, 10, allowAll());
+
+        int batch;
+        int indexed = 0;
+        do {
+            batch = auditEventRepository.indexUnindexedEvents(100);
+            indexed += batch;
+        } while (batch > 0);
+        int total = indexed;
+
+        Assertions.assertAll(
+                () -> MatcherAssert.assertThat(before, Matchers.empty()),
+                () -> MatcherAssert.assertThat(total, Matchers.greaterThanOrEqualTo(1)),
+                () -> assertFound("lovelace", renewed),
+                () -> Assertions.assertEquals(0, auditEventRepository.indexUnindexedEvents(100)));
+    }
+
+    private void assertFound(String text, AuditEventEntity... expected) {
+        Assertions.assertEquals(
+                List.of(expected).stream().map(AuditEventEntity::getEventId).toList(),
+                eventIds(search(text, false, 10, allowAll())),
+                text);
+    }
+
+    private List<AuditEventEntity> search(
+            String text, boolean byRelevance, int limit, Specification<AuditEventEntity> access) {
+        return auditEventRepository.search(
+                text, tenantId, null, null, byRelevance, limit, access);
+    }
+
+    private static Specification<AuditEventEntity> allowAll() {
+        return AuditEventAccessFilter.ALLOW_ALL;
+    }
+
+    private static List<UUID> eventIds(List<AuditEventEntity> events) {
+        return events.stream().map(AuditEventEntity::getEventId).toList();
+    }
+
+    private static ActivityEventEntity activity(
+            UUID tenantId, int hour, String summary, String data) {
+        var event = new ActivityEventEntity();
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setActivityType("search");
+        event.setData(data);
+        return init(event, tenantId, hour, summary);
+    }
+
+    private static StateChangeEventEntity stateChange(
+            UUID tenantId, int hour, String summary, String newState) {
+        var event = new StateChangeEventEntity();
+        event.setType(TypeEnum.STATE_CHANGE_EVENT_DATA);
+        event.setNewState(newState);
+        return init(event, tenantId, hour, summary);
+    }
+
+    private static <T extends AuditEventEntity> T init(
+            T event, UUID tenantId, int hour, String summary) {
+        var context = new RequestContext();
+        context.setTenantId(tenantId);
+        event.setEventId(UUID.randomUUID());
+        event.setBusinessObjectId(UUID.randomUUID());
+        event.setBusinessObjectType("test");
+        event.setTimestamp(START.plusHours(hour));
+        event.setSummary(summary);
+        event.setRequestContext(context);
+        return event;
+    }
+
+    private static Operand businessObjectType(String type) {
+        return Operand.newBuilder()
+                .setExpression(
+                        Expression.newBuilder()
+                                .setOperator("eq")
+                                .addOperands(
+                                        Operand.newBuilder()
+                                                .setVariable(
+                                                        "request.resource.attr.businessObjectType")
+                                                .build())
+                                .addOperands(
+                                        Operand.newBuilder()
+                                                .setValue(
+                                                        Value.newBuilder()
+                                                                .setStringValue(type)
+                                                                .build())
+                                                .build())
+                                .build())
+                .build();
+    }
+}
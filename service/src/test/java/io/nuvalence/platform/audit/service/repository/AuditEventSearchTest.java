@@ -0,0 +1,30 @@
+package io.nuvalence.platform.audit.service.repository;
+
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AuditEventSearchTest {
+
+    @Test
+    void document_GivenCompressedNewState_ShouldIndexSummaryAndUncompressedNewStateOnly() {
+        var newState = "{\"status\": \"approved\"}".repeat(100);
+        var event = new StateChangeEventEntity();
+        event.setSummary("Application approved");
+        event.setNewState(newState);
+        event.setOldState("{\"status\": \"rejected\"}");
+        var compressor = new PayloadCompressor();
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "minLength", 1024);
+        compressor.compress(event);
+
+        var document = AuditEventSearch.document(event);
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(PayloadCompressor.isCompressed(event.getNewState())),
+                () -> Assertions.assertEquals("Application approved\n" + newState, document),
+                () -> Assertions.assertFalse(document.contains("rejected")));
+    }
+}
@@ -0,0 +1,128 @@
+package io.nuvalence.platform.audit.service.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+class AuditEventConsumerLanesTest {
+    private AuditEventConsumerLanes lanes;
+
+    @BeforeEach
+    void setUp() {
+        lanes = new AuditEventConsumerLanes();
+        ReflectionTestUtils.setField(lanes, "laneCount", 4);
+        ReflectionTestUtils.setField(lanes, "maxOutstandingMessages", 8);
+        ReflectionTestUtils.setField(lanes, "maxOutstandingBytes", 400L);
+        lanes.start();
+    }
+
+    @Test
+    void submit_shouldKeepOrderOfBusinessObject() throws InterruptedException {
+        var businessObjectId = UUID.randomUUID();
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+        // more tasks than the lane holds, so submit has to block rather than reorder
+        IntStream.range(0, 100)
+                .forEach(i -> lanes.submit(businessObjectId, () -> processed.add(i)));
+        lanes.stop();
+
+        Assertions.assertEquals(IntStream.range(0, 100).boxed().toList(), processed);
+    }
+
+    @Test
+    void submit_shouldProcessBusinessObjectsInParallel() throws InterruptedException {
+        var blocked = new CountDownLatch(1);
+        var processed = new CountDownLatch(1);
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        while (Math.floorMod(first.hashCode(), 4) == Math.floorMod(second.hashCode(), 4)) {
+            second = UUID.randomUUID();
+        }
+
+        lanes.submit(
+                first,
+                () -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        lanes.submit(second, processed::countDown);
+
+        Assertions.assertTrue(processed.await(5, TimeUnit.SECONDS));
+        blocked.countDown();
+        lanes.stop();
+    }
+
+    @Test
+    void submit_shouldBlock_whenLaneHoldsItsShareOfOutstandingBytes()
+            throws InterruptedException {
+        var businessObjectId = UUID.randomUUID();
+        var blocked = new CountDownLatch(1);
+        var submitted = new CountDownLatch(1);
+
+        lanes.submit(
+                businessObjectId,
+                100,
+                release -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    release.run();
+                });
+        var submitter =
+                new Thread(
+                        () -> {
+                            lanes.submit(businessObjectId, 1, Runnable::run);
+                            submitted.countDown();
+                        });
+        submitter.start();
+
+        Assertions.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        blocked.countDown();
+        Assertions.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        lanes.stop();
+    }
+
+    @Test
+    void submit_shouldHoldBytes_untilMessageIsSettled() throws InterruptedException {
+        var businessObjectId = UUID.randomUUID();
+        var pending = new ArrayBlockingQueue<Runnable>(1);
+        var submitted = new CountDownLatch(1);
+
+        // the task returns, as when it hands the message to a batch, without settling it
+        lanes.submit(businessObjectId, 100, pending::add);
+        var submitter =
+                new Thread(
+                        () -> {
+                            lanes.submit(businessObjectId, 1, Runnable::run);
+                            submitted.countDown();
+                        });
+        submitter.start();
+
+        Assertions.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        pending.take().run();
+        Assertions.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        lanes.stop();
+    }
+
+    @Test
+    void isEnabled_shouldBeFalseWithoutLanes() {
+        ReflectionTestUtils.setField(lanes, "laneCount", 0);
+
+        Assertions.assertFalse(lanes.isEnabled());
+    }
+}
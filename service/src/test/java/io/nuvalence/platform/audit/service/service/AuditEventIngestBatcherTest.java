@@ -0,0 +1,125 @@
+package io.nuvalence.platform.audit.service.service;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+class AuditEventIngestBatcherTest {
+    @Mock private AuditEventBatchWriter mockWriter;
+    @Mock private BasicAcknowledgeablePubsubMessage firstMessage;
+    @Mock private BasicAcknowledgeablePubsubMessage secondMessage;
+
+    private AuditEventIngestBatcher batcher;
+
+    @BeforeEach
+    public void beforeEach() {
+        batcher = new AuditEventIngestBatcher(mockWriter);
+        ReflectionTestUtils.setField(batcher, "maxSize", 2);
+    }
+
+    @Test
+    void add_shouldBufferUntilBatchIsFull() {
+        var first = event();
+        var second = event();
+
+        batcher.add(List.of(first), firstMessage);
+        Mockito.verifyNoInteractions(mockWriter, firstMessage);
+
+        batcher.add(List.of(second), secondMessage);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockWriter).insertAll(List.of(first, second)),
+                () -> Mockito.verify(firstMessage).ack(),
+                () -> Mockito.verify(secondMessage).ack());
+    }
+
+    @Test
+    void flush_shouldWritePartialBatch() {
+        var first = event();
+
+        batcher.add(List.of(first), firstMessage);
+        batcher.flush();
+        batcher.flush();
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockWriter).insertAll(List.of(first)),
+                () -> Mockito.verify(firstMessage).ack());
+    }
+
+    @Test
+    void flush_shouldNackBatch_whenWriteFails() {
+        var first = event();
+
+        Mockito.doThrow(new DataAccessResourceFailureException("TEST EXCEPTION"))
+                .when(mockWriter)
+                .insertAll(List.of(first));
+
+        batcher.add(List.of(first), firstMessage);
+        batcher.flush();
+
+        Assertions.assertAll(
+                () -> Mockito.verify(firstMessage).nack(),
+                () -> Mockito.verify(firstMessage, Mockito.never()).ack());
+    }
+
+    @Test
+    void flush_shouldNackOnlyFailingMessages_whenBatchFails() {
+        var poison = event();
+        var healthy = event();
+
+        Mockito.doThrow(new DataAccessResourceFailureException("TEST EXCEPTION"))
+                .when(mockWriter)
+                .insertAll(List.of(poison, healthy));
+        Mockito.doThrow(new DataAccessResourceFailureException("TEST EXCEPTION"))
+                .when(mockWriter)
+                .insertAll(List.of(poison));
+
+        batcher.add(List.of(poison), firstMessage);
+        batcher.add(List.of(healthy), secondMessage);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockWriter).insertAll(List.of(healthy)),
+                () -> Mockito.verify(firstMessage).nack(),
+                () -> Mockito.verify(firstMessage, Mockito.never()).ack(),
+                () -> Mockito.verify(secondMessage).ack(),
+                () -> Mockito.verify(secondMessage, Mockito.never()).nack());
+    }
+
+    @Test
+    void add_shouldBatchEachLaneSeparately() {
+        var first = event();
+        var second = event();
+
+        batcher.add(0, List.of(first), PubSubAcknowledgement.of(firstMessage));
+        batcher.add(1, List.of(second), PubSubAcknowledgement.of(secondMessage));
+        Mockito.verifyNoInteractions(mockWriter);
+
+        batcher.flush();
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockWriter).insertAll(List.of(first)),
+                () -> Mockito.verify(mockWriter).insertAll(List.of(second)),
+                () -> Mockito.verify(firstMessage).ack(),
+                () -> Mockito.verify(secondMessage).ack());
+    }
+
+    private static AuditEventEntity event() {
+        var event = new AuditEventEntity();
+        event.setEventId(UUID.randomUUID());
+        return event;
+    }
+}
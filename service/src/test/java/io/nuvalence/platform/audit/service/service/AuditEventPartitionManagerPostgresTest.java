@@ -0,0 +1,62 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.enums.TypeEnum;
+import io.nuvalence.platform.audit.service.repository.AbstractPostgresTest;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class AuditEventPartitionManagerPostgresTest extends AbstractPostgresTest {
+    @Autowired private AuditEventPartitionManager partitionManager;
+    @Autowired private AuditEventBatchWriter batchWriter;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void manage_shouldMoveEventsOutOfDefaultPartition() {
+        // well past the premade partitions, so the event lands in the default partition
+        var month = YearMonth.now(ZoneOffset.UTC).plusYears(5);
+        var event = new ActivityEventEntity();
+        event.setEventId(UUID.randomUUID());
+        event.setType(TypeEnum.ACTIVITY_EVENT_DATA);
+        event.setBusinessObjectId(UUID.randomUUID());
+        event.setBusinessObjectType("partition-test");
+        event.setTimestamp(OffsetDateTime.of(month.atDay(2).atStartOfDay(), ZoneOffset.UTC));
+        event.setActivityType("activity");
+        event.setRelatedBusinessObjects(Set.of("related"));
+        batchWriter.insertAll(List.of(event));
+        Assertions.assertEquals("audit_events_default", partitionOf("audit_events", event));
+
+        partitionManager.manage(month);
+
+        var suffix =
+                String.format(
+                        "_p%1$tY%1$tm_%2$tY%2$tm", month.atDay(1), month.plusMonths(1).atDay(1));
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                "audit_events" + suffix, partitionOf("audit_events", event)),
+                () ->
+                        Assertions.assertEquals(
+                                "audit_events_related_business_objects" + suffix,
+                                partitionOf("audit_events_related_business_objects", event)));
+    }
+
+    private String partitionOf(String table, ActivityEventEntity event) {
+        String idColumn = "audit_events".equals(table) ? "id" : "audit_event_id";
+        return jdbcTemplate.queryForObject(
+                String.format(
+                        "SELECT tableoid::regclass::text FROM %s WHERE %s = ?", table, idColumn),
+                String.class,
+                event.getEventId());
+    }
+}
@@ -0,0 +1,143 @@
+package io.nuvalence.platform.audit.service.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+class AuditEventPartitionManagerTest {
+    private static final String EVENTS = AuditEventPartitionManager.EVENTS_TABLE;
+    private static final String RELATED = AuditEventPartitionManager.RELATED_TABLE;
+
+    @Mock private JdbcTemplate mockJdbcTemplate;
+
+    private AuditEventPartitionManager manager;
+
+    @BeforeEach
+    public void beforeEach() {
+        manager = new AuditEventPartitionManager(mockJdbcTemplate);
+        ReflectionTestUtils.setField(manager, "intervalMonths", 1);
+        ReflectionTestUtils.setField(manager, "premake", 2);
+    }
+
+    @Test
+    void manage_shouldCreateUpcomingPartitionsAfterInitialPartition() {
+        partitions(EVENTS, "audit_events_p000000_202611", "audit_events_default");
+        partitions(RELATED);
+
+        manager.manage(YearMonth.of(2026, 10));
+
+        Assertions.assertEquals(
+                List.of(
+                        create(EVENTS, "202611_202612", "2026-11-01", "2026-12-01"),
+                        create(RELATED, "202611_202612", "2026-11-01", "2026-12-01"),
+                        create(EVENTS, "202612_202701", "2026-12-01", "2027-01-01"),
+                        create(RELATED, "202612_202701", "2026-12-01", "2027-01-01")),
+                executed());
+    }
+
+    @Test
+    void manage_shouldAlignPeriodsToInterval() {
+        ReflectionTestUtils.setField(manager, "intervalMonths", 3);
+        ReflectionTestUtils.setField(manager, "premake", 0);
+        partitions(EVENTS, "audit_events_p000000_202611");
+
+        manager.manage(YearMonth.of(2026, 10));
+
+        // the quarter starting in October is cut short by the initial partition
+        Assertions.assertEquals(
+                List.of(
+                        create(EVENTS, "202611_202701", "2026-11-01", "2027-01-01"),
+                        create(RELATED, "202611_202701", "2026-11-01", "2027-01-01")),
+                executed());
+    }
+
+    @Test
+    void manage_shouldDetachExpiredPartitions_relatedBusinessObjectsFirst() {
+        ReflectionTestUtils.setField(manager, "retentionMonths", 12);
+        ReflectionTestUtils.setField(manager, "premake", 0);
+        partitions(EVENTS, "audit_events_p202509_202510", "audit_events_p202610_202611");
+        partitions(
+                RELATED,
+                "audit_events_related_business_objects_p202509_202510",
+                "audit_events_related_business_objects_p202610_202611");
+
+        manager.manage(YearMonth.of(2026, 10));
+
+        InOrder inOrder = Mockito.inOrder(mockJdbcTemplate);
+        inOrder.verify(mockJdbcTemplate)
+                .execute(
+                        "ALTER TABLE audit_events_related_business_objects DETACH PARTITION"
+                                + " audit_events_related_business_objects_p202509_202510");
+        inOrder.verify(mockJdbcTemplate)
+                .execute(
+                        "ALTER TABLE audit_events DETACH PARTITION audit_events_p202509_202510");
+        Assertions.assertTrue(
+                executed().stream()
+                        .noneMatch(sql -> sql.contains("DETACH PARTITION audit_events_p202610")));
+    }
+
+    @Test
+    void manage_shouldMoveRowsOutOfDefaultPartition_whenDefaultPartitionHoldsPeriod() {
+        ReflectionTestUtils.setField(manager, "premake", 0);
+        partitions(EVENTS, "audit_events_p000000_202610", "audit_events_default");
+        partitions(RELATED);
+        Mockito.when(
+                        mockJdbcTemplate.queryForObject(
+                                Mockito.contains("FROM audit_events_default"),
+                                Mockito.eq(Boolean.class),
+                                Mockito.eq("2026-10-01 00:00:00+00"),
+                                Mockito.eq("2026-11-01 00:00:00+00")))
+                .thenReturn(true);
+
+        manager.manage(YearMonth.of(2026, 10));
+
+        var sql = executed();
+        var move = sql.get(0);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, sql.size()),
+                () ->
+                        Assertions.assertTrue(
+                                move.contains(
+                                        "ALTER TABLE audit_events ATTACH PARTITION"
+                                                + " audit_events_p202610_202611")),
+                // related business objects reference the events, so they are moved first
+                () ->
+                        Assertions.assertTrue(
+                                move.indexOf("DELETE FROM " + RELATED + "_default")
+                                        < move.indexOf("DELETE FROM " + EVENTS + "_default")));
+    }
+
+    private void partitions(String table, String... names) {
+        Mockito.lenient()
+                .when(
+                        mockJdbcTemplate.queryForList(
+                                AuditEventPartitionManager.PARTITIONS_SQL, String.class, table))
+                .thenReturn(List.of(names));
+    }
+
+    private List<String> executed() {
+        var sql = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(mockJdbcTemplate, Mockito.atLeastOnce()).execute(sql.capture());
+        return sql.getAllValues();
+    }
+
+    private static String create(String table, String suffix, String from, String to) {
+        return String.format(
+                "CREATE TABLE IF NOT EXISTS %s_p%s PARTITION OF %s FOR VALUES FROM"
+                        + " ('%s 00:00:00+00') TO ('%s 00:00:00+00')",
+                table, suffix, table, from, to);
+    }
+}
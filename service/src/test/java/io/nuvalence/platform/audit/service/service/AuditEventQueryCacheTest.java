@@ -0,0 +1,163 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
+import io.nuvalence.platform.audit.service.repository.AuditEventsInsertedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+@ExtendWith(MockitoExtension.class)
+class AuditEventQueryCacheTest {
+    private static final String BUSINESS_OBJECT_TYPE = "orders";
+    private static final UUID BUSINESS_OBJECT_ID = UUID.randomUUID();
+
+    @Mock private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private AuditEventQueryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AuditEventQueryCache(jdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEvents", 1000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.start();
+    }
+
+    @Test
+    void get_GivenSameQueryTwice_ShouldLoadOnceAndRecordHit() {
+        Assertions.assertEquals("result", get(List.of("slice", 0, 10)));
+        Assertions.assertEquals("result", get(List.of("slice", 0, 10)));
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, loads.get()),
+                () ->
+                        Assertions.assertEquals(
+                                1.0,
+                                meterRegistry
+                                        .get("cache.gets")
+                                        .tag("cache", AuditEventQueryCache.CACHE_NAME)
+                                        .tag("result", "hit")
+                                        .functionCounter()
+                                        .count()));
+    }
+
+    @Test
+    void onInserted_GivenEventOfBusinessObject_ShouldInvalidateOnlyItsQueries() {
+        var otherObjectId = UUID.randomUUID();
+        get(List.of("slice", 0, 10));
+        cache.get(BUSINESS_OBJECT_TYPE, otherObjectId, List.of("slice", 0, 10), this::load);
+
+        cache.onInserted(new AuditEventsInsertedEvent(List.of(event(BUSINESS_OBJECT_ID))));
+        get(List.of("slice", 0, 10));
+        cache.get(BUSINESS_OBJECT_TYPE, otherObjectId, List.of("slice", 0, 10), this::load);
+
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    @Test
+    void onInserted_GivenSeveralBusinessObjects_ShouldBroadcastThemInOneNotification() {
+        ReflectionTestUtils.setField(cache, "broadcastSupported", true);
+        var otherObjectId = UUID.randomUUID();
+
+        cache.onInserted(
+                new AuditEventsInsertedEvent(
+                        List.of(
+                                event(BUSINESS_OBJECT_ID),
+                                event(otherObjectId),
+                                event(BUSINESS_OBJECT_ID))));
+
+        Mockito.verify(jdbcTemplate, Mockito.timeout(5000))
+                .queryForList(
+                        "SELECT pg_notify(?, ?)",
+                        AuditEventQueryCache.CHANNEL,
+                        BUSINESS_OBJECT_TYPE
+                                + "/"
+                                + BUSINESS_OBJECT_ID
+                                + "\n"
+                                + BUSINESS_OBJECT_TYPE
+                                + "/"
+                                + otherObjectId);
+        cache.stop();
+    }
+
+    @Test
+    void onNotification_GivenSeveralBusinessObjects_ShouldInvalidateEach() {
+        var otherObjectId = UUID.randomUUID();
+        get(List.of("slice", 0, 10));
+        cache.get(BUSINESS_OBJECT_TYPE, otherObjectId, List.of("slice", 0, 10), this::load);
+
+        cache.onNotification(
+                BUSINESS_OBJECT_TYPE
+                        + "/"
+                        + BUSINESS_OBJECT_ID
+                        + "\n"
+                        + BUSINESS_OBJECT_TYPE
+                        + "/"
+                        + otherObjectId);
+        get(List.of("slice", 0, 10));
+        cache.get(BUSINESS_OBJECT_TYPE, otherObjectId, List.of("slice", 0, 10), this::load);
+
+        Assertions.assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_GivenInvalidationWhileLoading_ShouldNotCacheResult() {
+        get(
+                List.of("slice", 0, 10),
+                () -> {
+                    cache.onNotification(BUSINESS_OBJECT_TYPE + "/" + BUSINESS_OBJECT_ID);
+                    return load();
+                });
+        get(List.of("slice", 0, 10));
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_GivenCacheDisabled_ShouldAlwaysLoad() {
+        cache = new AuditEventQueryCache(jdbcTemplate, meterRegistry);
+        cache.start();
+
+        get(List.of("slice", 0, 10));
+        get(List.of("slice", 0, 10));
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    private String get(List<?> query) {
+        return get(query, this::load);
+    }
+
+    private String get(List<?> query, Supplier<String> loader) {
+        return cache.get(BUSINESS_OBJECT_TYPE, BUSINESS_OBJECT_ID, query, loader);
+    }
+
+    private static AuditEventEntity event(UUID businessObjectId) {
+        AuditEventEntity event = new ActivityEventEntity();
+        event.setBusinessObjectType(BUSINESS_OBJECT_TYPE);
+        event.setBusinessObjectId(businessObjectId);
+        return event;
+    }
+
+    private String load() {
+        loads.incrementAndGet();
+        return "result";
+    }
+}
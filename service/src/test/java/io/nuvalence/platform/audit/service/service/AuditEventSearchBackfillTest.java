@@ -0,0 +1,54 @@
+package io.nuvalence.platform.audit.service.service;
+
+import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("PMD.BeanMembersShouldSerialize")
+class AuditEventSearchBackfillTest {
+    @Mock private AuditEventRepository mockRepository;
+
+    private AuditEventSearchBackfill backfill;
+
+    @BeforeEach
+    public void beforeEach() {
+        backfill = new AuditEventSearchBackfill(mockRepository);
+        ReflectionTestUtils.setField(backfill, "enabled", true);
+        ReflectionTestUtils.setField(backfill, "batchSize", 10);
+    }
+
+    @Test
+    void run_shouldIndexOneBatchPerRun_untilBatchIsShort() {
+        Mockito.when(mockRepository.indexUnindexedEvents(10)).thenReturn(10, 10, 3);
+
+        backfill.run();
+        Mockito.verify(mockRepository, Mockito.times(1)).indexUnindexedEvents(10);
+
+        backfill.run();
+        backfill.run();
+        backfill.run();
+
+        // complete after the short batch
+        Mockito.verify(mockRepository, Mockito.times(3)).indexUnindexedEvents(10);
+    }
+
+    @Test
+    void run_shouldRetry_whenBatchFails() {
+        Mockito.when(mockRepository.indexUnindexedEvents(10))
+                .thenThrow(new DataAccessResourceFailureException("TEST EXCEPTION"))
+                .thenReturn(0);
+
+        backfill.run();
+        backfill.run();
+        backfill.run();
+
+        Mockito.verify(mockRepository, Mockito.times(2)).indexUnindexedEvents(10);
+    }
+}
@@ -5,6 +5,7 @@ import static io.nuvalence.platform.audit.service.utils.TestUtil.Data.STATE_CHAN
 
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.error.ApiException;
+import io.nuvalence.platform.audit.service.repository.AuditEventAccessFilter;
 import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,13 +16,19 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @SuppressWarnings({"PMD.DataflowAnomalyAnalysis", "PMD.BeanMembersShouldSerialize"})
 @ExtendWith(MockitoExtension.class)
@@ -54,6 +61,18 @@ class AuditEventServiceTest {
                 () -> Assertions.assertEquals(expectedId, result.getEventId()));
     }
 
+    @Test
+    void addAuditEvents_GivenEvents_ShouldPublishBatch() {
+        List<AuditEventEntity> events = List.of(new AuditEventEntity(), new AuditEventEntity());
+        Mockito.when(mockPubSubService.publishAll(events)).thenReturn(events);
+
+        var result = service.addAuditEvents(events);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockPubSubService).publishAll(events),
+                () -> Assertions.assertEquals(events, result));
+    }
+
     @Test
     void findAuditEvents_GivenQueryParameters_ShouldReturnPagedResult() throws IOException {
         OffsetDateTime startTime = OffsetDateTime.now();
@@ -74,7 +93,9 @@ class AuditEventServiceTest {
                                 businessObjectId,
                                 startTime,
                                 endTime,
-                                pageRequest))
+                                pageRequest,
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL))
                 .thenReturn(page);
 
         var actual =
@@ -96,10 +117,175 @@ class AuditEventServiceTest {
                                         businessObjectId,
                                         startTime,
                                         endTime,
-                                        pageRequest),
+                                        pageRequest,
+                                        true,
+                                        AuditEventAccessFilter.ALLOW_ALL),
                 () -> Assertions.assertEquals(page, actual));
     }
 
+    @Test
+    void findAuditEventSlice_GivenQueryParameters_ShouldReturnSliceWithoutCounting() {
+        int pageNumber = random.nextInt(10);
+        PageRequest pageRequest = AuditEventService.createPageable(pageNumber, 10, DESC, "type");
+        var slice = new SliceImpl<>(List.of(new AuditEventEntity()), pageRequest, true);
+        Mockito.when(
+                        mockRepository.findSlice(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                pageRequest,
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(slice);
+
+        var actual =
+                service.findAuditEventSlice(
+                        businessObjectType,
+                        businessObjectId,
+                        null,
+                        null,
+                        pageNumber,
+                        10,
+                        DESC,
+                        "type",
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(slice, actual),
+                () -> Mockito.verify(mockRepository).loadRelatedBusinessObjects(slice.getContent()),
+                () ->
+                        Mockito.verify(mockRepository, Mockito.never())
+                                .findAll(
+                                        Mockito.anyString(),
+                                        Mockito.any(),
+                                        Mockito.any(),
+                                        Mockito.any(),
+                                        Mockito.any()));
+    }
+
+    @Test
+    void findAuditEventSlice_GivenFieldsWithoutPayloadOrLinks_ShouldReadNeither() {
+        PageRequest pageRequest = AuditEventService.createPageable(0, 10, DESC, "timestamp");
+        var slice = new SliceImpl<>(List.of(new AuditEventEntity()), pageRequest, false);
+        Mockito.when(
+                        mockRepository.findSlice(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                pageRequest,
+                                false,
+                                AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(slice);
+
+        var actual =
+                service.findAuditEventSlice(
+                        businessObjectType,
+                        businessObjectId,
+                        null,
+                        null,
+                        0,
+                        10,
+                        DESC,
+                        "timestamp",
+                        AuditEventFields.parse("timestamp,summary,activityType"),
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(slice, actual),
+                () ->
+                        Mockito.verify(mockRepository)
+                                .detachWithoutRelatedBusinessObjects(slice.getContent()),
+                () ->
+                        Mockito.verify(mockRepository, Mockito.never())
+                                .loadRelatedBusinessObjects(Mockito.any()));
+    }
+
+    @Test
+    void findAuditEvent_GivenEventOfBusinessObject_ShouldReturnEventWithRelatedObjects() {
+        var eventId = UUID.randomUUID();
+        var event = new AuditEventEntity();
+        event.setEventId(eventId);
+        Mockito.when(
+                        mockRepository.findOne(
+                                businessObjectType,
+                                businessObjectId,
+                                eventId,
+                                AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(Optional.of(event));
+
+        var actual =
+                service.findAuditEvent(
+                        businessObjectType,
+                        businessObjectId,
+                        eventId,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(event, actual),
+                () -> Mockito.verify(mockRepository).loadRelatedBusinessObjects(List.of(event)));
+    }
+
+    @Test
+    void findAuditEvent_GivenNoAccessibleEvent_ShouldThrowNotFound() {
+        var eventId = UUID.randomUUID();
+        Mockito.when(
+                        mockRepository.findOne(
+                                businessObjectType,
+                                businessObjectId,
+                                eventId,
+                                AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(Optional.empty());
+
+        var exception =
+                Assertions.assertThrows(
+                        ApiException.class,
+                        () ->
+                                service.findAuditEvent(
+                                        businessObjectType,
+                                        businessObjectId,
+                                        eventId,
+                                        AuditEventAccessFilter.ALLOW_ALL));
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+    }
+
+    @Test
+    void estimateAuditEvents_GivenBusinessObject_ShouldReturnRepositoryEstimate() {
+        Mockito.when(mockRepository.estimateCount(businessObjectType, businessObjectId, null, null))
+                .thenReturn(42L);
+
+        Assertions.assertEquals(
+                42L,
+                service.estimateAuditEvents(businessObjectType, businessObjectId, null, null));
+    }
+
+    @Test
+    void exportAuditEvents_GivenBusinessObject_ShouldStreamEventsFromRepository() {
+        Consumer<AuditEventEntity> action = event -> {};
+        ReflectionTestUtils.setField(service, "exportFetchSize", 250);
+
+        service.exportAuditEvents(
+                businessObjectType,
+                businessObjectId,
+                null,
+                null,
+                AuditEventAccessFilter.ALLOW_ALL,
+                action);
+
+        Mockito.verify(mockRepository)
+                .forEach(
+                        businessObjectType,
+                        businessObjectId,
+                        null,
+                        null,
+                        250,
+                        AuditEventAccessFilter.ALLOW_ALL,
+                        action);
+    }
+
     @Test
     void findAuditEvents_GivenInvalidTimeRangeParameters_ShouldThrowError() {
         OffsetDateTime startTime = OffsetDateTime.now();
@@ -141,4 +327,182 @@ class AuditEventServiceTest {
                                 "FOO",
                                 sortBy));
     }
+
+    @Test
+    void findAuditEventsAfter_GivenCursor_ShouldSeekPastCursorPosition() {
+        var timestamp = OffsetDateTime.parse("2023-09-01T12:30:00.123456Z");
+        var eventId = UUID.randomUUID();
+        var cursor =
+                new AuditEventCursor(
+                                timestamp,
+                                eventId,
+                                Sort.Direction.DESC,
+                                AuditEventCursor.businessObjectQuery(
+                                        businessObjectType, businessObjectId, null, null))
+                        .encode();
+        var slice = new SliceImpl<AuditEventEntity>(List.of());
+        Mockito.when(
+                        mockRepository.findAllAfter(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                timestamp,
+                                eventId,
+                                Sort.Direction.DESC,
+                                10,
+                                true,
+                                AuditEventAccessFilter.ALLOW_ALL))
+                .thenReturn(slice);
+
+        var actual =
+                service.findAuditEventsAfter(
+                        businessObjectType,
+                        businessObjectId,
+                        null,
+                        null,
+                        cursor,
+                        10,
+                        DESC,
+                        "timestamp",
+                        AuditEventFields.ALL,
+                        AuditEventAccessFilter.ALLOW_ALL);
+
+        Assertions.assertEquals(slice, actual);
+    }
+
+    @Test
+    void findAuditEventsAfter_GivenSortByOtherThanTimestamp_ShouldThrowError() {
+        Assertions.assertThrows(
+                ApiException.class,
+                () ->
+                        service.findAuditEventsAfter(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                null,
+                                10,
+                                DESC,
+                                "type",
+                                AuditEventFields.ALL,
+                                AuditEventAccessFilter.ALLOW_ALL));
+    }
+
+    @Test
+    void findAuditEventsAfter_GivenMalformedCursor_ShouldThrowError() {
+        Assertions.assertThrows(
+                ApiException.class,
+                () ->
+                        service.findAuditEventsAfter(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                "not-a-cursor",
+                                10,
+                                DESC,
+                                "timestamp",
+                                AuditEventFields.ALL,
+                                AuditEventAccessFilter.ALLOW_ALL));
+    }
+
+    @Test
+    void findAuditEventsAfter_GivenCursorOfOtherOrderOrQuery_ShouldThrowError() {
+        var timestamp = OffsetDateTime.parse("2023-09-01T12:30:00.123456Z");
+        var query =
+                AuditEventCursor.businessObjectQuery(
+                        businessObjectType, businessObjectId, null, null);
+        var ascending =
+                new AuditEventCursor(timestamp, UUID.randomUUID(), Sort.Direction.ASC, query)
+                        .encode();
+        var otherBusinessObject =
+                new AuditEventCursor(
+                                timestamp,
+                                UUID.randomUUID(),
+                                Sort.Direction.DESC,
+                                AuditEventCursor.businessObjectQuery(
+                                        businessObjectType, UUID.randomUUID(), null, null))
+                        .encode();
+        var requestContext =
+                new AuditEventCursor(
+                                timestamp,
+                                UUID.randomUUID(),
+                                Sort.Direction.DESC,
+                                AuditEventCursor.requestContextQuery(
+                                        businessObjectId, null, null, null, null, null))
+                        .encode();
+
+        Assertions.assertAll(
+                () ->
+                        Assertions.assertEquals(
+                                HttpStatus.BAD_REQUEST,
+                                findAfter(ascending).getHttpStatus()),
+                () ->
+                        Assertions.assertEquals(
+                                HttpStatus.BAD_REQUEST,
+                                findAfter(otherBusinessObject).getHttpStatus()),
+                () ->
+                        Assertions.assertEquals(
+                                HttpStatus.BAD_REQUEST,
+                                findAfter(requestContext).getHttpStatus()));
+        Mockito.verifyNoInteractions(mockRepository);
+    }
+
+    @Test
+    void findAuditEventsByRequestContext_GivenNoRequestContextField_ShouldThrowError() {
+        var exception =
+                Assertions.assertThrows(
+                        ApiException.class,
+                        () ->
+                                service.findAuditEventsByRequestContext(
+                                        null,
+                                        null,
+                                        null,
+                                        null,
+                                        null,
+                                        null,
+                                        null,
+                                        10,
+                                        DESC,
+                                        AuditEventFields.ALL,
+                                        AuditEventAccessFilter.ALLOW_ALL));
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        Mockito.verifyNoInteractions(mockRepository);
+    }
+
+    @Test
+    void searchAuditEvents_GivenBlankText_ShouldThrowError() {
+        Assertions.assertThrows(
+                ApiException.class,
+                () ->
+                        service.searchAuditEvents(
+                                " ",
+                                UUID.randomUUID(),
+                                null,
+                                null,
+                                "relevance",
+                                20,
+                                AuditEventFields.ALL,
+                                AuditEventAccessFilter.ALLOW_ALL));
+        Mockito.verifyNoInteractions(mockRepository);
+    }
+
+    private ApiException findAfter(String cursor) {
+        return Assertions.assertThrows(
+                ApiException.class,
+                () ->
+                        service.findAuditEventsAfter(
+                                businessObjectType,
+                                businessObjectId,
+                                null,
+                                null,
+                                cursor,
+                                10,
+                                DESC,
+                                "timestamp",
+                                AuditEventFields.ALL,
+                                AuditEventAccessFilter.ALLOW_ALL));
+    }
 }
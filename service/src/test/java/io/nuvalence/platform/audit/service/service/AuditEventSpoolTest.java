@@ -0,0 +1,129 @@
+package io.nuvalence.platform.audit.service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+class AuditEventSpoolTest {
+    @TempDir Path directory;
+
+    private AuditEventSpool spool;
+
+    @BeforeEach
+    public void beforeEach() {
+        spool = new AuditEventSpool();
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", directory.toString());
+        ReflectionTestUtils.setField(spool, "segmentSize", 64);
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        spool.close();
+    }
+
+    @Test
+    void seal_shouldReturnAppendedMessagesInOrder() throws IOException {
+        var first = message("{\"first\": true}", false);
+        var second = message("[{\"second\": true}]", true);
+
+        spool.append(first);
+        spool.append(second);
+        spool.sync();
+
+        var segments = spool.seal();
+        var messages = segments.stream().flatMap(this::read).toList();
+
+        Assertions.assertEquals(List.of(first, second), messages);
+    }
+
+    @Test
+    void seal_shouldRollSegments_whenSegmentIsFull() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            spool.append(message("message-" + i, false));
+        }
+
+        var segments = spool.seal();
+        var messages = segments.stream().flatMap(this::read).toList();
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(segments.size() > 1),
+                () -> Assertions.assertEquals(10, messages.size()),
+                () -> Assertions.assertEquals(message("message-9", false), messages.get(9)));
+    }
+
+    @Test
+    void seal_shouldIgnoreSegmentsOfOtherInstances() throws IOException {
+        var other = new AuditEventSpool();
+        ReflectionTestUtils.setField(other, "directory", directory.toString());
+        ReflectionTestUtils.setField(other, "segmentSize", 64);
+        ReflectionTestUtils.setField(other, "instanceId", "local-1");
+        other.append(message("other", false));
+        other.seal();
+        other.append(message("open", false));
+
+        spool.append(message("own", false));
+        var segments = spool.seal();
+        other.close();
+
+        Assertions.assertEquals(
+                List.of(message("own", false)),
+                segments.stream().flatMap(this::read).toList());
+    }
+
+    @Test
+    void read_shouldPreserveProtobufFlag() throws IOException {
+        var protobuf = new AuditEventSpool.SpooledMessage(new byte[] {0, 1, 2}, false, true);
+
+        spool.append(protobuf);
+
+        Assertions.assertEquals(List.of(protobuf), spool.read(spool.seal().get(0)));
+    }
+
+    @Test
+    void read_shouldStopAtCorruptRecord() throws IOException {
+        spool.append(message("intact", false));
+        spool.append(message("torn", false));
+        var segment = spool.seal().get(0);
+
+        try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X');
+        }
+
+        Assertions.assertEquals(List.of(message("intact", false)), spool.read(segment));
+    }
+
+    @Test
+    void delete_shouldRemoveDrainedSegment() throws IOException {
+        spool.append(message("message", false));
+        var segment = spool.seal().get(0);
+
+        spool.delete(segment);
+
+        Assertions.assertTrue(spool.seal().isEmpty());
+    }
+
+    private static AuditEventSpool.SpooledMessage message(String payload, boolean batch) {
+        return new AuditEventSpool.SpooledMessage(
+                payload.getBytes(StandardCharsets.UTF_8), batch, false);
+    }
+
+    private Stream<AuditEventSpool.SpooledMessage> read(Path segment) {
+        try {
+            return spool.read(segment).stream();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
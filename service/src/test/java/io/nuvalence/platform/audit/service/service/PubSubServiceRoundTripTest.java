@@ -8,7 +8,10 @@ import io.nuvalence.platform.audit.service.config.PubSubConfig;
 import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
 import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
-import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import io.nuvalence.platform.audit.service.mapper.AuditEventProtobufCodec;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import io.nuvalence.platform.audit.service.utils.EventIdGenerator;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,11 +24,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -36,17 +42,34 @@ import java.util.UUID;
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("PMD.BeanMembersShouldSerialize")
 class PubSubServiceRoundTripTest {
-    @Mock private AuditEventRepository mockRepository;
     @Mock private PubSubConfig.PubSubOutboundGateway mockGateway;
+    @Mock private AuditEventBatchWriter mockBatchWriter;
+    @Mock private AuditEventIngestBatcher mockBatcher;
+    @Mock private AuditEventSpool mockSpool;
+    @Mock private AuditEventConsumerLanes mockLanes;
+    private final AuditEventProtobufCodec codec = new AuditEventProtobufCodec();
     @Autowired private ObjectMapper mapper;
 
     @MockBean private AuthorizationHandler authorizationHandler;
 
+    @MockBean private AuditEventAccessPlanner accessPlanner;
+
     private PubSubService service;
 
     @BeforeEach
     public void beforeEach() {
-        service = new PubSubService(mockGateway, mockRepository, mapper);
+        service =
+                new PubSubService(
+                        mockGateway,
+                        mockBatchWriter,
+                        mapper,
+                        mockBatcher,
+                        mockSpool,
+                        codec,
+                        new PayloadCompressor(),
+                        mockLanes,
+                        new EventIdGenerator());
+        ReflectionTestUtils.setField(service, "maxMessageBytes", 9_000_000);
     }
 
     @Test
@@ -84,6 +107,63 @@ class PubSubServiceRoundTripTest {
         Assertions.assertEquals(event.getOldState(), result.getOldState());
     }
 
+    @Test
+    void service_shouldRoundTrip_Batch() throws IOException {
+        var activity = new ActivityEventEntity();
+        activity.setActivityType("Test Type");
+        var stateChange = new StateChangeEventEntity();
+        stateChange.setNewState("New State");
+
+        service.publishAll(List.of(activity, stateChange));
+        var sent = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(mockGateway).sendBatchToPubSub(sent.capture());
+
+        service.process(
+                MessageBuilder.withPayload(sent.getValue().getBytes(StandardCharsets.UTF_8))
+                        .setHeader(PubSubConfig.PubSubOutboundGateway.BATCH_HEADER, "true")
+                        .build());
+
+        var received = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockBatchWriter).insertAll(received.capture());
+
+        var result = (List<AuditEventEntity>) received.getValue();
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(
+                activity.getActivityType(),
+                ((ActivityEventEntity) result.get(0)).getActivityType());
+        Assertions.assertEquals(
+                stateChange.getNewState(), ((StateChangeEventEntity) result.get(1)).getNewState());
+    }
+
+    @Test
+    void service_shouldRoundTrip_ProtobufBatch() throws IOException {
+        ReflectionTestUtils.setField(service, "publishFormat", "protobuf");
+        var activity = new ActivityEventEntity();
+        activity.setEventId(UUID.randomUUID());
+        activity.setTimestamp(OffsetDateTime.now());
+        activity.setActivityType("Test Type");
+        activity.setData("{\"key\": \"value\"}");
+        var stateChange = new StateChangeEventEntity();
+        stateChange.setNewState("New State");
+
+        service.publishAll(List.of(activity, stateChange));
+        var sent = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(mockGateway).sendProtobufToPubSub(sent.capture());
+
+        service.process(
+                MessageBuilder.withPayload(sent.getValue())
+                        .setHeader(
+                                PubSubConfig.PubSubOutboundGateway.CONTENT_TYPE_HEADER,
+                                PubSubConfig.PubSubOutboundGateway.PROTOBUF_CONTENT_TYPE)
+                        .build());
+
+        var received = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockBatchWriter).insertAll(received.capture());
+
+        var result = (List<AuditEventEntity>) received.getValue();
+        assertThat(result).usingRecursiveComparison().isEqualTo(List.of(activity, stateChange));
+    }
+
     private <T extends AuditEventEntity> T roundTripAuditEvent(T entity) throws IOException {
         service.publish(entity);
         var sent = ArgumentCaptor.forClass(String.class);
@@ -92,9 +172,9 @@ class PubSubServiceRoundTripTest {
         // Simulate PubSub by invoking process with the same string sent to the gateway
         service.process(new GenericMessage<>(sent.getValue().getBytes(StandardCharsets.UTF_8)));
 
-        var received = ArgumentCaptor.forClass(AuditEventEntity.class);
-        Mockito.verify(mockRepository).save(received.capture());
+        var received = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockBatchWriter).insertAll(received.capture());
 
-        return (T) received.getValue();
+        return (T) received.getValue().get(0);
     }
 }
@@ -2,9 +2,14 @@ package io.nuvalence.platform.audit.service.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import io.nuvalence.platform.audit.service.config.PubSubConfig;
 import io.nuvalence.platform.audit.service.domain.AuditEventEntity;
-import io.nuvalence.platform.audit.service.repository.AuditEventRepository;
+import io.nuvalence.platform.audit.service.mapper.AuditEventProtobufCodec;
+import io.nuvalence.platform.audit.service.repository.AuditEventBatchWriter;
+import io.nuvalence.platform.audit.service.utils.EventIdGenerator;
+import io.nuvalence.platform.audit.service.utils.PayloadCompressor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,28 +17,47 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("PMD.BeanMembersShouldSerialize")
 class PubSubServiceTest {
     private static final String serializedString = "SERIALIZED DATA";
 
-    @Mock private AuditEventRepository mockRepository;
     @Mock private PubSubConfig.PubSubOutboundGateway mockGateway;
+    @Mock private AuditEventBatchWriter mockBatchWriter;
+    @Mock private AuditEventIngestBatcher mockBatcher;
+    @Mock private AuditEventSpool mockSpool;
+    @Mock private AuditEventConsumerLanes mockLanes;
+    @Mock private AuditEventProtobufCodec mockCodec;
     @Mock private ObjectMapper mockMapper;
 
     private PubSubService service;
 
     @BeforeEach
     public void beforeEach() {
-        service = new PubSubService(mockGateway, mockRepository, mockMapper);
+        service =
+                new PubSubService(
+                        mockGateway,
+                        mockBatchWriter,
+                        mockMapper,
+                        mockBatcher,
+                        mockSpool,
+                        mockCodec,
+                        new PayloadCompressor(),
+                        mockLanes,
+                        new EventIdGenerator());
+        ReflectionTestUtils.setField(service, "maxMessageBytes", 9_000_000);
     }
 
     @Test
@@ -73,7 +97,7 @@ class PubSubServiceTest {
 
         Assertions.assertAll(
                 () -> Assertions.assertDoesNotThrow(() -> service.publish(event)),
-                () -> Mockito.verify(mockRepository).save(event),
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(event)),
                 () -> Mockito.verifyNoInteractions(mockGateway));
     }
 
@@ -89,7 +113,177 @@ class PubSubServiceTest {
 
         Assertions.assertAll(
                 () -> Assertions.assertDoesNotThrow(() -> service.publish(event)),
-                () -> Mockito.verify(mockRepository).save(event));
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(event)));
+    }
+
+    @Test
+    void publish_shouldFallbackToSpool_whenSpoolIsEnabled() throws IOException {
+        AuditEventEntity event = new AuditEventEntity();
+
+        Mockito.when(mockMapper.writeValueAsString(event)).thenReturn(serializedString);
+        Mockito.doThrow(new MessagingException("TEST EXCEPTION"))
+                .when(mockGateway)
+                .sendToPubSub(serializedString);
+        Mockito.when(mockSpool.isEnabled()).thenReturn(true);
+
+        service.publish(event);
+
+        var spooled =
+                new AuditEventSpool.SpooledMessage(
+                        serializedString.getBytes(StandardCharsets.UTF_8), false, false);
+        Assertions.assertAll(
+                () -> Mockito.verify(mockSpool).append(spooled),
+                () -> Mockito.verifyNoInteractions(mockBatchWriter));
+    }
+
+    @Test
+    void publish_shouldFallbackToRepository_whenSpoolFails() throws IOException {
+        AuditEventEntity event = new AuditEventEntity();
+
+        Mockito.when(mockMapper.writeValueAsString(event)).thenReturn(serializedString);
+        Mockito.doThrow(new MessagingException("TEST EXCEPTION"))
+                .when(mockGateway)
+                .sendToPubSub(serializedString);
+        Mockito.when(mockSpool.isEnabled()).thenReturn(true);
+        Mockito.doThrow(new IOException("TEST EXCEPTION")).when(mockSpool).append(Mockito.any());
+
+        service.publish(event);
+
+        Mockito.verify(mockBatchWriter).insertAll(List.of(event));
+    }
+
+    @Test
+    void republish_shouldSendSpooledBatchToGateway() throws IOException {
+        service.republish(
+                new AuditEventSpool.SpooledMessage(
+                        serializedString.getBytes(StandardCharsets.UTF_8), true, false));
+
+        Mockito.verify(mockGateway).sendBatchToPubSub(serializedString);
+    }
+
+    @Test
+    void publishAll_shouldWriteProtobufEnvelope_whenFormatIsProtobuf() throws IOException {
+        var events = List.of(new AuditEventEntity(), new AuditEventEntity());
+        var envelope = new byte[] {1, 2, 3};
+        ReflectionTestUtils.setField(service, "publishFormat", "protobuf");
+
+        Mockito.when(mockCodec.encode(events)).thenReturn(envelope);
+
+        service.publishAll(events);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockGateway).sendProtobufToPubSub(envelope),
+                () -> Mockito.verifyNoInteractions(mockMapper));
+    }
+
+    @Test
+    void process_shouldDecodeProtobufEnvelope_whenContentTypeIsProtobuf() throws IOException {
+        var envelope = new byte[] {1, 2, 3};
+        var message =
+                MessageBuilder.withPayload(envelope)
+                        .setHeader(
+                                PubSubConfig.PubSubOutboundGateway.CONTENT_TYPE_HEADER,
+                                PubSubConfig.PubSubOutboundGateway.PROTOBUF_CONTENT_TYPE)
+                        .build();
+        var event = new AuditEventEntity();
+
+        Mockito.when(mockCodec.decode(envelope)).thenReturn(List.of(event));
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(event)),
+                () -> Mockito.verifyNoInteractions(mockMapper));
+    }
+
+    @Test
+    void publishAll_shouldWriteBatchToGateway() throws IOException {
+        var events = List.of(new AuditEventEntity(), new AuditEventEntity());
+
+        Mockito.when(mockMapper.writeValueAsString(Mockito.any(AuditEventEntity[].class)))
+                .thenReturn(serializedString);
+
+        var result = service.publishAll(events);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockGateway).sendBatchToPubSub(serializedString),
+                () -> Assertions.assertNotNull(result.get(0).getEventId()),
+                () ->
+                        Assertions.assertNotEquals(
+                                result.get(0).getEventId(), result.get(1).getEventId()));
+    }
+
+    @Test
+    void publishAll_shouldSplitBatchesLargerThanMaximumMessageSize() throws IOException {
+        var events =
+                List.of(new AuditEventEntity(), new AuditEventEntity(), new AuditEventEntity());
+        ReflectionTestUtils.setField(service, "maxMessageBytes", 20);
+
+        Mockito.when(mockMapper.writeValueAsString(Mockito.any(AuditEventEntity[].class)))
+                .thenAnswer(
+                        invocation -> {
+                            AuditEventEntity[] batch = invocation.getArgument(0);
+                            return "x".repeat(10 * batch.length);
+                        });
+
+        service.publishAll(events);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockGateway).sendBatchToPubSub("x".repeat(10)),
+                () -> Mockito.verify(mockGateway).sendBatchToPubSub("x".repeat(20)),
+                () ->
+                        Mockito.verify(mockGateway, Mockito.never())
+                                .sendBatchToPubSub("x".repeat(30)));
+    }
+
+    @Test
+    void publishAll_shouldFallbackToBatchWriter_whenMessagingExceptionIsThrown()
+            throws IOException {
+        var events = List.of(new AuditEventEntity(), new AuditEventEntity());
+
+        Mockito.when(mockMapper.writeValueAsString(Mockito.any(AuditEventEntity[].class)))
+                .thenReturn(serializedString);
+        Mockito.doThrow(new MessagingException("TEST EXCEPTION"))
+                .when(mockGateway)
+                .sendBatchToPubSub(serializedString);
+
+        Assertions.assertAll(
+                () -> Assertions.assertDoesNotThrow(() -> service.publishAll(events)),
+                () -> Mockito.verify(mockBatchWriter).insertAll(events));
+    }
+
+    @Test
+    void process_shouldPersistBatchMessages() throws IOException {
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(PubSubConfig.PubSubOutboundGateway.BATCH_HEADER, "true")
+                        .build();
+        var first = new AuditEventEntity();
+        var second = new AuditEventEntity();
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity[].class))
+                .thenReturn(new AuditEventEntity[] {first, second});
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(first, second)));
+    }
+
+    @Test
+    void handlePublishFailure_shouldWriteEventToDatabase() throws IOException {
+        var message = new GenericMessage<>(serializedString);
+        var event = new AuditEventEntity();
+
+        Mockito.when(
+                        mockMapper.readValue(
+                                serializedString.getBytes(StandardCharsets.UTF_8),
+                                AuditEventEntity.class))
+                .thenReturn(event);
+
+        service.handlePublishFailure(message, new IOException("TEST EXCEPTION"));
+
+        Mockito.verify(mockBatchWriter).insertAll(List.of(event));
     }
 
     @Test
@@ -101,18 +295,179 @@ class PubSubServiceTest {
                 .thenReturn(event);
 
         service.process(message);
-        Mockito.verify(mockRepository).save(event);
+        Mockito.verify(mockBatchWriter).insertAll(List.of(event));
+    }
+
+    @Test
+    void process_shouldHandOffToBatcher_whenBatchingIsEnabled() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var event = new AuditEventEntity();
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
+                .thenReturn(event);
+        Mockito.when(mockBatcher.isEnabled()).thenReturn(true);
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockBatcher).add(List.of(event), originalMessage),
+                () -> Mockito.verifyNoInteractions(mockBatchWriter));
+    }
+
+    @Test
+    void process_shouldPersistOnLaneOfBusinessObject_whenLanesAreEnabled() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var event = new AuditEventEntity();
+        event.setBusinessObjectId(UUID.randomUUID());
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
+                .thenReturn(event);
+        runLanesInline();
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () ->
+                        Mockito.verify(mockLanes)
+                                .submit(
+                                        Mockito.eq(event.getBusinessObjectId()),
+                                        Mockito.eq(serializedString.length()),
+                                        Mockito.any()),
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(event)),
+                () -> Mockito.verify(originalMessage).ack());
+    }
+
+    @Test
+    void process_shouldBatchPerLane_whenLanesAndBatchingAreEnabled() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var event = new AuditEventEntity();
+        event.setBusinessObjectId(UUID.randomUUID());
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
+                .thenReturn(event);
+        runLanesInline();
+        Mockito.when(mockLanes.laneOf(event.getBusinessObjectId())).thenReturn(3);
+        Mockito.when(mockBatcher.isEnabled()).thenReturn(true);
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () ->
+                        Mockito.verify(mockBatcher)
+                                .add(Mockito.eq(3), Mockito.eq(List.of(event)), Mockito.any()),
+                () -> Mockito.verifyNoInteractions(mockBatchWriter, originalMessage));
+    }
+
+    @Test
+    void process_shouldPersistEachBusinessObjectOnItsLane_whenBatchIsMixed() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(PubSubConfig.PubSubOutboundGateway.BATCH_HEADER, "true")
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var first = new AuditEventEntity();
+        first.setBusinessObjectId(UUID.randomUUID());
+        var second = new AuditEventEntity();
+        second.setBusinessObjectId(UUID.randomUUID());
+        var third = new AuditEventEntity();
+        third.setBusinessObjectId(first.getBusinessObjectId());
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity[].class))
+                .thenReturn(new AuditEventEntity[] {first, second, third});
+        runLanesInline();
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () ->
+                        Mockito.verify(mockLanes)
+                                .submit(
+                                        Mockito.eq(first.getBusinessObjectId()),
+                                        Mockito.anyInt(),
+                                        Mockito.any()),
+                () ->
+                        Mockito.verify(mockLanes)
+                                .submit(
+                                        Mockito.eq(second.getBusinessObjectId()),
+                                        Mockito.anyInt(),
+                                        Mockito.any()),
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(first, third)),
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(second)),
+                // once, when both business objects are persisted
+                () -> Mockito.verify(originalMessage).ack());
+    }
+
+    @Test
+    void process_shouldNackMixedBatchOnce_whenAnyBusinessObjectFails() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(PubSubConfig.PubSubOutboundGateway.BATCH_HEADER, "true")
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var first = new AuditEventEntity();
+        first.setBusinessObjectId(UUID.randomUUID());
+        var second = new AuditEventEntity();
+        second.setBusinessObjectId(UUID.randomUUID());
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity[].class))
+                .thenReturn(new AuditEventEntity[] {first, second});
+        Mockito.when(mockBatchWriter.insertAll(List.of(first)))
+                .thenThrow(new DataAccessResourceFailureException("TEST EXCEPTION"));
+        runLanesInline();
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(mockBatchWriter).insertAll(List.of(second)),
+                () -> Mockito.verify(originalMessage).nack(),
+                () -> Mockito.verify(originalMessage, Mockito.never()).ack());
+    }
+
+    @Test
+    void process_shouldNackOnLane_whenPersistFails() throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+        var event = new AuditEventEntity();
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
+                .thenReturn(event);
+        runLanesInline();
+        Mockito.when(mockBatchWriter.insertAll(List.of(event)))
+                .thenThrow(new DataAccessResourceFailureException("TEST EXCEPTION"));
+
+        service.process(message);
+
+        Assertions.assertAll(
+                () -> Mockito.verify(originalMessage).nack(),
+                () -> Mockito.verify(originalMessage, Mockito.never()).ack());
     }
 
     @Test
-    void process_shouldIgnoreDuplicateKeys() throws IOException {
+    void process_shouldIgnoreDuplicateEvents() throws IOException {
         var message = new GenericMessage<>(serializedString.getBytes(StandardCharsets.UTF_8));
         var event = new AuditEventEntity();
 
         Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
                 .thenReturn(event);
-        Mockito.when(mockRepository.save(event))
-                .thenThrow(new DuplicateKeyException("TEST EXCEPTION"));
+        // the event was already persisted, so nothing is inserted
+        Mockito.when(mockBatchWriter.insertAll(List.of(event))).thenReturn(0);
 
         Assertions.assertDoesNotThrow(() -> service.process(message));
     }
@@ -126,4 +481,32 @@ class PubSubServiceTest {
 
         Assertions.assertThrows(RuntimeException.class, () -> service.process(message));
     }
+
+    @Test
+    void process_shouldNackIfDeserializationFails_whenMessagesAreAckedManually()
+            throws IOException {
+        var originalMessage = Mockito.mock(BasicAcknowledgeablePubsubMessage.class);
+        var message =
+                MessageBuilder.withPayload(serializedString.getBytes(StandardCharsets.UTF_8))
+                        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+                        .build();
+
+        Mockito.when(mockMapper.readValue(message.getPayload(), AuditEventEntity.class))
+                .thenThrow(new IOException());
+        Mockito.when(mockBatcher.isEnabled()).thenReturn(true);
+
+        Assertions.assertThrows(RuntimeException.class, () -> service.process(message));
+        Mockito.verify(originalMessage).nack();
+    }
+
+    private void runLanesInline() {
+        Mockito.when(mockLanes.isEnabled()).thenReturn(true);
+        Mockito.doAnswer(
+                        invocation -> {
+                            invocation.<Consumer<Runnable>>getArgument(2).accept(() -> {});
+                            return null;
+                        })
+                .when(mockLanes)
+                .submit(Mockito.any(), Mockito.anyInt(), Mockito.any());
+    }
 }
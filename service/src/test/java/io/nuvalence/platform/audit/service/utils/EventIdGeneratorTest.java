@@ -0,0 +1,76 @@
+package io.nuvalence.platform.audit.service.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class EventIdGeneratorTest {
+    private final EventIdGenerator generator = new EventIdGenerator();
+
+    @Test
+    void next_shouldGenerateRandomIdsByDefault() {
+        Assertions.assertEquals(4, generator.next().version());
+    }
+
+    @Test
+    void next_shouldGenerateTimeOrderedIds_whenConfigured() {
+        ReflectionTestUtils.setField(generator, "strategy", "time-ordered");
+        long before = System.currentTimeMillis();
+
+        UUID id = generator.next();
+
+        long timestamp = id.getMostSignificantBits() >>> 16;
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(7, id.version()),
+                () -> Assertions.assertEquals(2, id.variant()),
+                () -> Assertions.assertTrue(timestamp >= before),
+                () -> Assertions.assertTrue(timestamp <= System.currentTimeMillis()));
+    }
+
+    @Test
+    void nextTimeOrdered_shouldBeMonotonic() {
+        UUID previous = generator.nextTimeOrdered();
+        // well past the 4096 IDs a single millisecond can hold
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = generator.nextTimeOrdered();
+            Assertions.assertTrue(id.toString().compareTo(previous.toString()) > 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextTimeOrdered_shouldBeUniqueUnderConcurrentGeneration() throws Exception {
+        int threads = 8;
+        int idsPerThread = 10_000;
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int j = 0; j < idsPerThread; j++) {
+                                        ids.add(generator.nextTimeOrdered());
+                                    }
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(threads * idsPerThread, ids.size());
+    }
+}
@@ -0,0 +1,91 @@
+package io.nuvalence.platform.audit.service.utils;
+
+import io.nuvalence.platform.audit.service.domain.ActivityEventEntity;
+import io.nuvalence.platform.audit.service.domain.StateChangeEventEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PayloadCompressorTest {
+    private static final String LARGE_PAYLOAD = "{\"key\": \"value\"}".repeat(100);
+
+    private PayloadCompressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        compressor = new PayloadCompressor();
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "minLength", 1024);
+    }
+
+    @Test
+    void compress_shouldCompressLargePayloads() {
+        var event = new ActivityEventEntity();
+        event.setData(LARGE_PAYLOAD);
+
+        compressor.compress(event);
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(PayloadCompressor.isCompressed(event.getData())),
+                () -> Assertions.assertTrue(event.getData().length() < LARGE_PAYLOAD.length()),
+                () ->
+                        Assertions.assertEquals(
+                                LARGE_PAYLOAD, PayloadCompressor.decompress(event.getData())));
+    }
+
+    @Test
+    void compress_shouldSkipSmallPayloads() {
+        var event = new StateChangeEventEntity();
+        event.setNewState(LARGE_PAYLOAD);
+        event.setOldState("{}");
+
+        compressor.compress(event);
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(PayloadCompressor.isCompressed(event.getNewState())),
+                () -> Assertions.assertEquals("{}", event.getOldState()));
+    }
+
+    @Test
+    void compress_shouldDoNothing_whenDisabled() {
+        ReflectionTestUtils.setField(compressor, "enabled", false);
+        var event = new ActivityEventEntity();
+        event.setData(LARGE_PAYLOAD);
+
+        compressor.compress(event);
+
+        Assertions.assertEquals(LARGE_PAYLOAD, event.getData());
+    }
+
+    @Test
+    void compress_shouldEscapePayloadsStartingWithTheMarker_evenWhenDisabled() {
+        ReflectionTestUtils.setField(compressor, "enabled", false);
+        var event = new StateChangeEventEntity();
+        event.setNewState("gzip+base64:not compressed");
+        event.setOldState("escaped:gzip+base64:not compressed either");
+
+        compressor.compress(event);
+
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(PayloadCompressor.isCompressed(event.getNewState())),
+                () ->
+                        Assertions.assertEquals(
+                                "gzip+base64:not compressed",
+                                PayloadCompressor.decompress(event.getNewState())),
+                () ->
+                        Assertions.assertEquals(
+                                "escaped:gzip+base64:not compressed either",
+                                PayloadCompressor.decompress(event.getOldState())));
+    }
+
+    @Test
+    void decompress_shouldPassThroughUncompressedPayloads() {
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("{}", PayloadCompressor.decompress("{}")),
+                () ->
+                        Assertions.assertEquals(
+                                "escaped:{}", PayloadCompressor.decompress("escaped:{}")),
+                () -> Assertions.assertNull(PayloadCompressor.decompress(null)));
+    }
+}